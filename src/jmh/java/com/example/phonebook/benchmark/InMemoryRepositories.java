@@ -0,0 +1,258 @@
+package com.example.phonebook.benchmark;
+
+import com.example.phonebook.entity.PhonebookEntry;
+import com.example.phonebook.entity.PhonebookOutboxEvent;
+import com.example.phonebook.repository.PhonebookEntryBatchRepository;
+import com.example.phonebook.repository.PhonebookEntryRepository;
+import com.example.phonebook.repository.PhonebookOutboxRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Map-backed stand-ins for the Spring Data repositories, so service and
+ * controller benchmarks measure application code rather than Postgres. The
+ * CRUD methods and the queries the services call are implemented over the
+ * map; custom queries nothing in the services reaches still throw.
+ */
+final class InMemoryRepositories {
+
+    private InMemoryRepositories() {
+    }
+
+    static PhonebookEntryRepository entryRepository(Map<Long, PhonebookEntry> entries) {
+        ConcurrentSkipListMap<Long, PhonebookEntry> rows = new ConcurrentSkipListMap<>(entries);
+        AtomicLong sequence = new AtomicLong(rows.isEmpty() ? 0 : rows.lastKey());
+
+        Function<PhonebookEntry, PhonebookEntry> save = entry -> {
+            PhonebookEntry stored = new PhonebookEntry(
+                    entry.getId() != null ? entry.getId() : sequence.incrementAndGet(),
+                    entry.getPhone(), entry.getName(), entry.getVersion());
+            rows.put(stored.getId(), stored);
+            return stored;
+        };
+
+        return proxy(PhonebookEntryRepository.class, (method, args) -> switch (method) {
+            case "save", "saveAndFlush" -> save.apply((PhonebookEntry) args[0]);
+            case "saveAll", "saveAllAndFlush" -> {
+                List<PhonebookEntry> saved = new ArrayList<>();
+                ((Iterable<?>) args[0]).forEach(entry -> saved.add(save.apply((PhonebookEntry) entry)));
+                yield saved;
+            }
+            case "findById" -> Optional.ofNullable(rows.get((Long) args[0]));
+            case "getReferenceById", "getById" -> Optional.ofNullable(rows.get((Long) args[0]))
+                    .orElseThrow(() -> new EntityNotFoundException("No entry " + args[0]));
+            case "existsById" -> rows.containsKey((Long) args[0]);
+            case "findAllById" -> {
+                List<PhonebookEntry> found = new ArrayList<>();
+                for (Object id : (Iterable<?>) args[0]) {
+                    PhonebookEntry entry = rows.get((Long) id);
+                    if (entry != null) {
+                        found.add(entry);
+                    }
+                }
+                yield found;
+            }
+            case "deleteById" -> {
+                rows.remove((Long) args[0]);
+                yield null;
+            }
+            case "delete" -> {
+                rows.remove(((PhonebookEntry) args[0]).getId());
+                yield null;
+            }
+            case "deleteAllById" -> {
+                ((Iterable<?>) args[0]).forEach(rows::remove);
+                yield null;
+            }
+            case "deleteAll", "deleteAllInBatch" -> {
+                if (args == null) {
+                    rows.clear();
+                } else {
+                    ((Iterable<?>) args[0]).forEach(entry -> rows.remove(((PhonebookEntry) entry).getId()));
+                }
+                yield null;
+            }
+            case "flush" -> null;
+            case "count" -> (long) rows.size();
+            case "findAll" -> {
+                if (args == null) {
+                    yield new ArrayList<>(rows.values());
+                }
+                if (!(args[0] instanceof Pageable pageable)) {
+                    throw new UnsupportedOperationException("findAll(" + args[0].getClass().getSimpleName() + ")");
+                }
+                List<PhonebookEntry> content = rows.values().stream()
+                        .skip(pageable.getOffset())
+                        .limit(pageable.getPageSize())
+                        .toList();
+                yield new PageImpl<>(content, pageable, rows.size());
+            }
+            case "findByIdGreaterThanOrderByIdAsc" -> rows.tailMap((Long) args[0], false).values().stream()
+                    .limit(((Limit) args[1]).max())
+                    .toList();
+            case "findByNameAndIdAfter" -> {
+                String name = (String) args[0];
+                long id = (Long) args[1];
+                yield rows.values().stream()
+                        .filter(e -> e.getName().compareTo(name) > 0
+                                || (e.getName().equals(name) && e.getId() > id))
+                        .sorted(Comparator.comparing(PhonebookEntry::getName).thenComparing(PhonebookEntry::getId))
+                        .limit((Integer) args[2])
+                        .toList();
+            }
+            default -> throw new UnsupportedOperationException(method);
+        });
+    }
+
+    static PhonebookOutboxRepository outboxRepository() {
+        AtomicLong sequence = new AtomicLong();
+        return proxy(PhonebookOutboxRepository.class, (method, args) -> switch (method) {
+            case "save" -> {
+                // Events are only counted; nothing drains them in a benchmark
+                PhonebookOutboxEvent event = (PhonebookOutboxEvent) args[0];
+                event.setId(sequence.incrementAndGet());
+                yield event;
+            }
+            case "count" -> sequence.get();
+            default -> throw new UnsupportedOperationException(method);
+        });
+    }
+
+    /**
+     * The JDBC operations of PhonebookEntryBatchRepository, applied to an
+     * in-memory entry repository. Lookups by phone scan every entry, where
+     * Postgres uses the unique index; no benchmark measures them.
+     */
+    static PhonebookEntryBatchRepository batchRepository(PhonebookEntryRepository entries) {
+        return new PhonebookEntryBatchRepository() {
+            @Override
+            public synchronized List<PhonebookEntry> insertAll(List<String> phones, List<String> names,
+                    Duration timeout) {
+                List<PhonebookEntry> inserted = new ArrayList<>(phones.size());
+                for (int i = 0; i < phones.size(); i++) {
+                    if (findByPhone(phones.get(i)).isEmpty()) {
+                        inserted.add(entries.save(new PhonebookEntry(null, phones.get(i), names.get(i))));
+                    }
+                }
+                return inserted;
+            }
+
+            @Override
+            public List<PhonebookEntry> findAllById(Collection<Long> ids) {
+                return entries.findAllById(ids);
+            }
+
+            @Override
+            public synchronized Optional<Upserted> upsertByPhone(String phone, String name, Long expectedVersion) {
+                Optional<PhonebookEntry> existing = findByPhone(phone);
+                if (existing.isEmpty()) {
+                    return expectedVersion != null
+                            ? Optional.empty()
+                            : Optional.of(new Upserted(entries.save(new PhonebookEntry(null, phone, name)), true));
+                }
+                return existing
+                        .filter(e -> expectedVersion == null || e.getVersion() == expectedVersion)
+                        .map(e -> new Upserted(entries.save(new PhonebookEntry(e.getId(), phone, name,
+                                e.getVersion() + 1)), false));
+            }
+
+            @Override
+            public synchronized List<Long> deleteAll(List<Long> ids) {
+                List<Long> deleted = entries.findAllById(ids).stream().map(PhonebookEntry::getId).toList();
+                entries.deleteAllById(deleted);
+                return deleted;
+            }
+
+            @Override
+            public synchronized List<Long> deleteByPhonePrefix(String prefix, int limit) {
+                List<Long> deleted = entries.findAll().stream()
+                        .filter(e -> e.getPhone().startsWith(prefix))
+                        .limit(limit)
+                        .map(PhonebookEntry::getId)
+                        .toList();
+                entries.deleteAllById(deleted);
+                return deleted;
+            }
+
+            @Override
+            public void streamAll(EntryRowHandler handler) {
+                try {
+                    for (PhonebookEntry entry : entries.findAll()) {
+                        handler.row(entry.getId(), entry.getPhone(), entry.getName());
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public synchronized Optional<PhonebookEntry> update(long id, String phone, String name,
+                    Long expectedVersion) {
+                return entries.findById(id)
+                        .filter(e -> expectedVersion == null || e.getVersion() == expectedVersion)
+                        .map(e -> entries.save(new PhonebookEntry(id, phone != null ? phone : e.getPhone(),
+                                name != null ? name : e.getName(), e.getVersion() + 1)));
+            }
+
+            private Optional<PhonebookEntry> findByPhone(String phone) {
+                return entries.findAll().stream().filter(e -> e.getPhone().equals(phone)).findFirst();
+            }
+        };
+    }
+
+    /**
+     * Make every call on delegate hold one of the given connections for the
+     * given time, like a pooled JDBC call blocking on the network
+     */
+    static <T> T withLatency(Class<T> type, T delegate, Semaphore connections, long latencyMillis) {
+        Object instance = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+                (proxy, method, args) -> {
+                    if (method.getDeclaringClass() == Object.class) {
+                        return method.invoke(delegate, args);
+                    }
+                    connections.acquire();
+                    try {
+                        Thread.sleep(latencyMillis);
+                        return method.invoke(delegate, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    } finally {
+                        connections.release();
+                    }
+                });
+        return type.cast(instance);
+    }
+
+    private interface Handler {
+        Object invoke(String method, Object[] args);
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        Object instance = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "toString" -> "InMemory" + type.getSimpleName();
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> handler.invoke(method.getName(), args);
+                });
+        return type.cast(instance);
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.phonebook.benchmark;
+
+import com.example.phonebook.util.InputSanitizer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of every public InputSanitizer check. Each distribution is a
+ * fixed, seeded pool of inputs:
+ * valid - what a well-behaved client sends,
+ * mixed - valid after cleanup (extra spaces, case, punctuation, formatting),
+ * invalid - rejected input, so the cost of the exception path shows up too.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class InputSanitizerBenchmark {
+    private static final int POOL_SIZE = 1024;
+
+    private static final String[] FIRST_NAMES = { "john", "mary", "ahmed", "li", "olivia", "noah", "fatima",
+            "jean-luc", "siobhan", "christopher" };
+    private static final String[] LAST_NAMES = { "smith", "o'connor", "el-sayed", "nguyen", "van der berg",
+            "mcdonald", "garcia-lopez", "d'angelo", "johansson", "wu" };
+    private static final String[] DANGEROUS = { "<script>alert(1)</script>", "javascript:void(0)",
+            "1 UNION SELECT password", "'; DROP TABLE users; --", "../../etc/passwd", "..\\windows" };
+
+    @Param({ "valid", "mixed", "invalid" })
+    public String distribution;
+
+    private final InputSanitizer sanitizer = new InputSanitizer();
+
+    private String[] names;
+    private String[] phones;
+    private String[] keywords;
+    private String[] texts;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        names = new String[POOL_SIZE];
+        phones = new String[POOL_SIZE];
+        keywords = new String[POOL_SIZE];
+        texts = new String[POOL_SIZE];
+        for (int i = 0; i < POOL_SIZE; i++) {
+            names[i] = name(random);
+            phones[i] = phone(random);
+            keywords[i] = keyword(random);
+            texts[i] = text(random);
+        }
+    }
+
+    private String name(Random random) {
+        String first = pick(random, FIRST_NAMES);
+        String last = pick(random, LAST_NAMES);
+        return switch (distribution) {
+            case "valid" -> first + " " + last;
+            case "mixed" -> "  " + first.toUpperCase() + "   " + last + "\t";
+            default -> random.nextBoolean() ? first + "42 " + last : "<b>" + first + "</b>";
+        };
+    }
+
+    private String phone(Random random) {
+        String digits = String.format("%08d", random.nextInt(100_000_000));
+        return switch (distribution) {
+            case "valid" -> digits;
+            case "mixed" -> "+" + digits.substring(0, 4) + "-" + digits.substring(4) + " ";
+            default -> digits.substring(random.nextInt(3));
+        };
+    }
+
+    private String keyword(Random random) {
+        return switch (distribution) {
+            case "valid" -> random.nextBoolean() ? pick(random, FIRST_NAMES) : Integer.toString(random.nextInt(10_000));
+            case "mixed" -> " " + pick(random, LAST_NAMES) + " ";
+            default -> random.nextBoolean() ? pick(random, DANGEROUS) : pick(random, FIRST_NAMES) + "@example.com";
+        };
+    }
+
+    private String text(Random random) {
+        String plain = pick(random, FIRST_NAMES) + " " + pick(random, LAST_NAMES) + " called about the invoice";
+        return switch (distribution) {
+            case "valid" -> plain;
+            case "mixed" -> plain + " & said \"hello\" <3 / bye";
+            default -> plain + " " + pick(random, DANGEROUS);
+        };
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private int nextIndex() {
+        next = (next + 1) & (POOL_SIZE - 1);
+        return next;
+    }
+
+    @Benchmark
+    public void sanitizeName(Blackhole blackhole) {
+        try {
+            blackhole.consume(sanitizer.sanitizeName(names[nextIndex()]));
+        } catch (IllegalArgumentException e) {
+            blackhole.consume(e);
+        }
+    }
+
+    @Benchmark
+    public void sanitizePhone(Blackhole blackhole) {
+        try {
+            blackhole.consume(sanitizer.sanitizePhone(phones[nextIndex()]));
+        } catch (IllegalArgumentException e) {
+            blackhole.consume(e);
+        }
+    }
+
+    @Benchmark
+    public void sanitizeSearchKeyword(Blackhole blackhole) {
+        try {
+            blackhole.consume(sanitizer.sanitizeSearchKeyword(keywords[nextIndex()]));
+        } catch (IllegalArgumentException e) {
+            blackhole.consume(e);
+        }
+    }
+
+    @Benchmark
+    public String escapeHtml() {
+        return sanitizer.escapeHtml(texts[nextIndex()]);
+    }
+
+    @Benchmark
+    public boolean containsDangerousContent() {
+        return sanitizer.containsDangerousContent(texts[nextIndex()]);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.phonebook.benchmark;
+
+import com.example.phonebook.controller.PhonebookEntryController;
+import com.example.phonebook.service.PhonebookGroupCommitWriter;
+import com.example.phonebook.util.InputSanitizer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+/**
+ * Full request handling of PhonebookEntryController - argument binding,
+ * sanitization, the service and JSON serialization - through a standalone
+ * MockMvc, without a servlet container, security filters or a database.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PhonebookEntryControllerBenchmark {
+
+    @Param({ "10000" })
+    public int entries;
+
+    private MockMvc mockMvc;
+    private Random random;
+    private long nextPhone;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        PhonebookEntryController controller = new PhonebookEntryController();
+        ReflectionTestUtils.setField(controller, "service", PhonebookFixtures.service(entries));
+        ReflectionTestUtils.setField(controller, "changeTracker", PhonebookFixtures.changeTracker());
+        // Disabled unless app.group-commit.enabled is set
+        ReflectionTestUtils.setField(controller, "groupCommitWriter", new PhonebookGroupCommitWriter());
+        ReflectionTestUtils.setField(controller, "sanitizer", new InputSanitizer());
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setCustomArgumentResolvers(new PageableHandlerMethodArgumentResolver())
+                .build();
+        random = new Random(42);
+        nextPhone = entries;
+    }
+
+    private long randomId() {
+        return 1 + random.nextInt(entries);
+    }
+
+    @Benchmark
+    public MvcResult getEntryById() throws Exception {
+        return mockMvc.perform(get("/api/phonebook/{id}", randomId())).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult getAllEntriesPage() throws Exception {
+        return mockMvc.perform(get("/api/phonebook")
+                .param("page", Integer.toString(random.nextInt(entries / 20)))
+                .param("size", "20")).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult getEntriesAfter() throws Exception {
+        return mockMvc.perform(get("/api/phonebook").param("limit", "20")).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult createEntry() throws Exception {
+        nextPhone++;
+        return mockMvc.perform(post("/api/phonebook")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json(PhonebookFixtures.phone(nextPhone), PhonebookFixtures.name(random))))
+                .andReturn();
+    }
+
+    @Benchmark
+    public MvcResult updateEntry() throws Exception {
+        long id = randomId();
+        return mockMvc.perform(put("/api/phonebook/{id}", id)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json(PhonebookFixtures.phone(id), PhonebookFixtures.name(random))))
+                .andReturn();
+    }
+
+    private static String json(String phone, String name) {
+        return "{\"phone\":\"" + phone + "\",\"name\":\"" + name + "\"}";
+    }
+}
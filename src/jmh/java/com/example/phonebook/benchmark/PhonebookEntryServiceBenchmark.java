@@ -0,0 +1,67 @@
+package com.example.phonebook.benchmark;
+
+import com.example.phonebook.entity.PhonebookEntry;
+import com.example.phonebook.service.PhonebookEntryService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PhonebookEntryService request paths against in-memory repositories. The
+ * data set is rebuilt before each iteration so writes do not let it grow
+ * without bound.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PhonebookEntryServiceBenchmark {
+
+    @Param({ "10000" })
+    public int entries;
+
+    private PhonebookEntryService service;
+    private Random random;
+    private long nextPhone;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        service = PhonebookFixtures.service(entries);
+        random = new Random(42);
+        nextPhone = entries;
+    }
+
+    private long randomId() {
+        return 1 + random.nextInt(entries);
+    }
+
+    @Benchmark
+    public Object getEntryById() {
+        return service.getEntryById(randomId());
+    }
+
+    @Benchmark
+    public Object getAllEntriesPage() {
+        return service.getAllEntries(PageRequest.of(random.nextInt(entries / 20), 20));
+    }
+
+    @Benchmark
+    public Object getEntriesAfterById() {
+        return service.getEntriesAfter(null, 20, PhonebookEntryService.CursorSort.ID);
+    }
+
+    @Benchmark
+    public Object createEntry() {
+        nextPhone++;
+        return service.createEntry(new PhonebookEntry(null, PhonebookFixtures.phone(nextPhone),
+                PhonebookFixtures.name(random)));
+    }
+
+    @Benchmark
+    public Object updateEntry() {
+        long id = randomId();
+        return service.updateEntry(id, new PhonebookEntry(null, PhonebookFixtures.phone(id),
+                PhonebookFixtures.name(random)));
+    }
+}
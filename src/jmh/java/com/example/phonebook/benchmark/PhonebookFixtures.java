@@ -0,0 +1,75 @@
+package com.example.phonebook.benchmark;
+
+import com.example.phonebook.entity.PhonebookEntry;
+import com.example.phonebook.repository.PhonebookEntryRepository;
+import com.example.phonebook.service.PhonebookChangeTracker;
+import com.example.phonebook.service.PhonebookEntryService;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Seeded phonebook data and a PhonebookEntryService wired to in-memory
+ * repositories, shared by the service and controller benchmarks.
+ */
+final class PhonebookFixtures {
+    private static final String[] FIRST_NAMES = { "John", "Mary", "Ahmed", "Li", "Olivia", "Noah", "Fatima",
+            "Jean-Luc", "Siobhan", "Christopher" };
+    private static final String[] LAST_NAMES = { "Smith", "O'Connor", "El-Sayed", "Nguyen", "Van Der Berg",
+            "Mcdonald", "Garcia-Lopez", "D'Angelo", "Johansson", "Wu" };
+
+    private PhonebookFixtures() {
+    }
+
+    static Map<Long, PhonebookEntry> entries(int count) {
+        Random random = new Random(42);
+        Map<Long, PhonebookEntry> entries = new HashMap<>(count * 2);
+        for (long id = 1; id <= count; id++) {
+            entries.put(id, new PhonebookEntry(id, phone(id), name(random)));
+        }
+        return entries;
+    }
+
+    static String phone(long id) {
+        return String.format("%08d", 10_000_000 + id);
+    }
+
+    static String name(Random random) {
+        return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+                + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+    }
+
+    static PhonebookEntryService service(int entryCount) {
+        return service(InMemoryRepositories.entryRepository(entries(entryCount)));
+    }
+
+    static PhonebookEntryService service(PhonebookEntryRepository repository) {
+        PhonebookEntryService service = new PhonebookEntryService();
+        ReflectionTestUtils.setField(service, "repository", repository);
+        ReflectionTestUtils.setField(service, "outboxRepository", InMemoryRepositories.outboxRepository());
+        ReflectionTestUtils.setField(service, "batchRepository", InMemoryRepositories.batchRepository(repository));
+        // No listeners: the benchmark covers the service itself, not the indexes it feeds
+        ApplicationEventPublisher noListeners = event -> {
+        };
+        ReflectionTestUtils.setField(service, "eventPublisher", noListeners);
+        return service;
+    }
+
+    /**
+     * A change tracker fixed at one version, since there is no outbox
+     * sequence to read
+     */
+    static PhonebookChangeTracker changeTracker() {
+        PhonebookChangeTracker.Version version = new PhonebookChangeTracker.Version(1, Instant.now());
+        return new PhonebookChangeTracker() {
+            @Override
+            public Version current() {
+                return version;
+            }
+        };
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.phonebook.benchmark;
+
+import com.example.phonebook.controller.PhonebookEntryController;
+import com.example.phonebook.repository.PhonebookEntryRepository;
+import com.example.phonebook.util.InputSanitizer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * Platform versus virtual request threads under a burst of concurrent
+ * clients. Each client sends one GET /api/phonebook/{id} through the real
+ * controller and service. The repository blocks for dbLatencyMillis while
+ * holding one of poolSize connections, as a Hikari-pooled Postgres call
+ * would. The platform mode has Tomcat's default 200 worker threads; the
+ * virtual mode starts one virtual thread per request.
+ *
+ * One operation is a whole burst, so the score is the time until every
+ * client has its response. When poolSize is below 200 the pool is the limit
+ * in both modes. Above it, platform threads run out first and virtual
+ * threads pull ahead.
+ *
+ * Requests go through MockMvc, submitted to an executor of each kind, not
+ * through Tomcat's connector and its socket handling, so this approximates
+ * the web tier rather than measuring it.
+ *
+ * Virtual threads need a Java 21+ JVM; this class calls them reflectively so
+ * the benchmarks still compile for Java 17. Run with -PjmhJava=21, since the
+ * benchmarks otherwise fork on the Java 17 toolchain.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ThreadModeBenchmark {
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final int ENTRIES = 10_000;
+
+    @Param({ "platform", "virtual" })
+    public String mode;
+
+    @Param({ "1000", "5000", "10000" })
+    public int clients;
+
+    // 40 is the virtual-threads profile's Hikari pool; 400 stands for a
+    // backend with a wider pool, such as the Elasticsearch client's
+    @Param({ "40", "400" })
+    public int poolSize;
+
+    @Param({ "5" })
+    public long dbLatencyMillis;
+
+    private MockMvc mockMvc;
+    private ExecutorService executor;
+
+    @Setup
+    public void setUp() throws Exception {
+        PhonebookEntryRepository repository = InMemoryRepositories.withLatency(PhonebookEntryRepository.class,
+                InMemoryRepositories.entryRepository(PhonebookFixtures.entries(ENTRIES)),
+                new Semaphore(poolSize, true), dbLatencyMillis);
+        PhonebookEntryController controller = new PhonebookEntryController();
+        ReflectionTestUtils.setField(controller, "service", PhonebookFixtures.service(repository));
+        ReflectionTestUtils.setField(controller, "sanitizer", new InputSanitizer());
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+
+        executor = "virtual".equals(mode)
+                ? (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null)
+                : Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public int burst() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(clients);
+        AtomicInteger ok = new AtomicInteger();
+        for (int i = 0; i < clients; i++) {
+            executor.execute(() -> {
+                try {
+                    long id = 1 + ThreadLocalRandom.current().nextInt(ENTRIES);
+                    if (mockMvc.perform(get("/api/phonebook/{id}", id)).andReturn().getResponse().getStatus() == 200) {
+                        ok.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    // Counted as a failed request
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        if (ok.get() != clients) {
+            throw new IllegalStateException((clients - ok.get()) + " of " + clients + " requests failed");
+        }
+        return ok.get();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.phonebook.config;
+
+import com.example.phonebook.entity.PhonebookEntry;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    public static final String ENTRY_CACHE = "phonebookEntries";
+
+    @Bean
+    public CacheManager cacheManager(
+            @Value("${app.cache.entries.max-size:10000}") long maxSize,
+            @Value("${app.cache.entries.ttl:10m}") Duration ttl) {
+        // Caches are declared up front so their hit/miss/eviction metrics are registered at startup
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(ENTRY_CACHE) {
+            @Override
+            protected Cache adaptCaffeineCache(String name,
+                    com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+                return new VersionedCaffeineCache(name, cache, isAllowNullValues());
+            }
+        };
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats());
+        cacheManager.setAllowNullValues(false);
+        return cacheManager;
+    }
+
+    /**
+     * Never replaces a cached entry with an older version of it, so a reader
+     * that loaded a row just before a write committed cannot put the old row
+     * over the one cached after the commit.
+     */
+    static class VersionedCaffeineCache extends CaffeineCache {
+        VersionedCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache,
+                boolean allowNullValues) {
+            super(name, cache, allowNullValues);
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            if (value instanceof PhonebookEntry entry) {
+                getNativeCache().asMap().merge(key, entry, (cached, loaded) ->
+                        cached instanceof PhonebookEntry current && current.getVersion() > entry.getVersion()
+                                ? current : loaded);
+            } else {
+                super.put(key, value);
+            }
+        }
+    }
+}
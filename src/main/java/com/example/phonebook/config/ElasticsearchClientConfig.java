@@ -0,0 +1,37 @@
+package com.example.phonebook.config;
+
+import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.elasticsearch.client.RestClientBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.elasticsearch.RestClientBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Sizes the Elasticsearch client's connection pool. The defaults match the
+ * client's own (30 in total, 10 per node); the virtual-threads profile raises
+ * them so searches are not queued behind a handful of connections.
+ */
+@Configuration
+public class ElasticsearchClientConfig {
+    @Value("${app.elasticsearch.max-connections:30}")
+    private int maxConnections;
+
+    @Value("${app.elasticsearch.max-connections-per-route:10}")
+    private int maxConnectionsPerRoute;
+
+    @Bean
+    public RestClientBuilderCustomizer connectionPoolCustomizer() {
+        return new RestClientBuilderCustomizer() {
+            @Override
+            public void customize(RestClientBuilder builder) {
+            }
+
+            @Override
+            public void customize(HttpAsyncClientBuilder builder) {
+                builder.setMaxConnTotal(maxConnections)
+                        .setMaxConnPerRoute(maxConnectionsPerRoute);
+            }
+        };
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.phonebook.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+
+/**
+ * In-process Caffeine JCache regions for Hibernate's second-level cache.
+ * Regions are created here rather than from a config file so their size and
+ * TTL come from application properties; Hibernate fails on any other region.
+ */
+@Configuration
+public class HibernateCacheConfig {
+    public static final String ENTRY_REGION = "phonebookEntry";
+    public static final String ENTRY_PAGES_REGION = "phonebookEntryPages";
+
+    private static final URI CACHE_MANAGER_URI = URI.create("phonebook-hibernate");
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(
+            @Value("${app.cache.hibernate.entries.max-size:100000}") long entriesMaxSize,
+            @Value("${app.cache.hibernate.pages.max-size:10000}") long pagesMaxSize,
+            @Value("${app.cache.hibernate.ttl:10m}") Duration ttl) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(CACHE_MANAGER_URI, getClass().getClassLoader());
+        createRegion(cacheManager, ENTRY_REGION, regionConfiguration(entriesMaxSize, ttl));
+        createRegion(cacheManager, ENTRY_PAGES_REGION, regionConfiguration(pagesMaxSize, ttl));
+        createRegion(cacheManager, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                regionConfiguration(pagesMaxSize, ttl));
+        // Table timestamps decide whether a cached query result is still valid,
+        // so they must outlive every result and are never evicted
+        CaffeineConfiguration<Object, Object> timestamps = new CaffeineConfiguration<>();
+        timestamps.setStatisticsEnabled(true);
+        createRegion(cacheManager, RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, timestamps);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    private static CaffeineConfiguration<Object, Object> regionConfiguration(long maxSize, Duration ttl) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maxSize));
+        configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        configuration.setStatisticsEnabled(true);
+        return configuration;
+    }
+
+    private static void createRegion(CacheManager cacheManager, String name,
+            CaffeineConfiguration<Object, Object> configuration) {
+        // The manager is shared by every application context in the JVM, as in tests
+        if (cacheManager.getCache(name) == null) {
+            cacheManager.createCache(name, configuration);
+        }
+    }
+}
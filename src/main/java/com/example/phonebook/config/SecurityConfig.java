@@ -2,6 +2,7 @@ package com.example.phonebook.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -20,7 +21,11 @@ public class SecurityConfig {
         http
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/phonebook/new", "/phonebook/save").hasRole("ADMIN")
+                        .requestMatchers("/api/admin/**").hasRole("ADMIN")
                         .anyRequest().permitAll())
+                // Admin API clients authenticate per request with HTTP Basic
+                .csrf(csrf -> csrf.ignoringRequestMatchers("/api/admin/**"))
+                .httpBasic(Customizer.withDefaults())
                 .formLogin(form -> form.permitAll())
                 .logout(logout -> logout.permitAll());
         return http.build();
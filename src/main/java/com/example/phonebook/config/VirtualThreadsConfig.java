@@ -0,0 +1,28 @@
+package com.example.phonebook.config;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Reports whether spring.threads.virtual.enabled actually took effect. Spring
+ * Boot silently ignores it on runtimes older than Java 21.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadsConfig {
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadsConfig.class);
+
+    @PostConstruct
+    void checkRuntime() {
+        int feature = Runtime.version().feature();
+        if (feature < 21) {
+            log.warn("spring.threads.virtual.enabled is set but the runtime is Java {}; "
+                    + "requests are served on platform threads. Use java.runtime.version=21 or later.", feature);
+        } else {
+            log.info("Serving requests on virtual threads (Java {})", feature);
+        }
+    }
+}
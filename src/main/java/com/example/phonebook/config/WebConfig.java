@@ -1,12 +1,19 @@
 package com.example.phonebook.config;
 
+import com.example.phonebook.metrics.RenderTimingInterceptor;
+import com.example.phonebook.metrics.StageMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
 public class WebConfig {
+    @Autowired
+    private StageMetrics stageMetrics;
+
     @Bean
     public WebMvcConfigurer corsConfigurer() {
         return new WebMvcConfigurer() {
@@ -17,8 +24,15 @@ public class WebConfig {
                                 "http://localhost", // plain localhost
                                 "http://127.0.0.1" // 127.0.0.1
                 )
-                        .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
-                        .allowedHeaders("*");
+                        .allowedMethods("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS")
+                        .allowedHeaders("*")
+                        // Lets browser clients read the version to send back in If-Match
+                        .exposedHeaders("ETag");
+            }
+
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(new RenderTimingInterceptor(stageMetrics));
             }
         };
     }
@@ -1,16 +1,51 @@
 package com.example.phonebook.controller;
 
+import com.example.phonebook.dto.BulkDeleteRequest;
+import com.example.phonebook.dto.BulkDeleteResult;
+import com.example.phonebook.dto.BulkImportResult;
+import com.example.phonebook.dto.CursorPage;
+import com.example.phonebook.dto.PhonebookEntryPatch;
 import com.example.phonebook.entity.PhonebookEntry;
+import com.example.phonebook.repository.PhonebookEntryBatchRepository;
+import com.example.phonebook.service.PhonebookBulkImportService;
+import com.example.phonebook.service.PhonebookChangeTracker;
 import com.example.phonebook.service.PhonebookEntryService;
+import com.example.phonebook.service.PhonebookExportService;
+import com.example.phonebook.service.PhonebookGroupCommitWriter;
 import com.example.phonebook.util.InputSanitizer;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/phonebook")
@@ -18,9 +53,29 @@ public class PhonebookEntryController {
     @Autowired
     private PhonebookEntryService service;
 
+    @Autowired
+    private PhonebookBulkImportService bulkImportService;
+
+    @Autowired
+    private PhonebookExportService exportService;
+
+    @Autowired
+    private PhonebookChangeTracker changeTracker;
+
+    @Autowired
+    private PhonebookGroupCommitWriter groupCommitWriter;
+
     @Autowired
     private InputSanitizer sanitizer;
 
+    static final String TEXT_CSV_VALUE = "text/csv";
+
+    static final MediaType TEXT_CSV = MediaType.parseMediaType(TEXT_CSV_VALUE);
+
+    static final int MAX_CURSOR_PAGE_SIZE = 1000;
+
+    static final int MAX_MGET_SIZE = 5000;
+
     @PostMapping
     public ResponseEntity<?> createEntry(@Valid @RequestBody PhonebookEntry entry) {
         try {
@@ -32,18 +87,162 @@ public class PhonebookEntryController {
                 entry.setPhone(sanitizer.sanitizePhone(entry.getPhone()));
             }
 
-            PhonebookEntry saved = service.createEntry(entry);
+            // Concurrent creates share one INSERT when group commit is enabled
+            PhonebookEntry saved = groupCommitWriter.isEnabled()
+                    ? groupCommitWriter.create(entry.getPhone(), entry.getName())
+                    : service.createEntry(entry);
             return ResponseEntity.ok(saved);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body("Validation error: " + e.getMessage());
+        } catch (DataIntegrityViolationException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Phone number already exists");
+        }
+    }
+
+    @PostMapping(value = "/bulk", consumes = { TEXT_CSV_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public ResponseEntity<BulkImportResult> bulkImport(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            HttpServletRequest request) throws IOException {
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        PhonebookBulkImportService.Format format = mediaType.isCompatibleWith(MediaType.APPLICATION_NDJSON)
+                ? PhonebookBulkImportService.Format.NDJSON
+                : PhonebookBulkImportService.Format.CSV;
+        Charset charset = mediaType.getCharset() != null ? mediaType.getCharset() : StandardCharsets.UTF_8;
+
+        // Read straight from the request stream so the payload is never held in memory
+        try (Reader reader = new InputStreamReader(request.getInputStream(), charset)) {
+            return ResponseEntity.ok(bulkImportService.importRows(reader, format));
+        }
+    }
+
+    @PostMapping("/bulk-delete")
+    public ResponseEntity<?> bulkDelete(@RequestBody BulkDeleteRequest request) {
+        boolean byIds = request.getIds() != null;
+        boolean byPrefix = request.getPhonePrefix() != null;
+        if (byIds == byPrefix) {
+            return ResponseEntity.badRequest().body("Validation error: give either ids or phonePrefix");
+        }
+
+        try {
+            BulkDeleteResult result = byIds
+                    ? service.deleteEntries(request.getIds())
+                    : service.deleteEntriesByPhonePrefix(request.getPhonePrefix().trim());
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Validation error: " + e.getMessage());
+        }
+    }
+
+    @GetMapping(value = "/export", produces = { TEXT_CSV_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        MediaType mediaType = negotiateExportType(accept);
+        PhonebookExportService.Format format = MediaType.APPLICATION_NDJSON.equalsTypeAndSubtype(mediaType)
+                ? PhonebookExportService.Format.NDJSON
+                : PhonebookExportService.Format.CSV;
+        boolean gzip = acceptsGzip(acceptEncoding);
+
+        // Runs after the handler returns, writing rows as the cursor yields them
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                GZIPOutputStream compressed = new GZIPOutputStream(out, 65536);
+                exportService.export(compressed, format);
+                compressed.finish();
+            } else {
+                exportService.export(out, format);
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(new MediaType(mediaType, StandardCharsets.UTF_8))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(format == PhonebookExportService.Format.NDJSON ? "phonebook.ndjson" : "phonebook.csv")
+                        .build().toString())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
         }
+        return response.body(body);
+    }
+
+    /**
+     * The first export format the client accepts, by quality; CSV when it
+     * accepts anything
+     */
+    static MediaType negotiateExportType(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return TEXT_CSV;
+        }
+        List<MediaType> accepted = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        accepted.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType type : accepted) {
+            if (type.getQualityValue() > 0) {
+                for (MediaType producible : List.of(TEXT_CSV, MediaType.APPLICATION_NDJSON)) {
+                    if (type.includes(producible)) {
+                        return producible;
+                    }
+                }
+            }
+        }
+        return TEXT_CSV;
+    }
+
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
     }
 
     @GetMapping
-    public Page<PhonebookEntry> getAllEntries(Pageable pageable) {
+    public Page<PhonebookEntry> getAllEntries(Pageable pageable, WebRequest webRequest,
+            HttpServletResponse response) {
+        // Answer 304 before touching the repository when nothing has changed
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().getHeaderValue());
+        PhonebookChangeTracker.Version version = changeTracker.current();
+        if (webRequest.checkNotModified(version.etag(), version.lastModified().toEpochMilli())) {
+            return null;
+        }
         return service.getAllEntries(pageable);
     }
 
+    @GetMapping(params = "limit")
+    public ResponseEntity<?> getEntriesAfter(
+            @RequestParam String limit,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) String sort) {
+        try {
+            Integer sanitizedLimit = sanitizer.sanitizeInteger(limit);
+            if (sanitizedLimit == null || sanitizedLimit < 1 || sanitizedLimit > MAX_CURSOR_PAGE_SIZE) {
+                return ResponseEntity.badRequest()
+                        .body("Validation error: limit must be between 1 and " + MAX_CURSOR_PAGE_SIZE);
+            }
+
+            PhonebookEntryService.CursorSort cursorSort = null;
+            if (sort != null) {
+                if ("id".equalsIgnoreCase(sort)) {
+                    cursorSort = PhonebookEntryService.CursorSort.ID;
+                } else if ("name".equalsIgnoreCase(sort)) {
+                    cursorSort = PhonebookEntryService.CursorSort.NAME;
+                } else {
+                    return ResponseEntity.badRequest().body("Validation error: sort must be 'id' or 'name'");
+                }
+            }
+
+            String cursor = after != null && !after.isBlank() ? after.trim() : null;
+            CursorPage<PhonebookEntry> page = service.getEntriesAfter(cursor, sanitizedLimit, cursorSort);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Validation error: " + e.getMessage());
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<PhonebookEntry> getEntryById(@PathVariable String id) {
         try {
@@ -52,14 +251,28 @@ public class PhonebookEntryController {
                 return ResponseEntity.badRequest().build();
             }
 
+            // Served from the entry cache; a matching If-None-Match turns this into a 304
             return service.getEntryById(sanitizedId)
-                    .map(ResponseEntity::ok)
+                    .map(entry -> ResponseEntity.ok().cacheControl(CacheControl.noCache()).eTag(etag(entry)).body(entry))
                     .orElse(ResponseEntity.notFound().build());
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
+    @PostMapping("/_mget")
+    public ResponseEntity<?> multiGet(@RequestBody List<Long> ids) {
+        if (ids.size() > MAX_MGET_SIZE) {
+            return ResponseEntity.badRequest()
+                    .body("Validation error: at most " + MAX_MGET_SIZE + " ids per request");
+        }
+        if (ids.contains(null)) {
+            return ResponseEntity.badRequest().body("Validation error: ids must not be null");
+        }
+
+        return ResponseEntity.ok(service.getEntriesByIds(ids));
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<?> updateEntry(@PathVariable String id, @Valid @RequestBody PhonebookEntry entry) {
         try {
@@ -68,10 +281,6 @@ public class PhonebookEntryController {
                 return ResponseEntity.badRequest().body("Invalid entry ID");
             }
 
-            if (!service.getEntryById(sanitizedId).isPresent()) {
-                return ResponseEntity.notFound().build();
-            }
-
             // Sanitize entry data
             if (entry.getName() != null) {
                 entry.setName(sanitizer.sanitizeName(entry.getName()));
@@ -80,8 +289,13 @@ public class PhonebookEntryController {
                 entry.setPhone(sanitizer.sanitizePhone(entry.getPhone()));
             }
 
+            // A missing entry surfaces from the UPDATE itself, without a SELECT first
             PhonebookEntry updated = service.updateEntry(sanitizedId, entry);
-            return ResponseEntity.ok(updated);
+            return ResponseEntity.ok().eTag(etag(updated)).body(updated);
+        } catch (EmptyResultDataAccessException e) {
+            return ResponseEntity.notFound().build();
+        } catch (DuplicateKeyException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Phone number already exists");
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body("Validation error: " + e.getMessage());
         } catch (Exception e) {
@@ -89,6 +303,87 @@ public class PhonebookEntryController {
         }
     }
 
+    @PatchMapping("/{id}")
+    public ResponseEntity<?> patchEntry(@PathVariable String id, @RequestBody PhonebookEntryPatch patch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        try {
+            Long sanitizedId = sanitizer.sanitizeLong(id);
+            if (sanitizedId == null) {
+                return ResponseEntity.badRequest().body("Invalid entry ID");
+            }
+            if (patch.getPhone() == null && patch.getName() == null) {
+                return ResponseEntity.badRequest().body("Validation error: phone or name is required");
+            }
+
+            String phone = sanitizer.sanitizePhone(patch.getPhone());
+            String name = sanitizer.sanitizeName(patch.getName());
+            Optional<PhonebookEntry> patched = service.patchEntry(sanitizedId, phone, name, parseIfMatch(ifMatch));
+            if (patched.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok().eTag(etag(patched.get())).body(patched.get());
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(e.getMessage());
+        } catch (DuplicateKeyException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Phone number already exists");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Validation error: " + e.getMessage());
+        }
+    }
+
+    @PutMapping("/by-phone/{phone}")
+    public ResponseEntity<?> upsertByPhone(@PathVariable String phone, @RequestBody PhonebookEntryPatch body,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        try {
+            String sanitizedPhone = sanitizer.sanitizePhone(phone);
+            if (body.getPhone() != null && !sanitizedPhone.equals(sanitizer.sanitizePhone(body.getPhone()))) {
+                return ResponseEntity.badRequest().body("Validation error: phone does not match the URL");
+            }
+            String name = sanitizer.sanitizeName(body.getName());
+            if (name == null) {
+                return ResponseEntity.badRequest().body("Validation error: Name must not be null or empty");
+            }
+
+            PhonebookEntryBatchRepository.Upserted upserted = service.upsertEntry(sanitizedPhone, name,
+                    parseIfMatch(ifMatch));
+            PhonebookEntry entry = upserted.entry();
+            ResponseEntity.BodyBuilder response = upserted.created()
+                    ? ResponseEntity.created(URI.create("/api/phonebook/" + entry.getId()))
+                    : ResponseEntity.ok();
+            return response.eTag(etag(entry)).body(entry);
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Validation error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Strong ETag of one entry: its version
+     */
+    static String etag(PhonebookEntry entry) {
+        return "\"" + entry.getVersion() + "\"";
+    }
+
+    /**
+     * The version a conditional write expects, or null for an unconditional
+     * one (no If-Match, or If-Match: *). Weak and multiple tags are refused.
+     */
+    static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            throw new IllegalArgumentException("If-Match must be a single strong ETag");
+        }
+        try {
+            return Long.parseLong(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("If-Match must be a single strong ETag");
+        }
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<?> deleteEntry(@PathVariable String id) {
         try {
@@ -97,11 +392,9 @@ public class PhonebookEntryController {
                 return ResponseEntity.badRequest().body("Invalid entry ID");
             }
 
-            if (!service.getEntryById(sanitizedId).isPresent()) {
+            if (!service.deleteEntry(sanitizedId)) {
                 return ResponseEntity.notFound().build();
             }
-
-            service.deleteEntry(sanitizedId);
             return ResponseEntity.noContent().build();
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Invalid entry ID");
@@ -1,19 +1,30 @@
 package com.example.phonebook.controller;
 
+import com.example.phonebook.dto.CursorPage;
 import com.example.phonebook.elasticsearch.PhonebookEntryDocument;
 import com.example.phonebook.elasticsearch.PhonebookEntrySearchService;
 import com.example.phonebook.entity.PhonebookEntry;
+import com.example.phonebook.service.PhonebookChangeTracker;
 import com.example.phonebook.service.PhonebookEntryService;
+import com.example.phonebook.service.PhonebookGroupCommitWriter;
 import com.example.phonebook.util.InputSanitizer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import org.springframework.web.servlet.support.RequestContextUtils;
 import org.springframework.security.access.prepost.PreAuthorize;
 
 @Controller
@@ -25,6 +36,12 @@ public class PhonebookWebController {
     @Autowired
     private PhonebookEntrySearchService phonebookEntrySearchService;
 
+    @Autowired
+    private PhonebookChangeTracker changeTracker;
+
+    @Autowired
+    private PhonebookGroupCommitWriter groupCommitWriter;
+
     @Autowired
     private InputSanitizer sanitizer;
 
@@ -36,7 +53,20 @@ public class PhonebookWebController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "5") int size,
             @RequestParam(required = false) String keyword,
-            Model model) {
+            @RequestParam(required = false) String cursor,
+            Model model, WebRequest webRequest, HttpServletRequest request, HttpServletResponse response) {
+
+        // Only the plain listing is conditional: search results come from
+        // Elasticsearch, which trails the database, and flash messages must
+        // not be replayed from the browser cache. The page differs for admins.
+        if ((keyword == null || keyword.isBlank()) && RequestContextUtils.getInputFlashMap(request) == null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+            PhonebookChangeTracker.Version version = changeTracker.current();
+            String etag = "\"" + version.value() + (request.isUserInRole("ADMIN") ? "-admin" : "") + "\"";
+            if (webRequest.checkNotModified(etag, version.lastModified().toEpochMilli())) {
+                return null;
+            }
+        }
 
         try {
             // Sanitize inputs
@@ -51,7 +81,14 @@ public class PhonebookWebController {
 
             Pageable pageable = PageRequest.of(sanitizedPage, sanitizedSize);
 
-            if (sanitizedKeyword != null && !sanitizedKeyword.isEmpty()) {
+            if (sanitizedKeyword != null && !sanitizedKeyword.isEmpty() && cursor != null) {
+                // Cursor mode: each page costs the same however far the user scrolls
+                CursorPage<PhonebookEntryDocument> cursorPage = phonebookEntrySearchService.searchAfter(
+                        sanitizedKeyword, cursor.isBlank() ? null : cursor.trim(), sanitizedSize, false);
+                model.addAttribute("entryPage", new PageImpl<>(cursorPage.getContent()));
+                model.addAttribute("cursorMode", true);
+                model.addAttribute("nextCursor", cursorPage.getNextCursor());
+            } else if (sanitizedKeyword != null && !sanitizedKeyword.isEmpty()) {
                 Page<PhonebookEntryDocument> entryPage = phonebookEntrySearchService
                         .searchByNameOrPhone(sanitizedKeyword, sanitizedPage, sanitizedSize);
                 model.addAttribute("entryPage", entryPage);
@@ -101,11 +138,18 @@ public class PhonebookWebController {
                 entry.setPhone(sanitizer.sanitizePhone(entry.getPhone()));
             }
 
-            service.createEntry(entry);
+            if (groupCommitWriter.isEnabled()) {
+                groupCommitWriter.create(entry.getPhone(), entry.getName());
+            } else {
+                service.createEntry(entry);
+            }
             redirectAttributes.addFlashAttribute("success", "Entry saved successfully!");
         } catch (IllegalArgumentException e) {
             redirectAttributes.addFlashAttribute("error", e.getMessage());
             return "redirect:/phonebook/new";
+        } catch (DataIntegrityViolationException e) {
+            redirectAttributes.addFlashAttribute("error", "Phone number already exists");
+            return "redirect:/phonebook/new";
         }
 
         return "redirect:/phonebook";
@@ -0,0 +1,19 @@
+package com.example.phonebook.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Body of POST /api/phonebook/bulk-delete: either a list of ids or a phone
+ * prefix, not both
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkDeleteRequest {
+    private List<Long> ids;
+    private String phonePrefix;
+}
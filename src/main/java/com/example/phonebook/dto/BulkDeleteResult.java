@@ -0,0 +1,13 @@
+package com.example.phonebook.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkDeleteResult {
+    private long rowsDeleted;
+    private long elapsedMillis;
+}
@@ -0,0 +1,19 @@
+package com.example.phonebook.dto;
+
+import com.example.phonebook.entity.PhonebookEntry;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One item of a POST /api/phonebook/_mget answer. entry is null when the id
+ * is not in the phonebook.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MultiGetResult {
+    private long id;
+    private boolean found;
+    private PhonebookEntry entry;
+}
@@ -0,0 +1,19 @@
+package com.example.phonebook.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Answer to a reverse phone lookup. id and name are null when the number is
+ * not in the phonebook.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PhoneLookupResult {
+    private String phone;
+    private boolean found;
+    private Long id;
+    private String name;
+}
@@ -0,0 +1,17 @@
+package com.example.phonebook.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Body of PATCH /api/phonebook/{id} and PUT /api/phonebook/by-phone/{phone}.
+ * Fields left null are not changed.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PhonebookEntryPatch {
+    private String phone;
+    private String name;
+}
@@ -0,0 +1,30 @@
+package com.example.phonebook.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Snapshot of the most recent full reindex. Rates and ETA are computed from
+ * the documents loaded so far; etaSeconds is null until the rate is known.
+ */
+@Data
+@NoArgsConstructor
+public class ReindexStatus {
+    public enum State {
+        IDLE, RUNNING, COMPLETED, FAILED
+    }
+
+    private State state = State.IDLE;
+    private String targetIndex;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private long totalEntries;
+    private long indexedEntries;
+    private int slicesTotal;
+    private int slicesCompleted;
+    private double docsPerSecond;
+    private Long etaSeconds;
+    private String error;
+}
@@ -0,0 +1,232 @@
+package com.example.phonebook.elasticsearch;
+
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.query_dsl.Intervals;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.search.FieldSuggester;
+import co.elastic.clients.elasticsearch.core.search.Suggester;
+import com.example.phonebook.dto.CursorPage;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.phonebook.search.PhonebookSearchEngine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.query.Query.PointInTime;
+import org.springframework.data.elasticsearch.core.suggest.response.CompletionSuggestion;
+import org.springframework.data.elasticsearch.core.suggest.response.Suggest;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+@ConditionalOnProperty(name = "app.search.engine", havingValue = "elasticsearch", matchIfMissing = true)
+public class ElasticsearchSearchEngine implements PhonebookSearchEngine {
+    private static final String SUGGESTION = "entries";
+
+    // Shortest keyword matched anywhere in a phone, the length of one phone.infix trigram
+    static final int MIN_INFIX_DIGITS = 3;
+
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+
+    // How long a point in time stays open between two pages of a scan
+    @Value("${app.search.point-in-time-keep-alive:1m}")
+    private Duration pointInTimeKeepAlive;
+
+    @Override
+    public Page<PhonebookEntryDocument> search(String keyword, Pageable pageable) {
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(nameOrPhoneQuery(unescape(keyword)))
+                .withPageable(pageable)
+                .build();
+        SearchHits<PhonebookEntryDocument> hits = elasticsearchOperations.search(query, PhonebookEntryDocument.class);
+        return new PageImpl<>(hits.getSearchHits().stream().map(SearchHit::getContent).toList(), pageable,
+                hits.getTotalHits());
+    }
+
+    /**
+     * search_after on a sort by score, then id, so every page is a top-N
+     * query however deep it is, with no index.max_result_window limit. The
+     * cursor holds the sort values of the last hit and, for a point-in-time
+     * scan, the point in time, which is closed after the last page.
+     */
+    @Override
+    public CursorPage<PhonebookEntryDocument> searchAfter(String keyword, String cursor, int limit,
+            boolean pointInTime) {
+        Cursor position = cursor != null ? Cursor.decode(cursor) : null;
+        String pointInTimeId = position != null ? position.pointInTimeId()
+                : pointInTime ? elasticsearchOperations.openPointInTime(
+                        elasticsearchOperations.getIndexCoordinatesFor(PhonebookEntryDocument.class),
+                        pointInTimeKeepAlive)
+                : null;
+
+        // One extra hit tells whether there is a next page
+        NativeQuery.NativeQueryBuilder builder = NativeQuery.builder()
+                .withQuery(nameOrPhoneQuery(unescape(keyword)))
+                .withSort(sort -> sort.score(score -> score.order(SortOrder.Desc)))
+                .withSort(sort -> sort.field(field -> field.field("id").order(SortOrder.Asc)))
+                .withMaxResults(limit + 1)
+                .withTrackTotalHits(false);
+        if (position != null) {
+            builder.withSearchAfter(position.sortValues());
+        }
+        if (pointInTimeId != null) {
+            builder.withPointInTime(new PointInTime(pointInTimeId, pointInTimeKeepAlive));
+        }
+        SearchHits<PhonebookEntryDocument> hits = elasticsearchOperations.search(builder.build(),
+                PhonebookEntryDocument.class);
+        // Elasticsearch may hand back a new id for the same point in time
+        if (pointInTimeId != null && hits.getPointInTimeId() != null) {
+            pointInTimeId = hits.getPointInTimeId();
+        }
+
+        List<SearchHit<PhonebookEntryDocument>> page = hits.getSearchHits();
+        if (page.size() <= limit) {
+            if (pointInTimeId != null) {
+                elasticsearchOperations.closePointInTime(pointInTimeId);
+            }
+            return new CursorPage<>(page.stream().map(SearchHit::getContent).toList(), null);
+        }
+        page = page.subList(0, limit);
+        SearchHit<PhonebookEntryDocument> last = page.get(limit - 1);
+        // As returned: with a point in time, Elasticsearch appends a _shard_doc tiebreaker
+        String next = new Cursor(last.getSortValues(), pointInTimeId).encode();
+        return new CursorPage<>(page.stream().map(SearchHit::getContent).toList(), next);
+    }
+
+    /**
+     * Completion suggester on the suggest field. Its in-memory FST answers
+     * prefixes without scoring or counting hits, so no search hits are
+     * requested.
+     */
+    @Override
+    public List<PhonebookEntryDocument> suggest(String prefix, int limit) {
+        NativeQuery query = NativeQuery.builder()
+                .withSuggester(Suggester.of(suggester -> suggester.suggesters(SUGGESTION, FieldSuggester.of(field -> field
+                        .prefix(prefix)
+                        .completion(completion -> completion.field(PhonebookEntryDocument.SUGGEST_FIELD).size(limit))))))
+                .withMaxResults(0)
+                .withTrackTotalHits(false)
+                .build();
+        SearchHits<PhonebookEntryDocument> hits = elasticsearchOperations.search(query, PhonebookEntryDocument.class);
+
+        Suggest suggest = hits.getSuggest();
+        if (suggest == null || !(suggest.getSuggestion(SUGGESTION) instanceof CompletionSuggestion<?> suggestion)) {
+            return List.of();
+        }
+        List<PhonebookEntryDocument> documents = new ArrayList<>(limit);
+        for (CompletionSuggestion.Entry<?> entry : suggestion.getEntries()) {
+            for (CompletionSuggestion.Entry.Option<?> option : entry.getOptions()) {
+                SearchHit<?> hit = option.getSearchHit();
+                if (hit != null && hit.getContent() instanceof PhonebookEntryDocument document) {
+                    documents.add(document);
+                }
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * Names match as match_phrase_prefix does: the words before the last one
+     * in order on name.words, and the last one as a prefix. That prefix is a
+     * single term among the edge n-grams of name, not an expansion. Phones
+     * match by prefix, and a number of at least three digits also anywhere
+     * in the phone.
+     */
+    static Query nameOrPhoneQuery(String keyword) {
+        String text = keyword.strip();
+        return Query.of(query -> query.bool(bool -> {
+            bool.should(namePhrasePrefix(text))
+                    .should(should -> should.prefix(prefix -> prefix.field("phone").value(text)));
+            if (text.length() >= MIN_INFIX_DIGITS && text.chars().allMatch(Character::isDigit)) {
+                bool.should(should -> should.matchPhrase(match -> match.field("phone.infix").query(text)));
+            }
+            return bool;
+        }));
+    }
+
+    private static Query namePhrasePrefix(String text) {
+        int split = text.length() - 1;
+        while (split >= 0 && !Character.isWhitespace(text.charAt(split))) {
+            split--;
+        }
+        String last = text.substring(split + 1);
+        if (split < 0) {
+            return Query.of(query -> query.matchPhrase(match -> match.field("name").query(last)));
+        }
+        String leading = text.substring(0, split).strip();
+        return Query.of(query -> query.intervals(intervals -> intervals
+                .field("name.words")
+                .allOf(all -> all
+                        .ordered(true)
+                        .maxGaps(0)
+                        .intervals(
+                                Intervals.of(words -> words.match(match -> match
+                                        .query(leading).ordered(true).maxGaps(0))),
+                                Intervals.of(prefix -> prefix.match(match -> match
+                                        .query(last).ordered(true).maxGaps(0).useField("name")))))));
+    }
+
+    // The name analyzers keep apostrophes inside words, as in o'connor
+    private static String unescape(String keyword) {
+        return keyword.replace("&#x27;", "'");
+    }
+
+    /**
+     * Sort values of the last hit on a page, and the point in time of the
+     * scan, serialized as URL-safe Base64 of a JSON object
+     */
+    record Cursor(List<Object> sortValues, String pointInTimeId) {
+        private static final ObjectMapper JSON = new ObjectMapper();
+
+        String encode() {
+            Map<String, Object> raw = new LinkedHashMap<>();
+            raw.put("s", sortValues);
+            if (pointInTimeId != null) {
+                raw.put("p", pointInTimeId);
+            }
+            try {
+                return Base64.getUrlEncoder().withoutPadding().encodeToString(JSON.writeValueAsBytes(raw));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Cannot encode cursor", e);
+            }
+        }
+
+        static Cursor decode(String cursor) {
+            try {
+                JsonNode raw = JSON.readTree(Base64.getUrlDecoder().decode(cursor));
+                JsonNode values = raw != null ? raw.get("s") : null;
+                JsonNode pointInTimeId = raw != null ? raw.get("p") : null;
+                if (values != null && values.isArray() && !values.isEmpty()
+                        && (pointInTimeId == null || pointInTimeId.isTextual())) {
+                    List<Object> sortValues = new ArrayList<>(values.size());
+                    for (JsonNode value : values) {
+                        if (!value.isTextual() && !value.isNumber()) {
+                            throw new IllegalArgumentException("Invalid cursor");
+                        }
+                        sortValues.add(value.isTextual() ? value.asText() : value.numberValue());
+                    }
+                    return new Cursor(sortValues, pointInTimeId != null ? pointInTimeId.asText() : null);
+                }
+            } catch (IllegalArgumentException | IOException e) {
+                // Malformed Base64 or JSON, reported below
+            }
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -1,18 +1,131 @@
 package com.example.phonebook.elasticsearch;
 
+import com.example.phonebook.entity.PhonebookEntry;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.elasticsearch.annotations.CompletionField;
 import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Dynamic;
+import org.springframework.data.elasticsearch.annotations.Field;
+import org.springframework.data.elasticsearch.annotations.FieldType;
+import org.springframework.data.elasticsearch.annotations.InnerField;
+import org.springframework.data.elasticsearch.annotations.MultiField;
+import org.springframework.data.elasticsearch.annotations.Setting;
+import org.springframework.data.elasticsearch.annotations.WriteTypeHint;
+import org.springframework.data.elasticsearch.core.suggest.Completion;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
 
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Document(indexName = "phonebook")
+@Document(indexName = PhonebookEntryDocument.INDEX, writeTypeHints = WriteTypeHint.FALSE, dynamic = Dynamic.STRICT)
+@Setting(settingPath = "elasticsearch/phonebook-settings.json", shards = 1, replicas = 1, refreshInterval = "2s")
 public class PhonebookEntryDocument {
+    // An alias once the first full reindex has run, see PhonebookReindexService
+    public static final String INDEX = "phonebook";
+
+    public static final String SUGGEST_FIELD = "suggest";
+
+    // Only looked up by _id; kept in _source and doc values for sorting
     @Id
+    @Field(type = FieldType.Keyword, index = false)
     private String id;
+
+    // Exact and prefix matches on the keyword, infix matches on digit trigrams
+    @MultiField(
+            mainField = @Field(type = FieldType.Keyword),
+            otherFields = @InnerField(suffix = "infix", type = FieldType.Text, analyzer = "phone_infix", norms = false))
     private String phone;
+
+    // Every word is indexed with its prefixes, so the last word of a search
+    // is one term lookup instead of a prefix expansion at search time. The
+    // words subfield holds whole words for the ones before it.
+    @MultiField(
+            mainField = @Field(type = FieldType.Text, analyzer = "name_prefix", searchAnalyzer = "name_search",
+                    norms = false),
+            otherFields = {
+                    @InnerField(suffix = "keyword", type = FieldType.Keyword, normalizer = "name_normalizer"),
+                    @InnerField(suffix = "words", type = FieldType.Text, analyzer = "name_words", norms = false) })
     private String name;
-}
\ No newline at end of file
+
+    // Typeahead inputs: the phone, the name and each name suffix that starts
+    // at a word, so "smi" completes "John Smith". Only set on documents
+    // written to the index.
+    @JsonIgnore
+    @CompletionField(analyzer = "standard", searchAnalyzer = "standard", maxInputLength = 100)
+    private Completion suggest;
+
+    // Numeric id and content checksum, compared per id range with Postgres
+    // by PhonebookIndexReconciler. Only set on documents written to the index.
+    @JsonIgnore
+    @Field(type = FieldType.Long)
+    private Long entryId;
+
+    @JsonIgnore
+    @Field(type = FieldType.Integer, index = false)
+    private Integer checksum;
+
+    // The entry's version, also sent as the external document version so an
+    // older state of the entry never replaces a newer one (see
+    // PhonebookIndexWriter). Only set on documents written to the index.
+    @JsonIgnore
+    @Field(type = FieldType.Long, index = false)
+    private Long entryVersion;
+
+    public PhonebookEntryDocument(String id, String phone, String name) {
+        this(id, phone, name, null, null, null, null);
+    }
+
+    public static PhonebookEntryDocument fromEntry(PhonebookEntry entry) {
+        return forIndexing(entry.getId().toString(), entry.getPhone(), entry.getName(), entry.getVersion());
+    }
+
+    /**
+     * A document with its typeahead inputs filled in
+     */
+    public static PhonebookEntryDocument forIndexing(String id, String phone, String name, long version) {
+        List<String> inputs = new ArrayList<>(4);
+        if (phone != null) {
+            inputs.add(phone);
+        }
+        if (name != null) {
+            String trimmed = name.trim();
+            for (int start = 0; start < trimmed.length(); start++) {
+                if (start == 0 || (isWordSeparator(trimmed.charAt(start - 1))
+                        && !isWordSeparator(trimmed.charAt(start)))) {
+                    inputs.add(trimmed.substring(start));
+                }
+            }
+        }
+        long entryId = Long.parseLong(id);
+        return new PhonebookEntryDocument(id, phone, name, new Completion(inputs.toArray(new String[0])), entryId,
+                checksum(entryId, phone, name), version);
+    }
+
+    /**
+     * The first 24 bits of md5("id|phone|name"), as PhonebookIndexReconciler
+     * computes them in SQL. Sums of up to 2^29 of them stay exact in the
+     * double an Elasticsearch sum aggregation returns.
+     */
+    public static int checksum(long id, String phone, String name) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5")
+                    .digest((id + "|" + phone + "|" + name).getBytes(StandardCharsets.UTF_8));
+            return (digest[0] & 0xff) << 16 | (digest[1] & 0xff) << 8 | (digest[2] & 0xff);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not available", e);
+        }
+    }
+
+    private static boolean isWordSeparator(char c) {
+        return c == ' ' || c == '-';
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.phonebook.elasticsearch;
 
+import com.example.phonebook.dto.CursorPage;
 import com.example.phonebook.util.InputSanitizer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
@@ -15,6 +16,8 @@ public class PhonebookEntrySearchController {
     @Autowired
     private InputSanitizer sanitizer;
 
+    static final int MAX_CURSOR_PAGE_SIZE = 1000;
+
     @GetMapping
     public ResponseEntity<?> search(
             @RequestParam String keyword,
@@ -42,4 +45,31 @@ public class PhonebookEntrySearchController {
             return ResponseEntity.badRequest().body("Invalid search parameters: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    @GetMapping(params = "limit")
+    public ResponseEntity<?> searchAfter(
+            @RequestParam String keyword,
+            @RequestParam String limit,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "false") boolean pit) {
+        try {
+            String sanitizedKeyword = sanitizer.sanitizeSearchKeyword(keyword);
+            if (sanitizedKeyword == null || sanitizedKeyword.isEmpty()) {
+                return ResponseEntity.badRequest().body("Search keyword cannot be empty");
+            }
+
+            Integer sanitizedLimit = sanitizer.sanitizeInteger(limit);
+            if (sanitizedLimit == null || sanitizedLimit < 1 || sanitizedLimit > MAX_CURSOR_PAGE_SIZE) {
+                return ResponseEntity.badRequest()
+                        .body("Validation error: limit must be between 1 and " + MAX_CURSOR_PAGE_SIZE);
+            }
+
+            String cursor = after != null && !after.isBlank() ? after.trim() : null;
+            CursorPage<PhonebookEntryDocument> result = searchService.searchAfter(sanitizedKeyword, cursor,
+                    sanitizedLimit, pit);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Invalid search parameters: " + e.getMessage());
+        }
+    }
+}
@@ -1,17 +1,49 @@
 package com.example.phonebook.elasticsearch;
 
+import com.example.phonebook.dto.CursorPage;
+import com.example.phonebook.search.PhonebookSearchEngine;
+import com.example.phonebook.search.SearchResultCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 
+import java.util.List;
+
 @Service
 public class PhonebookEntrySearchService {
     @Autowired
-    private PhonebookEntrySearchRepository searchRepository;
+    private PhonebookSearchEngine searchEngine;
+
+    @Autowired
+    private SearchResultCache searchCache;
 
+    /**
+     * Search through the result cache. Keywords that differ only in case or
+     * spacing share one entry, and the engine is queried with that form.
+     */
     public Page<PhonebookEntryDocument> searchByNameOrPhone(String keyword, int page, int size) {
-        return searchRepository.searchByNameOrPhone(keyword, PageRequest.of(page, size));
+        String normalized = SearchResultCache.normalize(keyword);
+        return searchCache.get(normalized, page, size,
+                () -> searchEngine.search(normalized, PageRequest.of(page, size)));
+    }
+
+    /**
+     * Cursor-paginated search for scanning deep into the results. Not cached:
+     * a cursor is normally read once.
+     */
+    public CursorPage<PhonebookEntryDocument> searchAfter(String keyword, String cursor, int limit,
+            boolean pointInTime) {
+        return searchEngine.searchAfter(SearchResultCache.normalize(keyword), cursor, limit, pointInTime);
+    }
+
+    /**
+     * Typeahead completions, not cached: the engines answer them from
+     * index-time structures. The sanitizer's escaped apostrophe is turned
+     * back, as completion inputs hold the raw name.
+     */
+    public List<PhonebookEntryDocument> suggest(String prefix, int limit) {
+        return searchEngine.suggest(SearchResultCache.normalize(prefix.replace("&#x27;", "'")), limit);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,409 @@
+package com.example.phonebook.elasticsearch;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.aggregations.HistogramBucket;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import co.elastic.clients.elasticsearch.core.SearchRequest;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.util.ObjectBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Finds and repairs drift between Postgres and the search index. The id
+ * space is split into fanout ranges, and each side reports the entry count
+ * and the sum of {@link PhonebookEntryDocument#checksum} per range in one
+ * aggregate query. Only ranges that differ are split again, down to ranges
+ * of at most leaf-size entries, whose ids and checksums are compared one by
+ * one. A pass over an index in step with the database costs one grouped
+ * scan on each side.
+ *
+ * Repairs are queued as outbox events, so PhonebookOutboxIndexer applies
+ * them in bulk from the entry's current state, in order with regular writes.
+ * Entries that already have an outbox event are in flight and not counted.
+ */
+@Component
+public class PhonebookIndexReconciler {
+    private static final Logger log = LoggerFactory.getLogger(PhonebookIndexReconciler.class);
+
+    // Must match PhonebookEntryDocument.checksum
+    private static final String CHECKSUM_SQL =
+            "('x' || substr(md5(id || '|' || phone || '|' || name), 1, 6))::bit(24)::int";
+
+    private static final String SUMMARIZE_SQL = "SELECT (id - ?) / ? AS bucket, count(*) AS entries, sum("
+            + CHECKSUM_SQL + ") AS checksum FROM phonebook_entry WHERE id >= ? AND id < ? GROUP BY 1";
+
+    private static final String CHECKSUMS_SQL = "SELECT id, " + CHECKSUM_SQL
+            + " AS checksum FROM phonebook_entry WHERE id >= ? AND id < ?";
+
+    private static final String IN_FLIGHT_SQL =
+            "SELECT DISTINCT entry_id FROM phonebook_outbox WHERE entry_id >= ? AND entry_id < ?";
+
+    private static final String ENQUEUE_SQL = "INSERT INTO phonebook_outbox (entry_id, operation) VALUES (?, ?)";
+
+    // Session-level lock, held on one connection for the whole pass so that
+    // only one instance runs a pass at a time. Postgres releases it with the
+    // connection if the instance dies.
+    private static final String TRY_LOCK_SQL = "SELECT pg_try_advisory_lock(hashtext('phonebook_index_reconcile'))";
+    private static final String UNLOCK_SQL = "SELECT pg_advisory_unlock(hashtext('phonebook_index_reconcile'))";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ElasticsearchClient elasticsearchClient;
+    @Autowired
+    private PhonebookReindexService reindexService;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Ranges a differing range is split into
+    @Value("${app.reconcile.fanout:16}")
+    private int fanout;
+
+    // Ranges with at most this many entries on both sides are compared entry by entry
+    @Value("${app.reconcile.leaf-size:1000}")
+    private int leafSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong lastDrift = new AtomicLong();
+
+    private Counter missingCounter;
+    private Counter staleCounter;
+    private Counter orphanedCounter;
+    private Counter rangesCounter;
+    private Timer passTimer;
+
+    /**
+     * Sum of the entry checksums in a range, and how many entries it holds
+     */
+    record Summary(long entries, long checksum) {
+    }
+
+    /**
+     * One side of the comparison: the database or the index
+     */
+    interface ChecksumSource {
+        long maxId();
+
+        /**
+         * Summaries of the ids in [from, to), keyed by (id - from) / width.
+         * Empty buckets may be left out.
+         */
+        Map<Long, Summary> summarize(long from, long to, long width);
+
+        /**
+         * The checksum of every entry in [from, to), by id
+         */
+        Map<Long, Integer> checksums(long from, long to);
+    }
+
+    /**
+     * Entries missing from the index, indexed with other content, or indexed
+     * but deleted from the database; ranges counts the ranges compared
+     */
+    record Drift(List<Long> missing, List<Long> stale, List<Long> orphaned, long ranges) {
+        public long total() {
+            return missing.size() + stale.size() + orphaned.size();
+        }
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        missingCounter = meterRegistry.counter("phonebook.reconcile.drift", "kind", "missing");
+        staleCounter = meterRegistry.counter("phonebook.reconcile.drift", "kind", "stale");
+        orphanedCounter = meterRegistry.counter("phonebook.reconcile.drift", "kind", "orphaned");
+        rangesCounter = meterRegistry.counter("phonebook.reconcile.ranges");
+        passTimer = meterRegistry.timer("phonebook.reconcile.pass");
+        Gauge.builder("phonebook.reconcile.last.drift", lastDrift, AtomicLong::get)
+                .description("Entries found out of step with the index by the last pass")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${app.reconcile.cron:0 0 * * * *}")
+    public void scheduledPass() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            log.warn("Index reconciliation failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Compare the database with the index and queue a repair for every
+     * entry out of step. Returns null when skipped because a pass is already
+     * running on this or another instance, or a full reindex is running.
+     */
+    public Drift reconcile() {
+        if (reindexService.isRunning() || !running.compareAndSet(false, true)) {
+            return null;
+        }
+        try {
+            return jdbcTemplate.execute((ConnectionCallback<Drift>) connection -> {
+                if (!queryFlag(connection, TRY_LOCK_SQL)) {
+                    log.debug("Another instance is reconciling the index, skipping this pass");
+                    return null;
+                }
+                try {
+                    return pass();
+                } finally {
+                    queryFlag(connection, UNLOCK_SQL);
+                }
+            });
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private Drift pass() {
+        Drift drift = passTimer.record(() -> compare(new DatabaseSource(), new IndexSource()));
+        Drift repaired = withoutInFlight(drift);
+        enqueue(repaired);
+
+        rangesCounter.increment(repaired.ranges());
+        missingCounter.increment(repaired.missing().size());
+        staleCounter.increment(repaired.stale().size());
+        orphanedCounter.increment(repaired.orphaned().size());
+        lastDrift.set(repaired.total());
+        if (repaired.total() > 0) {
+            log.info("Queued {} index repairs ({} missing, {} stale, {} orphaned) after comparing {} ranges",
+                    repaired.total(), repaired.missing().size(), repaired.stale().size(),
+                    repaired.orphaned().size(), repaired.ranges());
+        }
+        return repaired;
+    }
+
+    private static boolean queryFlag(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    /**
+     * Descend from the whole id space into the ranges whose summaries differ
+     */
+    Drift compare(ChecksumSource database, ChecksumSource index) {
+        List<Long> missing = new ArrayList<>();
+        List<Long> stale = new ArrayList<>();
+        List<Long> orphaned = new ArrayList<>();
+        long ranges = 0;
+
+        Deque<long[]> pending = new ArrayDeque<>();
+        pending.push(new long[] { 0, Math.max(database.maxId(), index.maxId()) + 1 });
+        while (!pending.isEmpty()) {
+            long[] range = pending.pop();
+            long from = range[0];
+            long to = range[1];
+            long width = Math.max(1, ceilDiv(to - from, fanout));
+
+            Map<Long, Summary> expected = database.summarize(from, to, width);
+            Map<Long, Summary> actual = index.summarize(from, to, width);
+            Set<Long> buckets = new HashSet<>(expected.keySet());
+            buckets.addAll(actual.keySet());
+            ranges += buckets.size();
+
+            for (Long bucket : buckets) {
+                Summary inDatabase = expected.getOrDefault(bucket, new Summary(0, 0));
+                Summary inIndex = actual.getOrDefault(bucket, new Summary(0, 0));
+                if (inDatabase.equals(inIndex)) {
+                    continue;
+                }
+                long childFrom = from + bucket * width;
+                long childTo = Math.min(childFrom + width, to);
+                if (width == 1 || Math.max(inDatabase.entries(), inIndex.entries()) <= leafSize) {
+                    diff(database.checksums(childFrom, childTo), index.checksums(childFrom, childTo), missing,
+                            stale, orphaned);
+                } else {
+                    pending.push(new long[] { childFrom, childTo });
+                }
+            }
+        }
+        missing.sort(null);
+        stale.sort(null);
+        orphaned.sort(null);
+        return new Drift(missing, stale, orphaned, ranges);
+    }
+
+    private static void diff(Map<Long, Integer> database, Map<Long, Integer> index, List<Long> missing,
+            List<Long> stale, List<Long> orphaned) {
+        database.forEach((id, checksum) -> {
+            Integer indexed = index.get(id);
+            if (indexed == null) {
+                missing.add(id);
+            } else if (!indexed.equals(checksum)) {
+                stale.add(id);
+            }
+        });
+        for (Long id : index.keySet()) {
+            if (!database.containsKey(id)) {
+                orphaned.add(id);
+            }
+        }
+    }
+
+    private Drift withoutInFlight(Drift drift) {
+        if (drift.total() == 0) {
+            return drift;
+        }
+        List<Long> all = new ArrayList<>(drift.missing());
+        all.addAll(drift.stale());
+        all.addAll(drift.orphaned());
+        long min = all.stream().mapToLong(Long::longValue).min().orElse(0);
+        long max = all.stream().mapToLong(Long::longValue).max().orElse(0);
+        Set<Long> inFlight = new HashSet<>(jdbcTemplate.queryForList(IN_FLIGHT_SQL, Long.class, min, max + 1));
+        return new Drift(
+                drift.missing().stream().filter(id -> !inFlight.contains(id)).toList(),
+                drift.stale().stream().filter(id -> !inFlight.contains(id)).toList(),
+                drift.orphaned().stream().filter(id -> !inFlight.contains(id)).toList(),
+                drift.ranges());
+    }
+
+    private void enqueue(Drift drift) {
+        List<Object[]> events = new ArrayList<>((int) drift.total());
+        for (Long id : drift.missing()) {
+            events.add(new Object[] { id, "INDEX" });
+        }
+        for (Long id : drift.stale()) {
+            events.add(new Object[] { id, "INDEX" });
+        }
+        for (Long id : drift.orphaned()) {
+            events.add(new Object[] { id, "DELETE" });
+        }
+        if (!events.isEmpty()) {
+            jdbcTemplate.batchUpdate(ENQUEUE_SQL, events);
+        }
+    }
+
+    private static long ceilDiv(long dividend, long divisor) {
+        return (dividend + divisor - 1) / divisor;
+    }
+
+    private class DatabaseSource implements ChecksumSource {
+        @Override
+        public long maxId() {
+            Long max = jdbcTemplate.queryForObject("SELECT max(id) FROM phonebook_entry", Long.class);
+            return max != null ? max : 0;
+        }
+
+        @Override
+        public Map<Long, Summary> summarize(long from, long to, long width) {
+            Map<Long, Summary> summaries = new HashMap<>();
+            jdbcTemplate.query(SUMMARIZE_SQL, rs -> {
+                summaries.put(rs.getLong("bucket"), new Summary(rs.getLong("entries"), rs.getLong("checksum")));
+            }, from, width, from, to);
+            return summaries;
+        }
+
+        @Override
+        public Map<Long, Integer> checksums(long from, long to) {
+            Map<Long, Integer> checksums = new HashMap<>();
+            jdbcTemplate.query(CHECKSUMS_SQL, rs -> {
+                checksums.put(rs.getLong("id"), rs.getInt("checksum"));
+            }, from, to);
+            return checksums;
+        }
+    }
+
+    // Source fields read back from the index
+    record IndexedChecksum(Long entryId, Integer checksum) {
+    }
+
+    private class IndexSource implements ChecksumSource {
+        @Override
+        public long maxId() {
+            SearchResponse<IndexedChecksum> response = search(request -> request
+                    .index(PhonebookEntryDocument.INDEX)
+                    .size(1)
+                    .sort(sort -> sort.field(field -> field.field("entryId").order(SortOrder.Desc)))
+                    .source(source -> source.filter(filter -> filter.includes("entryId", "checksum"))));
+            List<Hit<IndexedChecksum>> hits = response.hits().hits();
+            return hits.isEmpty() || hits.get(0).source() == null ? 0 : hits.get(0).source().entryId();
+        }
+
+        @Override
+        public Map<Long, Summary> summarize(long from, long to, long width) {
+            // Buckets start at from, so each one's key is from + bucket * width
+            SearchResponse<IndexedChecksum> response = search(request -> request
+                    .index(PhonebookEntryDocument.INDEX)
+                    .size(0)
+                    .query(idRange(from, to))
+                    .aggregations("buckets", buckets -> buckets
+                            .histogram(histogram -> histogram
+                                    .field("entryId")
+                                    .interval((double) width)
+                                    .offset((double) (from % width))
+                                    .minDocCount(1))
+                            .aggregations("checksum", sum -> sum.sum(field -> field.field("checksum")))));
+
+            Map<Long, Summary> summaries = new HashMap<>();
+            for (HistogramBucket bucket : response.aggregations().get("buckets").histogram().buckets().array()) {
+                long checksum = Math.round(bucket.aggregations().get("checksum").sum().value());
+                summaries.put(((long) bucket.key() - from) / width, new Summary(bucket.docCount(), checksum));
+            }
+            return summaries;
+        }
+
+        @Override
+        public Map<Long, Integer> checksums(long from, long to) {
+            // Only called for ranges with at most leafSize indexed entries
+            SearchResponse<IndexedChecksum> response = search(request -> request
+                    .index(PhonebookEntryDocument.INDEX)
+                    .size(leafSize)
+                    .query(idRange(from, to))
+                    .source(source -> source.filter(filter -> filter.includes("entryId", "checksum"))));
+
+            Map<Long, Integer> checksums = new HashMap<>();
+            for (Hit<IndexedChecksum> hit : response.hits().hits()) {
+                IndexedChecksum indexed = hit.source();
+                if (indexed != null && indexed.entryId() != null) {
+                    checksums.put(indexed.entryId(), indexed.checksum() != null ? indexed.checksum() : -1);
+                }
+            }
+            return checksums;
+        }
+
+        private Query idRange(long from, long to) {
+            return Query.of(query -> query.range(range -> range
+                    .number(number -> number.field("entryId").gte((double) from).lt((double) to))));
+        }
+
+        private SearchResponse<IndexedChecksum> search(
+                Function<SearchRequest.Builder, ObjectBuilder<SearchRequest>> request) {
+            try {
+                return elasticsearchClient.search(request, IndexedChecksum.class);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.phonebook.elasticsearch;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.VersionType;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.elasticsearch.BulkFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk writes to the search index with external versioning: a document is
+ * written with its entry's version, and Elasticsearch rejects the write when
+ * it already holds that version or a newer one. Two writers that read the
+ * same entry at different times therefore cannot leave the older state in
+ * the index, whichever request arrives last. Those rejections (409) mean the
+ * index is already up to date and are not failures.
+ */
+@Component
+public class PhonebookIndexWriter {
+    private static final int CONFLICT = 409;
+
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+    @Autowired
+    private ElasticsearchClient elasticsearchClient;
+
+    /**
+     * Index the documents at their entryVersion
+     *
+     * @throws BulkFailureException if any document failed other than by a version conflict
+     */
+    public void index(List<PhonebookEntryDocument> documents, IndexCoordinates coordinates) {
+        if (documents.isEmpty()) {
+            return;
+        }
+        List<IndexQuery> queries = documents.stream()
+                .map(document -> new IndexQueryBuilder()
+                        .withId(document.getId())
+                        .withObject(document)
+                        .withVersion(document.getEntryVersion())
+                        .build())
+                .toList();
+        try {
+            elasticsearchOperations.bulkIndex(queries, coordinates);
+        } catch (BulkFailureException e) {
+            boolean onlyConflicts = e.getFailedDocuments().values().stream()
+                    .allMatch(failure -> failure.status() != null && failure.status() == CONFLICT);
+            if (!onlyConflicts) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Delete documents in one bulk request. Ids mapped to a version are
+     * deleted with it as the external version, which also rejects an older
+     * index request that arrives after the delete; ids mapped to null are
+     * deleted unconditionally. Missing documents are not an error.
+     *
+     * @throws BulkFailureException if any delete failed other than by a version conflict
+     */
+    public void delete(Map<String, Long> versions, IndexCoordinates coordinates) {
+        if (versions.isEmpty()) {
+            return;
+        }
+        BulkRequest.Builder request = new BulkRequest.Builder().index(coordinates.getIndexName());
+        versions.forEach((id, version) -> request.operations(operation -> operation.delete(delete -> {
+            delete.id(id);
+            if (version != null) {
+                delete.version(version).versionType(VersionType.External);
+            }
+            return delete;
+        })));
+
+        BulkResponse response;
+        try {
+            response = elasticsearchClient.bulk(request.build());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!response.errors()) {
+            return;
+        }
+        Map<String, BulkFailureException.FailureDetails> failures = new HashMap<>();
+        for (BulkResponseItem item : response.items()) {
+            if (item.error() != null && item.status() != CONFLICT) {
+                failures.put(item.id(), new BulkFailureException.FailureDetails(item.status(), item.error().reason()));
+            }
+        }
+        if (!failures.isEmpty()) {
+            throw new BulkFailureException("Bulk delete has failures: " + failures, failures);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.phonebook.elasticsearch;
+
+import com.example.phonebook.entity.PhonebookEntry;
+import com.example.phonebook.entity.PhonebookOutboxEvent;
+import com.example.phonebook.repository.PhonebookEntryRepository;
+import com.example.phonebook.repository.PhonebookOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Drains the phonebook outbox into Elasticsearch. Each batch is resolved
+ * against the current database state, so repeated or out-of-order events for
+ * the same entry collapse into one index or delete operation. Documents are
+ * written with the entry version as external version, so when two instances
+ * drain events for the same entry the older state is rejected.
+ */
+@Component
+public class PhonebookOutboxIndexer {
+    private static final Logger log = LoggerFactory.getLogger(PhonebookOutboxIndexer.class);
+
+    @Autowired
+    private PhonebookOutboxRepository outboxRepository;
+    @Autowired
+    private PhonebookEntryRepository repository;
+    @Autowired
+    private PhonebookIndexWriter indexWriter;
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+    @Autowired
+    private PhonebookReindexService reindexService;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.outbox.batch-size:500}")
+    private int batchSize;
+
+    // Upper bound on batches per poll so one busy tick cannot run forever
+    @Value("${app.outbox.max-batches-per-poll:100}")
+    private int maxBatchesPerPoll;
+
+    @Value("${app.outbox.initial-backoff-ms:1000}")
+    private long initialBackoffMillis;
+
+    @Value("${app.outbox.max-backoff-ms:300000}")
+    private long maxBackoffMillis;
+
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    private Counter indexedCounter;
+    private Counter deletedCounter;
+    private Counter failureCounter;
+    private Timer batchTimer;
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("phonebook.outbox.pending", pending, AtomicLong::get)
+                .description("Outbox events waiting to be indexed")
+                .register(meterRegistry);
+        Gauge.builder("phonebook.outbox.lag", lagMillis, value -> value.get() / 1000.0)
+                .description("Age of the oldest outbox event")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        indexedCounter = meterRegistry.counter("phonebook.outbox.documents", "operation", "index");
+        deletedCounter = meterRegistry.counter("phonebook.outbox.documents", "operation", "delete");
+        failureCounter = meterRegistry.counter("phonebook.outbox.failures");
+        batchTimer = meterRegistry.timer("phonebook.outbox.batch");
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:500}")
+    public void poll() {
+        for (int i = 0; i < maxBatchesPerPoll; i++) {
+            if (drainBatch() < batchSize) {
+                break;
+            }
+        }
+        refreshLag();
+    }
+
+    /**
+     * Index one batch of outbox events and return how many events were consumed
+     */
+    public int drainBatch() {
+        Integer drained = transactionTemplate.execute(status -> {
+            List<PhonebookOutboxEvent> events = outboxRepository.lockNextBatch(batchSize);
+            if (events.isEmpty()) {
+                return 0;
+            }
+
+            Set<Long> entryIds = new LinkedHashSet<>();
+            // A deleted row is gone, so its version comes from the DELETE event
+            Map<Long, Long> deletedVersions = new HashMap<>();
+            for (PhonebookOutboxEvent event : events) {
+                entryIds.add(event.getEntryId());
+                if (event.getOperation() == PhonebookOutboxEvent.Operation.DELETE && event.getEntryVersion() != null) {
+                    deletedVersions.merge(event.getEntryId(), event.getEntryVersion(), Math::max);
+                }
+            }
+            // A running reindex copies these into its new index as well
+            reindexService.recordChanged(entryIds);
+            Map<Long, PhonebookEntry> current = repository.findAllById(entryIds).stream()
+                    .collect(Collectors.toMap(PhonebookEntry::getId, Function.identity()));
+
+            List<PhonebookEntryDocument> toIndex = new ArrayList<>();
+            Map<String, Long> toDelete = new LinkedHashMap<>();
+            for (Long entryId : entryIds) {
+                PhonebookEntry entry = current.get(entryId);
+                if (entry != null) {
+                    toIndex.add(PhonebookEntryDocument.fromEntry(entry));
+                } else {
+                    toDelete.put(entryId.toString(), deletedVersions.get(entryId));
+                }
+            }
+
+            try {
+                IndexCoordinates coordinates = elasticsearchOperations.getIndexCoordinatesFor(
+                        PhonebookEntryDocument.class);
+                batchTimer.record(() -> {
+                    indexWriter.index(toIndex, coordinates);
+                    indexWriter.delete(toDelete, coordinates);
+                });
+            } catch (RuntimeException e) {
+                failureCounter.increment();
+                log.warn("Indexing {} outbox events failed, will retry: {}", events.size(), e.getMessage());
+                Instant now = Instant.now();
+                for (PhonebookOutboxEvent event : events) {
+                    event.setAttempts(event.getAttempts() + 1);
+                    event.setNextAttemptAt(now.plus(backoff(event.getAttempts())));
+                }
+                return 0;
+            }
+
+            outboxRepository.deleteAllInBatch(events);
+            indexedCounter.increment(toIndex.size());
+            deletedCounter.increment(toDelete.size());
+            return events.size();
+        });
+        return drained != null ? drained : 0;
+    }
+
+    public long getPending() {
+        return pending.get();
+    }
+
+    public Duration getLag() {
+        return Duration.ofMillis(lagMillis.get());
+    }
+
+    Duration backoff(int attempts) {
+        long delay = initialBackoffMillis << Math.min(attempts - 1, 20);
+        return Duration.ofMillis(Math.min(delay, maxBackoffMillis));
+    }
+
+    private void refreshLag() {
+        pending.set(outboxRepository.count());
+        Instant oldest = outboxRepository.findOldestCreatedAt();
+        lagMillis.set(oldest != null ? Math.max(0, Duration.between(oldest, Instant.now()).toMillis()) : 0);
+    }
+}
@@ -0,0 +1,586 @@
+package com.example.phonebook.elasticsearch;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.mapping.Property;
+import co.elastic.clients.elasticsearch._types.mapping.TypeMapping;
+import co.elastic.clients.elasticsearch.indices.get_mapping.IndexMappingRecord;
+import com.example.phonebook.dto.ReindexStatus;
+import com.example.phonebook.entity.PhonebookEntry;
+import com.example.phonebook.repository.PhonebookEntryRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.index.AliasAction;
+import org.springframework.data.elasticsearch.core.index.AliasActionParameters;
+import org.springframework.data.elasticsearch.core.index.AliasActions;
+import org.springframework.data.elasticsearch.core.index.AliasData;
+import org.springframework.data.elasticsearch.core.index.Settings;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Rebuilds the search index from Postgres without downtime. Entries are
+ * streamed in id-range slices, loaded in parallel into a new versioned index,
+ * and the {@value PhonebookEntryDocument#INDEX} alias is switched to it in one
+ * atomic request. Until then every search and outbox write goes to the old
+ * index. Entries that the outbox indexer of any instance writes during the
+ * run are recorded in phonebook_reindex_change and copied into the new index
+ * before and after the swap. A Postgres advisory lock keeps a run exclusive
+ * across instances.
+ */
+@Service
+public class PhonebookReindexService {
+    private static final Logger log = LoggerFactory.getLogger(PhonebookReindexService.class);
+
+    private static final DateTimeFormatter VERSION_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss")
+            .withZone(ZoneOffset.UTC);
+
+    private static final String SLICE_SQL = """
+            SELECT id, phone, name, version FROM phonebook_entry
+            WHERE id >= ? AND id < ?
+            ORDER BY id
+            """;
+
+    // Session-level lock, held on one connection for the whole run so that
+    // only one instance reindexes at a time. Postgres releases it with the
+    // connection if the instance dies.
+    private static final String TRY_LOCK_SQL = "SELECT pg_try_advisory_lock(hashtext('phonebook_reindex'))";
+    private static final String UNLOCK_SQL = "SELECT pg_advisory_unlock(hashtext('phonebook_reindex'))";
+
+    private static final String BEGIN_RUN_SQL = "INSERT INTO phonebook_reindex_run (target_index) VALUES (?)";
+    private static final String END_RUN_SQL = "DELETE FROM phonebook_reindex_run";
+    private static final String CLEAR_CHANGES_SQL = "DELETE FROM phonebook_reindex_change";
+    private static final String RUN_EXISTS_SQL = "SELECT EXISTS (SELECT 1 FROM phonebook_reindex_run)";
+
+    // Ids in ascending order, so two writers never wait on each other's rows in opposite orders
+    private static final String RECORD_CHANGES_SQL = """
+            INSERT INTO phonebook_reindex_change (entry_id)
+            SELECT id FROM unnest(?::bigint[]) AS id
+            WHERE EXISTS (SELECT 1 FROM phonebook_reindex_run)
+            ORDER BY id
+            ON CONFLICT DO NOTHING
+            """;
+
+    private static final String TAKE_CHANGES_SQL = """
+            DELETE FROM phonebook_reindex_change
+            WHERE entry_id IN (SELECT entry_id FROM phonebook_reindex_change ORDER BY entry_id LIMIT ?)
+            RETURNING entry_id
+            """;
+
+    // Waits for every transaction that has recorded a change, and holds off
+    // new ones, until the transaction that takes it ends
+    private static final String WAIT_FOR_WRITERS_SQL = "LOCK TABLE phonebook_reindex_change IN SHARE MODE";
+
+    @Autowired
+    private ElasticsearchOperations elasticsearchOperations;
+    @Autowired
+    private ElasticsearchClient elasticsearchClient;
+    @Autowired
+    private PhonebookIndexWriter indexWriter;
+    @Autowired
+    private PhonebookEntryRepository repository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Slices loaded at the same time
+    @Value("${app.reindex.parallelism:4}")
+    private int parallelism;
+
+    // Width of one id-range slice
+    @Value("${app.reindex.slice-size:50000}")
+    private long sliceSize;
+
+    // Documents per bulk request, also the JDBC fetch size
+    @Value("${app.reindex.bulk-size:1000}")
+    private int bulkSize;
+
+    // Rebuild the index at startup when it predates the current mapping,
+    // instead of only logging that it needs one
+    @Value("${app.reindex.on-mapping-change:false}")
+    private boolean reindexOnMappingChange;
+
+    private JdbcTemplate streamingJdbcTemplate;
+    private TransactionTemplate readOnlyTransaction;
+    private ExecutorService coordinator;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong indexed = new AtomicLong();
+    private final AtomicInteger slicesCompleted = new AtomicInteger();
+    private volatile ReindexStatus.State state = ReindexStatus.State.IDLE;
+    private volatile String targetIndex;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile long totalEntries;
+    private volatile int slicesTotal;
+    private volatile String error;
+
+    @PostConstruct
+    void init() {
+        // Postgres only streams a result set with a fetch size inside a transaction
+        streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        streamingJdbcTemplate.setFetchSize(bulkSize);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        coordinator = Executors.newSingleThreadExecutor(r -> new Thread(r, "phonebook-reindex"));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        coordinator.shutdownNow();
+    }
+
+    /**
+     * Start a full reindex in the background
+     *
+     * @throws IllegalStateException if one is already running on this or another instance
+     */
+    public ReindexStatus start() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A reindex is already running");
+        }
+
+        Connection lock = null;
+        try {
+            lock = tryLock();
+            if (lock == null) {
+                throw new IllegalStateException("A reindex is already running on another instance");
+            }
+
+            indexed.set(0);
+            slicesCompleted.set(0);
+            totalEntries = 0;
+            slicesTotal = 0;
+            error = null;
+            finishedAt = null;
+            startedAt = Instant.now();
+            targetIndex = PhonebookEntryDocument.INDEX + "_v" + VERSION_FORMAT.format(startedAt);
+            state = ReindexStatus.State.RUNNING;
+
+            // Outbox indexers record their changes from the moment this row is committed
+            endRun();
+            jdbcTemplate.update(BEGIN_RUN_SQL, targetIndex);
+
+            Connection held = lock;
+            coordinator.execute(() -> run(held));
+        } catch (RuntimeException e) {
+            unlock(lock);
+            running.set(false);
+            throw e;
+        }
+        return getStatus();
+    }
+
+    /**
+     * A run that ended with its instance leaves its rows behind, which would
+     * keep the outbox indexers recording changes. Nobody holds the lock then.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void clearAbandonedRun() {
+        try {
+            Connection lock = tryLock();
+            if (lock == null) {
+                return;
+            }
+            try {
+                endRun();
+            } finally {
+                unlock(lock);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not clear an abandoned reindex: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * A missing index is created from the entity's settings and mapping by
+     * the repository. An index created before they were explicit, with a
+     * dynamically mapped text phone field, before documents carried the
+     * reconciler's checksum and the entry version, or without the whole-word
+     * name subfield, needs a full reindex.
+     * Documents written before that have internal versions, which external
+     * entry versions could not replace. Unless on-mapping-change is set, this
+     * is only logged for an admin to start; if it is set, the advisory lock
+     * lets only the first instance that starts run it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reindexIfMappingOutdated() {
+        try {
+            if (hasCurrentMapping()) {
+                return;
+            }
+            if (!reindexOnMappingChange) {
+                log.warn("Index {} has an outdated mapping, start a full reindex with POST /api/admin/reindex",
+                        PhonebookEntryDocument.INDEX);
+                return;
+            }
+            log.info("Index {} has an outdated mapping, starting a full reindex", PhonebookEntryDocument.INDEX);
+            start();
+        } catch (IllegalStateException e) {
+            log.info("Index {} has an outdated mapping: {}", PhonebookEntryDocument.INDEX, e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not check the mapping of index {}: {}", PhonebookEntryDocument.INDEX, e.getMessage());
+        }
+    }
+
+    private boolean hasCurrentMapping() throws IOException {
+        Map<String, IndexMappingRecord> mappings = elasticsearchClient.indices()
+                .getMapping(request -> request.index(PhonebookEntryDocument.INDEX))
+                .result();
+        for (IndexMappingRecord record : mappings.values()) {
+            TypeMapping mapping = record.mappings();
+            Property phone = mapping != null ? mapping.properties().get("phone") : null;
+            Property name = mapping != null ? mapping.properties().get("name") : null;
+            if (phone == null || !phone.isKeyword() || !mapping.properties().containsKey("checksum")
+                    || !mapping.properties().containsKey("entryVersion")
+                    || name == null || !name.isText() || !name.text().fields().containsKey("words")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether a reindex is running on this or another instance
+     */
+    public boolean isRunning() {
+        return running.get() || Boolean.TRUE.equals(jdbcTemplate.queryForObject(RUN_EXISTS_SQL, Boolean.class));
+    }
+
+    public ReindexStatus getStatus() {
+        ReindexStatus status = new ReindexStatus();
+        status.setState(state);
+        status.setTargetIndex(targetIndex);
+        status.setStartedAt(startedAt);
+        status.setFinishedAt(finishedAt);
+        status.setTotalEntries(totalEntries);
+        status.setIndexedEntries(indexed.get());
+        status.setSlicesTotal(slicesTotal);
+        status.setSlicesCompleted(slicesCompleted.get());
+
+        if (startedAt != null) {
+            Instant end = finishedAt != null ? finishedAt : Instant.now();
+            double seconds = Duration.between(startedAt, end).toMillis() / 1000.0;
+            double rate = seconds > 0 ? indexed.get() / seconds : 0;
+            status.setDocsPerSecond(rate);
+            if (state == ReindexStatus.State.RUNNING && rate > 0) {
+                status.setEtaSeconds((long) Math.ceil(Math.max(0, totalEntries - indexed.get()) / rate));
+            }
+        }
+        status.setError(error);
+        return status;
+    }
+
+    /**
+     * Called by PhonebookOutboxIndexer, in its transaction, for every entry it
+     * indexes or deletes, so that changes made while slices are loading reach
+     * the new index. Records nothing unless a reindex is running.
+     */
+    public void recordChanged(Collection<Long> entryIds) {
+        if (entryIds.isEmpty()) {
+            return;
+        }
+        Long[] ids = entryIds.toArray(new Long[0]);
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(RECORD_CHANGES_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", ids));
+            return ps;
+        });
+    }
+
+    private void run(Connection lock) {
+        String target = targetIndex;
+        IndexOperations targetOps = elasticsearchOperations.indexOps(IndexCoordinates.of(target));
+        try {
+            // Same settings and mapping as the entity, but no refreshes while loading
+            IndexOperations entityOps = elasticsearchOperations.indexOps(PhonebookEntryDocument.class);
+            Settings settings = entityOps.createSettings().flatten();
+            Object refreshInterval = settings.getOrDefault("index.refresh_interval", "1s");
+            settings.put("index.refresh_interval", "-1");
+            targetOps.create(settings, entityOps.createMapping());
+
+            loadSlices(target);
+
+            elasticsearchClient.indices().putSettings(request -> request
+                    .index(target)
+                    .settings(index -> index.refreshInterval(time -> time.time(refreshInterval.toString()))));
+            applyChanges(target, false);
+            targetOps.refresh();
+
+            swapAlias(target);
+            // Changes indexed into the old index just before the swap
+            applyChanges(target, true);
+
+            state = ReindexStatus.State.COMPLETED;
+            log.info("Reindexed {} entries into {} in {} s", indexed.get(), target,
+                    Duration.between(startedAt, Instant.now()).toSeconds());
+        } catch (Exception e) {
+            log.error("Reindex into {} failed", target, e);
+            error = e.getMessage();
+            state = ReindexStatus.State.FAILED;
+            try {
+                if (!isAliasTarget(target)) {
+                    targetOps.delete();
+                }
+            } catch (RuntimeException cleanup) {
+                log.warn("Could not delete incomplete index {}: {}", target, cleanup.getMessage());
+            }
+        } finally {
+            finishedAt = Instant.now();
+            try {
+                endRun();
+            } catch (RuntimeException e) {
+                log.warn("Could not clear the changes recorded for {}: {}", target, e.getMessage());
+            } finally {
+                unlock(lock);
+                running.set(false);
+            }
+        }
+    }
+
+    private void endRun() {
+        jdbcTemplate.update(END_RUN_SQL);
+        jdbcTemplate.update(CLEAR_CHANGES_SQL);
+    }
+
+    /**
+     * A connection holding the reindex lock, or null if another instance holds it
+     */
+    private Connection tryLock() {
+        try {
+            Connection connection = dataSource.getConnection();
+            try {
+                if (queryFlag(connection, TRY_LOCK_SQL)) {
+                    return connection;
+                }
+            } catch (SQLException | RuntimeException e) {
+                connection.close();
+                throw e;
+            }
+            connection.close();
+            return null;
+        } catch (SQLException e) {
+            throw new UncategorizedSQLException("Reindex lock", TRY_LOCK_SQL, e);
+        }
+    }
+
+    private void unlock(Connection connection) {
+        if (connection == null) {
+            return;
+        }
+        // The pool does not reset session locks, so release it before handing the connection back
+        try (connection) {
+            queryFlag(connection, UNLOCK_SQL);
+        } catch (SQLException e) {
+            log.warn("Could not release the reindex lock: {}", e.getMessage());
+        }
+    }
+
+    private static boolean queryFlag(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            return rs.next() && rs.getBoolean(1);
+        }
+    }
+
+    private void loadSlices(String target) throws InterruptedException, ExecutionException {
+        Map<String, Object> bounds = streamingJdbcTemplate.queryForMap(
+                "SELECT min(id) AS min_id, max(id) AS max_id, count(*) AS total FROM phonebook_entry");
+        totalEntries = ((Number) bounds.get("total")).longValue();
+        if (totalEntries == 0) {
+            return;
+        }
+        long minId = ((Number) bounds.get("min_id")).longValue();
+        long maxId = ((Number) bounds.get("max_id")).longValue();
+
+        List<long[]> slices = new ArrayList<>();
+        for (long from = minId; from <= maxId; from += sliceSize) {
+            slices.add(new long[] { from, Math.min(from + sliceSize, maxId + 1) });
+        }
+        slicesTotal = slices.size();
+
+        ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, parallelism),
+                r -> new Thread(r, "phonebook-reindex-slice"));
+        try {
+            List<Future<?>> futures = new ArrayList<>(slices.size());
+            for (long[] slice : slices) {
+                futures.add(workers.submit(() -> loadSlice(target, slice[0], slice[1])));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private void loadSlice(String target, long fromId, long toId) {
+        IndexCoordinates coordinates = IndexCoordinates.of(target);
+        List<PhonebookEntryDocument> buffer = new ArrayList<>(bulkSize);
+        RowCallbackHandler handler = rs -> {
+            buffer.add(PhonebookEntryDocument.forIndexing(Long.toString(rs.getLong("id")), rs.getString("phone"),
+                    rs.getString("name"), rs.getLong("version")));
+            if (buffer.size() >= bulkSize) {
+                flush(buffer, coordinates);
+            }
+        };
+        readOnlyTransaction.executeWithoutResult(status -> streamingJdbcTemplate.query(SLICE_SQL, handler, fromId,
+                toId));
+        flush(buffer, coordinates);
+        slicesCompleted.incrementAndGet();
+    }
+
+    private void flush(List<PhonebookEntryDocument> buffer, IndexCoordinates coordinates) {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        indexWriter.index(buffer, coordinates);
+        indexed.addAndGet(buffer.size());
+        buffer.clear();
+    }
+
+    /**
+     * Bring entries changed since the run started up to date in the target
+     * index, from their current database state. With waitForWriters, outbox
+     * indexers that recorded a change but have not committed yet are waited
+     * for, so a write that went to the old index just before the swap is not
+     * missed.
+     */
+    private void applyChanges(String target, boolean waitForWriters) {
+        IndexCoordinates coordinates = IndexCoordinates.of(target);
+        if (waitForWriters) {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.execute(WAIT_FOR_WRITERS_SQL);
+                while (copyChanges(coordinates) > 0) {
+                    // Until every recorded change is copied
+                }
+            });
+            return;
+        }
+        Integer copied;
+        do {
+            copied = transactionTemplate.execute(status -> copyChanges(coordinates));
+        } while (copied != null && copied > 0);
+    }
+
+    /**
+     * Take up to bulkSize recorded changes and copy them into the index;
+     * returns how many were taken. They stay recorded if this fails.
+     */
+    private int copyChanges(IndexCoordinates coordinates) {
+        List<Long> ids = jdbcTemplate.queryForList(TAKE_CHANGES_SQL, Long.class, bulkSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        Map<Long, PhonebookEntry> current = repository.findAllById(ids).stream()
+                .collect(Collectors.toMap(PhonebookEntry::getId, Function.identity()));
+        List<PhonebookEntryDocument> toIndex = new ArrayList<>(current.size());
+        Map<String, Long> toDelete = new HashMap<>();
+        for (Long id : ids) {
+            PhonebookEntry entry = current.get(id);
+            if (entry != null) {
+                toIndex.add(PhonebookEntryDocument.fromEntry(entry));
+            } else {
+                // The deleted version is unknown here; ids are never reused
+                toDelete.put(id.toString(), null);
+            }
+        }
+        indexWriter.index(toIndex, coordinates);
+        indexWriter.delete(toDelete, coordinates);
+        return ids.size();
+    }
+
+    /**
+     * Point the alias at target and drop the indices it pointed to, in one
+     * request. Before the first reindex the alias name is still a concrete
+     * index, which is removed in the same request.
+     */
+    private void swapAlias(String target) {
+        IndexOperations aliasOps = elasticsearchOperations.indexOps(IndexCoordinates.of(PhonebookEntryDocument.INDEX));
+        Set<String> previousIndices = currentAliasTargets();
+
+        List<AliasAction> actions = new ArrayList<>();
+        if (previousIndices.isEmpty() && aliasOps.exists()) {
+            actions.add(new AliasAction.RemoveIndex(AliasActionParameters.builder()
+                    .withIndices(PhonebookEntryDocument.INDEX)
+                    .build()));
+        }
+        for (String previous : previousIndices) {
+            actions.add(new AliasAction.Remove(AliasActionParameters.builder()
+                    .withIndices(previous)
+                    .withAliases(PhonebookEntryDocument.INDEX)
+                    .build()));
+        }
+        actions.add(new AliasAction.Add(AliasActionParameters.builder()
+                .withIndices(target)
+                .withAliases(PhonebookEntryDocument.INDEX)
+                .build()));
+        aliasOps.alias(new AliasActions(actions.toArray(new AliasAction[0])));
+
+        for (String previous : previousIndices) {
+            elasticsearchOperations.indexOps(IndexCoordinates.of(previous)).delete();
+        }
+    }
+
+    private Set<String> currentAliasTargets() {
+        try {
+            Map<String, Set<AliasData>> aliases = elasticsearchOperations
+                    .indexOps(IndexCoordinates.of(PhonebookEntryDocument.INDEX))
+                    .getAliases(PhonebookEntryDocument.INDEX);
+            return aliases.entrySet().stream()
+                    .filter(entry -> !entry.getValue().isEmpty())
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toSet());
+        } catch (RuntimeException e) {
+            // No alias of that name yet
+            return Set.of();
+        }
+    }
+
+    private boolean isAliasTarget(String index) {
+        return currentAliasTargets().contains(index);
+    }
+}
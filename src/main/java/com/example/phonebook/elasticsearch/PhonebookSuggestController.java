@@ -0,0 +1,44 @@
+package com.example.phonebook.elasticsearch;
+
+import com.example.phonebook.util.InputSanitizer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/phonebook/suggest")
+public class PhonebookSuggestController {
+    @Autowired
+    private PhonebookEntrySearchService searchService;
+
+    @Autowired
+    private InputSanitizer sanitizer;
+
+    static final int DEFAULT_LIMIT = 10;
+
+    static final int MAX_LIMIT = 50;
+
+    @GetMapping
+    public ResponseEntity<?> suggest(
+            @RequestParam String q,
+            @RequestParam(required = false) String limit) {
+        try {
+            String sanitizedPrefix = sanitizer.sanitizeSearchKeyword(q);
+            if (sanitizedPrefix == null || sanitizedPrefix.isEmpty()) {
+                return ResponseEntity.badRequest().body("Search keyword cannot be empty");
+            }
+
+            Integer sanitizedLimit = sanitizer.sanitizeInteger(limit);
+            if (sanitizedLimit == null) {
+                sanitizedLimit = DEFAULT_LIMIT;
+            }
+            if (sanitizedLimit < 1 || sanitizedLimit > MAX_LIMIT) {
+                return ResponseEntity.badRequest().body("Validation error: limit must be between 1 and " + MAX_LIMIT);
+            }
+
+            return ResponseEntity.ok(searchService.suggest(sanitizedPrefix, sanitizedLimit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Invalid search parameters: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.phonebook.elasticsearch;
+
+import com.example.phonebook.dto.ReindexStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/reindex")
+public class ReindexController {
+    @Autowired
+    private PhonebookReindexService reindexService;
+
+    @PostMapping
+    public ResponseEntity<?> start() {
+        try {
+            return ResponseEntity.accepted().body(reindexService.start());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+    }
+
+    @GetMapping
+    public ReindexStatus status() {
+        return reindexService.getStatus();
+    }
+}
@@ -1,19 +1,31 @@
 package com.example.phonebook.entity;
 
+import com.example.phonebook.config.HibernateCacheConfig;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = HibernateCacheConfig.ENTRY_REGION)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class PhonebookEntry {
+    public static final String SEQUENCE = "phonebook_entry_seq";
+
+    // Must match the sequence's INCREMENT BY, see changeset mk:6
+    public static final int ALLOCATION_SIZE = 50;
+
+    // Pooled sequence: one nextval reserves ALLOCATION_SIZE ids, so ids are
+    // known before the flush and Hibernate can batch the INSERTs
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = SEQUENCE)
+    @SequenceGenerator(name = SEQUENCE, sequenceName = SEQUENCE, allocationSize = ALLOCATION_SIZE)
     private Long id;
 
     @Column(nullable = false, unique = true)
@@ -23,4 +35,14 @@ public class PhonebookEntry {
     @Column(nullable = false)
     @NotBlank(message = "Name must not be null or empty")
     private String name;
-}
\ No newline at end of file
+
+    // Bumped by every update and sent to clients as the entry's ETag. Primitive,
+    // so Spring Data still tells new entities apart by their id.
+    @Version
+    @Column(nullable = false)
+    private long version;
+
+    public PhonebookEntry(Long id, String phone, String name) {
+        this(id, phone, name, 0);
+    }
+}
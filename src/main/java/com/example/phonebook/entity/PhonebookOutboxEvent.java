@@ -0,0 +1,56 @@
+package com.example.phonebook.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A pending search-index change, written in the same transaction as the
+ * {@link PhonebookEntry} change it describes.
+ */
+@Entity
+@Table(name = "phonebook_outbox")
+@Data
+@NoArgsConstructor
+public class PhonebookOutboxEvent {
+    public enum Operation {
+        INDEX, DELETE
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "entry_id", nullable = false)
+    private Long entryId;
+
+    // For DELETE events written by PhonebookEntryBatchRepository: one past
+    // the deleted row's version, used as the external version of the delete
+    @Column(name = "entry_version")
+    private Long entryVersion;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Operation operation;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    public static PhonebookOutboxEvent of(Long entryId, Operation operation) {
+        PhonebookOutboxEvent event = new PhonebookOutboxEvent();
+        Instant now = Instant.now();
+        event.setEntryId(entryId);
+        event.setOperation(operation);
+        event.setCreatedAt(now);
+        event.setNextAttemptAt(now);
+        return event;
+    }
+}
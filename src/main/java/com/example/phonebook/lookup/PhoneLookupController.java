@@ -0,0 +1,74 @@
+package com.example.phonebook.lookup;
+
+import com.example.phonebook.dto.PhoneLookupResult;
+import com.example.phonebook.util.InputSanitizer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/phonebook/lookup")
+public class PhoneLookupController {
+    @Autowired
+    private PhoneLookupService lookupService;
+
+    @Autowired
+    private InputSanitizer sanitizer;
+
+    static final int MAX_BATCH_SIZE = 1000;
+
+    @GetMapping("/{phone}")
+    public ResponseEntity<?> lookup(@PathVariable String phone) {
+        try {
+            PhoneLookupResult result = lookupOne(sanitizer.sanitizePhone(phone));
+            return result.isFound() ? ResponseEntity.ok(result) : ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Validation error: " + e.getMessage());
+        }
+    }
+
+    @PostMapping
+    public ResponseEntity<?> lookupBatch(@RequestBody List<String> phones) {
+        if (phones.size() > MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest()
+                    .body("Validation error: at most " + MAX_BATCH_SIZE + " phone numbers per request");
+        }
+
+        try {
+            // Results come back in request order, one per requested number
+            List<PhoneLookupResult> results = new ArrayList<>(phones.size());
+            for (String phone : phones) {
+                if (phone == null) {
+                    throw new IllegalArgumentException("Phone number is required");
+                }
+                results.add(lookupOne(sanitizer.sanitizePhone(phone)));
+            }
+            return ResponseEntity.ok(results);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Validation error: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/stats")
+    public Map<String, Object> stats() {
+        int entries = lookupService.size();
+        long memoryBytes = lookupService.memoryBytes();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", entries);
+        stats.put("memoryBytes", memoryBytes);
+        stats.put("bytesPerEntry", entries > 0 ? (double) memoryBytes / entries : 0.0);
+        return stats;
+    }
+
+    private PhoneLookupResult lookupOne(String phone) {
+        PhoneLookupTable.Match match = lookupService.lookup(phone);
+        return match != null
+                ? new PhoneLookupResult(phone, true, match.id(), match.name())
+                : new PhoneLookupResult(phone, false, null, null);
+    }
+}
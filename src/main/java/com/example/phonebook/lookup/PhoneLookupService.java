@@ -0,0 +1,87 @@
+package com.example.phonebook.lookup;
+
+import com.example.phonebook.entity.PhonebookEntry;
+import com.example.phonebook.repository.PhonebookEntryRepository;
+import com.example.phonebook.service.PhonebookEntryChangedEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * Keeps a {@link PhoneLookupTable} of every entry so caller-ID lookups are
+ * answered from memory. The table is loaded from Postgres at startup and
+ * follows every committed entry change.
+ */
+@Service
+public class PhoneLookupService {
+    private static final Logger log = LoggerFactory.getLogger(PhoneLookupService.class);
+
+    @Autowired
+    private PhonebookEntryRepository repository;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.lookup.load-batch-size:10000}")
+    private int loadBatchSize;
+
+    private PhoneLookupTable table;
+
+    @PostConstruct
+    void load() {
+        long start = System.nanoTime();
+        table = new PhoneLookupTable((int) Math.min(Integer.MAX_VALUE / 2, repository.count()));
+
+        long lastId = 0;
+        List<PhonebookEntry> batch;
+        do {
+            batch = repository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(loadBatchSize));
+            for (PhonebookEntry entry : batch) {
+                table.put(entry.getId(), Integer.parseInt(entry.getPhone()), entry.getName());
+                lastId = entry.getId();
+            }
+        } while (batch.size() == loadBatchSize);
+
+        Gauge.builder("phonebook.lookup.entries", table, PhoneLookupTable::size)
+                .description("Entries in the reverse phone lookup table")
+                .register(meterRegistry);
+        Gauge.builder("phonebook.lookup.memory", table, PhoneLookupTable::memoryBytes)
+                .description("Memory held by the reverse phone lookup table")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        log.info("Loaded {} entries into the phone lookup table in {} ms ({} bytes)", table.size(),
+                (System.nanoTime() - start) / 1_000_000, table.memoryBytes());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntryChanged(PhonebookEntryChangedEvent event) {
+        if (event.type() == PhonebookEntryChangedEvent.Type.DELETED) {
+            table.remove(event.id());
+        } else {
+            table.put(event.id(), Integer.parseInt(event.entry().getPhone()), event.entry().getName());
+        }
+    }
+
+    /**
+     * Look up a sanitized 8-digit phone number; null when nobody has it
+     */
+    public PhoneLookupTable.Match lookup(String phone) {
+        return table.get(Integer.parseInt(phone));
+    }
+
+    public int size() {
+        return table.size();
+    }
+
+    public long memoryBytes() {
+        return table.memoryBytes();
+    }
+}
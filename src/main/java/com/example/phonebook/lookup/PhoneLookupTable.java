@@ -0,0 +1,284 @@
+package com.example.phonebook.lookup;
+
+import com.example.phonebook.util.LongIntHashMap;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Open-addressing table from an 8-digit phone number (held as an int) to the
+ * entry id and name. Keys, ids and name references live in parallel primitive
+ * arrays; names are stored as length-prefixed UTF-8 in one shared byte arena,
+ * so a slot costs 16 bytes plus the name itself. Lookups use an
+ * optimistic read and only take the lock when they race with a writer.
+ */
+public final class PhoneLookupTable {
+    private static final int FREE = -1;
+    private static final int MAX_NAME_BYTES = 0x3FFF;
+
+    private final StampedLock lock = new StampedLock();
+    private final LongIntHashMap phonesById;
+
+    private int[] keys;
+    private long[] ids;
+    // Arena offset of each name's length prefix
+    private int[] nameRefs;
+    private int size;
+    private int mask;
+
+    private byte[] arena;
+    private int arenaUsed;
+    private int arenaGarbage;
+
+    public record Match(long id, String name) {
+    }
+
+    public PhoneLookupTable(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 4 / 3 + 1) - 1) << 1;
+        allocate(capacity);
+        arena = new byte[Math.max(1024, expectedSize * 16)];
+        phonesById = new LongIntHashMap(expectedSize);
+    }
+
+    /**
+     * Find the entry for a phone number, or null when there is none
+     */
+    public Match get(int phone) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                Match match = find(phone);
+                if (lock.validate(stamp)) {
+                    return match;
+                }
+            } catch (RuntimeException e) {
+                // Torn read during a concurrent write; retry under the read lock
+            }
+        }
+
+        stamp = lock.readLock();
+        try {
+            return find(phone);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Insert or replace the entry with the given id, moving it when its phone changed
+     */
+    public void put(long id, int phone, String name) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(nameBytes.length, MAX_NAME_BYTES);
+
+        long stamp = lock.writeLock();
+        try {
+            int previousPhone = phonesById.get(id, FREE);
+            if (previousPhone != FREE && previousPhone != phone) {
+                delete(previousPhone);
+            }
+
+            int slot = slot(phone);
+            while (keys[slot] != FREE && keys[slot] != phone) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == phone) {
+                // Another id may have owned this phone before; forget that mapping
+                if (ids[slot] != id) {
+                    phonesById.remove(ids[slot]);
+                }
+                arenaGarbage += storedLength(nameRefs[slot]);
+            } else {
+                keys[slot] = phone;
+                size++;
+            }
+            ids[slot] = id;
+            nameRefs[slot] = appendName(nameBytes, length);
+            phonesById.put(id, phone);
+
+            if (size * 4 > keys.length * 3) {
+                rehash(keys.length << 1);
+            }
+            if (arenaGarbage > arenaUsed / 2 && arenaGarbage > 4096) {
+                compactArena();
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Remove the entry with the given id, if present
+     */
+    public void remove(long id) {
+        long stamp = lock.writeLock();
+        try {
+            int phone = phonesById.get(id, FREE);
+            if (phone != FREE) {
+                delete(phone);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Heap held by the table arrays, the name arena and the id index
+     */
+    public long memoryBytes() {
+        long stamp = lock.readLock();
+        try {
+            return (long) keys.length * (Integer.BYTES + Long.BYTES + Integer.BYTES) + arena.length
+                    + phonesById.memoryBytes();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private Match find(int phone) {
+        int[] keys = this.keys;
+        int mask = keys.length - 1;
+        int slot = hash(phone) & mask;
+        for (int probes = 0; probes < keys.length && keys[slot] != FREE; probes++) {
+            if (keys[slot] == phone) {
+                return new Match(ids[slot], readName(arena, nameRefs[slot]));
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    private void delete(int phone) {
+        int slot = slot(phone);
+        while (keys[slot] != FREE) {
+            if (keys[slot] == phone) {
+                phonesById.remove(ids[slot]);
+                arenaGarbage += storedLength(nameRefs[slot]);
+                size--;
+                shiftBack(slot);
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Backward-shift deletion keeps probe chains intact without tombstones
+     */
+    private void shiftBack(int free) {
+        int slot = free;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (keys[slot] == FREE) {
+                keys[free] = FREE;
+                return;
+            }
+            int home = slot(keys[slot]);
+            if (((slot - home) & mask) >= ((slot - free) & mask)) {
+                keys[free] = keys[slot];
+                ids[free] = ids[slot];
+                nameRefs[free] = nameRefs[slot];
+                free = slot;
+            }
+        }
+    }
+
+    /**
+     * Append a name as a one- or two-byte length prefix followed by its bytes
+     */
+    private int appendName(byte[] nameBytes, int length) {
+        int needed = length + 2;
+        if (arenaUsed + needed > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arena.length + (arena.length >> 1), arenaUsed + needed));
+        }
+        int ref = arenaUsed;
+        if (length < 0x80) {
+            arena[arenaUsed++] = (byte) length;
+        } else {
+            arena[arenaUsed++] = (byte) (0x80 | (length >>> 8));
+            arena[arenaUsed++] = (byte) length;
+        }
+        System.arraycopy(nameBytes, 0, arena, arenaUsed, length);
+        arenaUsed += length;
+        return ref;
+    }
+
+    private static String readName(byte[] arena, int ref) {
+        int first = arena[ref] & 0xFF;
+        if (first < 0x80) {
+            return new String(arena, ref + 1, first, StandardCharsets.UTF_8);
+        }
+        int length = ((first & 0x7F) << 8) | (arena[ref + 1] & 0xFF);
+        return new String(arena, ref + 2, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Arena bytes used by the name at ref, prefix included
+     */
+    private int storedLength(int ref) {
+        int first = arena[ref] & 0xFF;
+        return first < 0x80 ? first + 1 : (((first & 0x7F) << 8) | (arena[ref + 1] & 0xFF)) + 2;
+    }
+
+    private void compactArena() {
+        byte[] compacted = new byte[Math.max(1024, (arenaUsed - arenaGarbage) * 5 / 4)];
+        int used = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != FREE) {
+                int ref = nameRefs[slot];
+                int length = storedLength(ref);
+                System.arraycopy(arena, ref, compacted, used, length);
+                nameRefs[slot] = used;
+                used += length;
+            }
+        }
+        arena = compacted;
+        arenaUsed = used;
+        arenaGarbage = 0;
+    }
+
+    private int slot(int phone) {
+        return hash(phone) & mask;
+    }
+
+    private static int hash(int phone) {
+        int h = phone * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        ids = new long[capacity];
+        nameRefs = new int[capacity];
+        Arrays.fill(keys, FREE);
+        mask = capacity - 1;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        long[] oldIds = ids;
+        int[] oldRefs = nameRefs;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = slot(oldKeys[i]);
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                ids[slot] = oldIds[i];
+                nameRefs[slot] = oldRefs[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.phonebook.metrics;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+/**
+ * Times view rendering as the render stage: postHandle runs after the
+ * controller returns and afterCompletion once the template has been written.
+ * Redirects and REST responses have no view and are not recorded.
+ */
+public class RenderTimingInterceptor implements HandlerInterceptor {
+    private static final String START_ATTRIBUTE = RenderTimingInterceptor.class.getName() + ".start";
+
+    private final StageMetrics stageMetrics;
+
+    public RenderTimingInterceptor(StageMetrics stageMetrics) {
+        this.stageMetrics = stageMetrics;
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+            ModelAndView modelAndView) {
+        if (modelAndView != null && modelAndView.hasView()
+                && !(modelAndView.getViewName() != null && modelAndView.getViewName().startsWith("redirect:"))) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+            Exception ex) {
+        if (request.getAttribute(START_ATTRIBUTE) instanceof Long start) {
+            String operation = handler instanceof HandlerMethod method ? method.getMethod().getName() : "view";
+            stageMetrics.record(StageMetrics.RENDER, StageMetrics.endpoint(request), operation, ex == null,
+                    System.nanoTime() - start);
+        }
+    }
+}
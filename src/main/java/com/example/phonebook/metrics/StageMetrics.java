@@ -0,0 +1,99 @@
+package com.example.phonebook.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of each request pipeline stage - service, search and render - as
+ * the {@value #TIMER} timer, tagged by stage, endpoint, operation and
+ * outcome. Percentiles and histogram buckets are configured in
+ * application.properties; this class also lets code read them in-process.
+ */
+@Component
+public class StageMetrics {
+    public static final String TIMER = "phonebook.stage";
+
+    public static final String SERVICE = "service";
+    public static final String SEARCH = "search";
+    public static final String RENDER = "render";
+
+    // Endpoint tag for work that does not run inside a web request
+    static final String NO_ENDPOINT = "none";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+
+    private record TimerKey(String stage, String endpoint, String operation, boolean success) {
+    }
+
+    public void record(String stage, String operation, boolean success, long nanos) {
+        record(stage, currentEndpoint(), operation, success, nanos);
+    }
+
+    void record(String stage, String endpoint, String operation, boolean success, long nanos) {
+        timer(stage, endpoint, operation, success).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    Timer timer(String stage, String endpoint, String operation, boolean success) {
+        return timers.computeIfAbsent(new TimerKey(stage, endpoint, operation, success), key -> Timer.builder(TIMER)
+                .description("Time spent in one stage of the request pipeline")
+                .tag("stage", key.stage())
+                .tag("endpoint", key.endpoint())
+                .tag("operation", key.operation())
+                .tag("outcome", key.success() ? "success" : "error")
+                .register(meterRegistry));
+    }
+
+    /**
+     * All timers of one stage, for example to alert when its p99 crosses a
+     * threshold
+     */
+    public Collection<Timer> timers(String stage) {
+        return meterRegistry.find(TIMER).tag("stage", stage).timers();
+    }
+
+    /**
+     * Client-side percentile of a timer in milliseconds, or NaN if that
+     * percentile is not published
+     */
+    public static double percentileMillis(Timer timer, double percentile) {
+        for (ValueAtPercentile value : timer.takeSnapshot().percentileValues()) {
+            if (value.percentile() == percentile) {
+                return value.value(TimeUnit.MILLISECONDS);
+            }
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * HTTP method and route template of the request being handled, e.g.
+     * "GET /api/phonebook/{id}"
+     */
+    static String currentEndpoint() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            return endpoint(servletAttributes.getRequest());
+        }
+        return NO_ENDPOINT;
+    }
+
+    static String endpoint(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? request.getMethod() + " " + pattern : NO_ENDPOINT;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.phonebook.metrics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times every public call into PhonebookEntryService and
+ * PhonebookEntrySearchService as the service and search stages. InputSanitizer
+ * is not timed: its checks take well under a microsecond and a request makes
+ * several of them, so a proxy and a timer sample per call cost more than the
+ * work itself. Its cost is measured by the JMH benchmarks instead.
+ * PhonebookGroupCommitWriter records its creates in the service stage itself.
+ */
+@Aspect
+@Component
+public class StageTimingAspect {
+    @Autowired
+    private StageMetrics stageMetrics;
+
+    @Around("execution(public * com.example.phonebook.service.PhonebookEntryService.*(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(StageMetrics.SERVICE, joinPoint);
+    }
+
+    @Around("execution(public * com.example.phonebook.elasticsearch.PhonebookEntrySearchService.*(..))")
+    public Object timeSearch(ProceedingJoinPoint joinPoint) throws Throwable {
+        return time(StageMetrics.SEARCH, joinPoint);
+    }
+
+    private Object time(String stage, ProceedingJoinPoint joinPoint) throws Throwable {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            Object result = joinPoint.proceed();
+            success = true;
+            return result;
+        } finally {
+            stageMetrics.record(stage, joinPoint.getSignature().getName(), success, System.nanoTime() - start);
+        }
+    }
+}
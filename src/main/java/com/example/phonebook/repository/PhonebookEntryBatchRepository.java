@@ -0,0 +1,378 @@
+package com.example.phonebook.repository;
+
+import com.example.phonebook.entity.PhonebookEntry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * JDBC operations on phonebook_entry that do not fit the JPA model of
+ * {@link PhonebookEntryRepository}: set-based statements, and writes that
+ * must finish in a single round-trip. Every write queues its outbox events in
+ * the same statement.
+ */
+@Repository
+public class PhonebookEntryBatchRepository {
+
+    // Inserts a whole batch and its outbox events in one statement; rows whose
+    // phone already exists are skipped. Ids come from reserveIds.
+    private static final String INSERT_BATCH_SQL = """
+            WITH inserted AS (
+                INSERT INTO phonebook_entry (id, phone, name)
+                SELECT * FROM unnest(?::bigint[], ?::text[], ?::text[])
+                ON CONFLICT (phone) DO NOTHING
+                RETURNING id, phone, name, version
+            ), queued AS (
+                INSERT INTO phonebook_outbox (entry_id, operation)
+                SELECT id, 'INDEX' FROM inserted
+            )
+            SELECT id, phone, name, version FROM inserted
+            """;
+
+    // Null phone or name keeps the current value; a null expected version
+    // skips the optimistic check
+    private static final String UPDATE_SQL = """
+            WITH updated AS (
+                UPDATE phonebook_entry
+                SET phone = COALESCE(?, phone), name = COALESCE(?, name), version = version + 1
+                WHERE id = ? AND (?::bigint IS NULL OR version = ?::bigint)
+                RETURNING id, phone, name, version
+            ), queued AS (
+                INSERT INTO phonebook_outbox (entry_id, operation)
+                SELECT id, 'INDEX' FROM updated
+            )
+            SELECT id, phone, name, version FROM updated
+            """;
+
+    // xmax is only zero on a freshly inserted row version, which tells an
+    // insert apart from the ON CONFLICT update
+    private static final String UPSERT_SQL = """
+            WITH upserted AS (
+                INSERT INTO phonebook_entry (id, phone, name, version) VALUES (?, ?, ?, 0)
+                ON CONFLICT (phone) DO UPDATE SET name = EXCLUDED.name, version = phonebook_entry.version + 1
+                RETURNING id, phone, name, version, xmax = 0 AS created
+            ), queued AS (
+                INSERT INTO phonebook_outbox (entry_id, operation)
+                SELECT id, 'INDEX' FROM upserted
+            )
+            SELECT id, phone, name, version, created FROM upserted
+            """;
+
+    private static final String UPDATE_BY_PHONE_SQL = """
+            WITH updated AS (
+                UPDATE phonebook_entry SET name = ?, version = version + 1
+                WHERE phone = ? AND version = ?
+                RETURNING id, phone, name, version
+            ), queued AS (
+                INSERT INTO phonebook_outbox (entry_id, operation)
+                SELECT id, 'INDEX' FROM updated
+            )
+            SELECT id, phone, name, version FROM updated
+            """;
+
+    private static final String DELETE_BY_IDS_SQL = """
+            WITH deleted AS (
+                DELETE FROM phonebook_entry WHERE id = ANY(?)
+                RETURNING id, version
+            ), queued AS (
+                INSERT INTO phonebook_outbox (entry_id, operation, entry_version)
+                SELECT id, 'DELETE', version + 1 FROM deleted
+            )
+            SELECT id FROM deleted
+            """;
+
+    // Served by idx_phonebook_entry_phone_pattern; deletes at most limit rows
+    // so a large range is removed in several short transactions
+    private static final String DELETE_BY_PHONE_PREFIX_SQL = """
+            WITH deleted AS (
+                DELETE FROM phonebook_entry WHERE id IN (
+                    SELECT id FROM phonebook_entry WHERE phone LIKE ? LIMIT ?
+                )
+                RETURNING id, version
+            ), queued AS (
+                INSERT INTO phonebook_outbox (entry_id, operation, entry_version)
+                SELECT id, 'DELETE', version + 1 FROM deleted
+            )
+            SELECT id FROM deleted
+            """;
+
+    // Each value is the last of the ALLOCATION_SIZE ids its nextval reserves, see changeset mk:6
+    private static final String NEXT_BLOCKS_SQL =
+            "SELECT nextval('" + PhonebookEntry.SEQUENCE + "') FROM generate_series(1, ?)";
+
+    // One statement, and one cached plan, whatever the number of ids
+    private static final String FIND_BY_IDS_SQL =
+            "SELECT id, phone, name, version FROM phonebook_entry WHERE id = ANY(?)";
+
+    private static final String STREAM_ALL_SQL = "SELECT id, phone, name FROM phonebook_entry ORDER BY id";
+
+    // SHARE mode waits for every transaction that is writing phonebook_entry
+    // and holds new ones off until commit, so no change_seq at or below the
+    // sequence's value can still commit after this reads it (changeset mk:10)
+    private static final String LOCK_ENTRIES_SQL = "LOCK TABLE phonebook_entry IN SHARE MODE";
+    private static final String CHANGE_POSITION_SQL = """
+            SELECT CASE WHEN is_called THEN last_value ELSE 0 END, now()
+            FROM phonebook_entry_change_seq
+            """;
+
+    // Both sides are read in change_seq order from their indexes and merged;
+    // a deleted entry comes back with a null phone
+    private static final String CHANGES_SINCE_SQL = """
+            SELECT id, phone, name, version, change_seq FROM phonebook_entry WHERE change_seq > ?
+            UNION ALL
+            SELECT entry_id, NULL, NULL, NULL, change_seq FROM phonebook_entry_tombstone WHERE change_seq > ?
+            ORDER BY change_seq
+            LIMIT ?
+            """;
+
+    private static final String PRUNE_TOMBSTONES_SQL =
+            "DELETE FROM phonebook_entry_tombstone WHERE deleted_at < now() - make_interval(secs => ?)";
+
+    static final RowMapper<PhonebookEntry> ENTRY_ROW_MAPPER = (rs, rowNum) -> new PhonebookEntry(
+            rs.getLong("id"), rs.getString("phone"), rs.getString("name"), rs.getLong("version"));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.export.fetch-size:1000}")
+    private int fetchSize;
+
+    // The rest of the last reserved block: ids nextId up to blockEnd, exclusive
+    private final ReentrantLock idLock = new ReentrantLock();
+    private long nextId;
+    private long blockEnd;
+
+    /**
+     * Receives one row at a time without materializing an entity
+     */
+    @FunctionalInterface
+    public interface EntryRowHandler {
+        void row(long id, String phone, String name) throws IOException;
+    }
+
+    /**
+     * Insert all rows in a single round-trip, queue them for indexing and
+     * return the rows that were actually inserted. Phones that already exist
+     * are silently skipped.
+     */
+    public List<PhonebookEntry> insertAll(List<String> phones, List<String> names) {
+        return insertAll(phones, names, Duration.ZERO);
+    }
+
+    /**
+     * Like {@link #insertAll(List, List)}, but the statement is cancelled
+     * once it runs longer than timeout, rounded up to whole seconds; zero
+     * means no limit
+     */
+    public List<PhonebookEntry> insertAll(List<String> phones, List<String> names, Duration timeout) {
+        if (phones.isEmpty()) {
+            return List.of();
+        }
+
+        Long[] ids = Arrays.stream(reserveIds(phones.size())).boxed().toArray(Long[]::new);
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_BATCH_SQL);
+            ps.setQueryTimeout((int) Math.min(Integer.MAX_VALUE, (timeout.toMillis() + 999) / 1000));
+            ps.setArray(1, con.createArrayOf("bigint", ids));
+            ps.setArray(2, con.createArrayOf("text", phones.toArray()));
+            ps.setArray(3, con.createArrayOf("text", names.toArray()));
+            return ps;
+        }, ENTRY_ROW_MAPPER);
+    }
+
+    /**
+     * Reserve count unused entry ids. Like Hibernate's pooled optimizer, this hands
+     * out the ALLOCATION_SIZE ids behind each nextval one by one, so a batch
+     * costs one nextval per 50 rows rather than a block per row. The ids of
+     * rows that are skipped on conflict are lost.
+     */
+    long[] reserveIds(int count) {
+        long[] ids = new long[count];
+        int filled = 0;
+        idLock.lock();
+        try {
+            while (filled < count && nextId < blockEnd) {
+                ids[filled++] = nextId++;
+            }
+            if (filled < count) {
+                int blocks = (count - filled + PhonebookEntry.ALLOCATION_SIZE - 1) / PhonebookEntry.ALLOCATION_SIZE;
+                for (Long last : jdbcTemplate.queryForList(NEXT_BLOCKS_SQL, Long.class, blocks)) {
+                    nextId = last - PhonebookEntry.ALLOCATION_SIZE + 1;
+                    blockEnd = last + 1;
+                    while (filled < count && nextId < blockEnd) {
+                        ids[filled++] = nextId++;
+                    }
+                }
+            }
+        } finally {
+            idLock.unlock();
+        }
+        return ids;
+    }
+
+    /**
+     * The entries with the given ids that exist, in no particular order
+     */
+    public List<PhonebookEntry> findAllById(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(FIND_BY_IDS_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", ids.toArray()));
+            return ps;
+        }, ENTRY_ROW_MAPPER);
+    }
+
+    /**
+     * A point in the history of phonebook_entry: every change up to value is
+     * committed. at is the database time it was read.
+     */
+    public record ChangePosition(long value, Instant at) {
+    }
+
+    /**
+     * An entry as it is now, or its id and a null entry if it was deleted,
+     * and the position of its last change
+     */
+    public record Change(long id, PhonebookEntry entry, long position) {
+    }
+
+    /**
+     * Result of {@link #upsertByPhone}: the entry as stored, and whether it was
+     * inserted rather than updated
+     */
+    public record Upserted(PhonebookEntry entry, boolean created) {
+    }
+
+    /**
+     * Update the entry with the given id and bump its version. Null fields
+     * are left unchanged. When expectedVersion is given the row is only
+     * updated at that version. Empty if no row matched.
+     */
+    public Optional<PhonebookEntry> update(long id, String phone, String name, Long expectedVersion) {
+        List<PhonebookEntry> rows = jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(UPDATE_SQL);
+            ps.setString(1, phone);
+            ps.setString(2, name);
+            ps.setLong(3, id);
+            ps.setObject(4, expectedVersion, Types.BIGINT);
+            ps.setObject(5, expectedVersion, Types.BIGINT);
+            return ps;
+        }, ENTRY_ROW_MAPPER);
+        return rows.stream().findFirst();
+    }
+
+    /**
+     * Insert an entry for phone, or rename the existing one. When
+     * expectedVersion is given only an existing entry at that version is
+     * updated, and the result is empty if there is none.
+     */
+    public Optional<Upserted> upsertByPhone(String phone, String name, Long expectedVersion) {
+        if (expectedVersion != null) {
+            return jdbcTemplate.query(UPDATE_BY_PHONE_SQL, ENTRY_ROW_MAPPER, name, phone, expectedVersion).stream()
+                    .findFirst()
+                    .map(entry -> new Upserted(entry, false));
+        }
+
+        // The id is only used if the phone is new
+        List<Upserted> rows = jdbcTemplate.query(UPSERT_SQL,
+                (rs, rowNum) -> new Upserted(ENTRY_ROW_MAPPER.mapRow(rs, rowNum), rs.getBoolean("created")),
+                reserveIds(1)[0], phone, name);
+        return rows.stream().findFirst();
+    }
+
+    /**
+     * Delete the entries with the given ids, queue their removal from the
+     * index, and return the ids that existed
+     */
+    public List<Long> deleteAll(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(DELETE_BY_IDS_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", ids.toArray()));
+            return ps;
+        }, (rs, rowNum) -> rs.getLong(1));
+    }
+
+    /**
+     * Delete up to limit entries whose phone starts with prefix, queue their
+     * removal from the index, and return their ids. The prefix must be
+     * digits only.
+     */
+    public List<Long> deleteByPhonePrefix(String prefix, int limit) {
+        return jdbcTemplate.query(DELETE_BY_PHONE_PREFIX_SQL, (rs, rowNum) -> rs.getLong(1), prefix + "%", limit);
+    }
+
+    /**
+     * Pass every entry, in id order, to handler through a forward-only cursor
+     * that holds at most one fetch of rows in memory. Must run inside a
+     * transaction, otherwise the Postgres driver ignores the fetch size and
+     * reads the whole result at once.
+     */
+    public void streamAll(EntryRowHandler handler) {
+        RowCallbackHandler callback = rs -> {
+            try {
+                handler.row(rs.getLong(1), rs.getString(2), rs.getString(3));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(STREAM_ALL_SQL, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, callback);
+    }
+
+    /**
+     * The current change position. Briefly blocks writers to phonebook_entry
+     * until the transaction ends, so keep it short.
+     */
+    @Transactional
+    public ChangePosition changePosition() {
+        jdbcTemplate.execute(LOCK_ENTRIES_SQL);
+        return jdbcTemplate.queryForObject(CHANGE_POSITION_SQL,
+                (rs, rowNum) -> new ChangePosition(rs.getLong(1), rs.getTimestamp(2).toInstant()));
+    }
+
+    /**
+     * Up to limit changes after the given position, oldest first. Pass the
+     * position of the last one to read on. Deletes are only kept for the
+     * tombstone retention, see {@link #pruneTombstones}.
+     */
+    public List<Change> findChangesSince(long position, int limit) {
+        return jdbcTemplate.query(CHANGES_SINCE_SQL, (rs, rowNum) -> new Change(rs.getLong("id"),
+                rs.getString("phone") != null ? ENTRY_ROW_MAPPER.mapRow(rs, rowNum) : null,
+                rs.getLong("change_seq")), position, position, limit);
+    }
+
+    /**
+     * Forget deletes older than retention and return how many there were
+     */
+    public int pruneTombstones(Duration retention) {
+        return jdbcTemplate.update(PRUNE_TOMBSTONES_SQL, retention.toSeconds());
+    }
+}
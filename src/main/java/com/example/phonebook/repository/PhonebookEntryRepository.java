@@ -1,7 +1,38 @@
 package com.example.phonebook.repository;
 
+import com.example.phonebook.config.HibernateCacheConfig;
 import com.example.phonebook.entity.PhonebookEntry;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 
 public interface PhonebookEntryRepository extends JpaRepository<PhonebookEntry, Long> {
-}
\ No newline at end of file
+
+    // Page ids and counts come from the query cache, the entries themselves
+    // from the entity region. Both are evicted by PhonebookEntrySecondLevelCacheListener.
+    @Override
+    @QueryHints({
+            @QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = AvailableHints.HINT_CACHE_REGION, value = HibernateCacheConfig.ENTRY_PAGES_REGION) })
+    Page<PhonebookEntry> findAll(Pageable pageable);
+
+    // Keyset pagination: seek past the last row seen instead of using OFFSET
+    List<PhonebookEntry> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    @Query(value = """
+            SELECT * FROM phonebook_entry
+            WHERE (name, id) > (:name, :id)
+            ORDER BY name, id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<PhonebookEntry> findByNameAndIdAfter(@Param("name") String name, @Param("id") Long id,
+            @Param("limit") int limit);
+}
@@ -0,0 +1,25 @@
+package com.example.phonebook.repository;
+
+import com.example.phonebook.entity.PhonebookOutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface PhonebookOutboxRepository extends JpaRepository<PhonebookOutboxEvent, Long> {
+
+    // SKIP LOCKED lets several instances drain the outbox without blocking each other
+    @Query(value = """
+            SELECT * FROM phonebook_outbox
+            WHERE next_attempt_at <= now()
+            ORDER BY id
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<PhonebookOutboxEvent> lockNextBatch(@Param("limit") int limit);
+
+    @Query("select min(e.createdAt) from PhonebookOutboxEvent e")
+    Instant findOldestCreatedAt();
+}
@@ -0,0 +1,471 @@
+package com.example.phonebook.search;
+
+import com.example.phonebook.dto.CursorPage;
+import com.example.phonebook.elasticsearch.PhonebookEntryDocument;
+import com.example.phonebook.entity.PhonebookEntry;
+import com.example.phonebook.repository.PhonebookEntryBatchRepository;
+import com.example.phonebook.repository.PhonebookEntryBatchRepository.Change;
+import com.example.phonebook.repository.PhonebookEntryBatchRepository.ChangePosition;
+import com.example.phonebook.repository.PhonebookEntryRepository;
+import com.example.phonebook.service.PhonebookEntryChangedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MultiTerms;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.MultiPhraseQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.StringHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Serves searches from an embedded Lucene index in a memory-mapped directory
+ * on local disk, instead of Elasticsearch. Queries match like the
+ * Elasticsearch engine: every word but the last must match a name word
+ * exactly and in order, the last is a prefix, and phones match by prefix or,
+ * for numbers of at least three digits, anywhere in the number.
+ *
+ * Committed entry changes are written to the index right away and become
+ * searchable within the refresh interval. While running, like the prefix
+ * index, it only follows changes made through this instance.
+ *
+ * Every commit records the database change position
+ * ({@link PhonebookEntryBatchRepository#changePosition}) read before the
+ * index was loaded or last caught up, never a later one: a later position
+ * may cover writes from other instances, or local writes not applied yet. At
+ * startup the index is reopened and every change since that position, from
+ * any instance, is applied from the rows' current state. It is only rebuilt
+ * when the position cannot be replayed: the index is missing or written by
+ * an older release, the position is older than the tombstone retention, so
+ * deletes may have been pruned, or it is ahead of the database.
+ */
+@Component
+@ConditionalOnProperty(name = "app.search.engine", havingValue = "lucene")
+public class LuceneSearchEngine implements PhonebookSearchEngine {
+    private static final Logger log = LoggerFactory.getLogger(LuceneSearchEngine.class);
+
+    static final String ID = "id";
+    static final String ID_SORT = "id_sort";
+    static final String PHONE = "phone";
+    // Every proper suffix of the phone of at least MIN_INFIX_DIGITS digits
+    static final String PHONE_SUFFIX = "phone_suffix";
+    static final String NAME = "name";
+
+    // Commit user data keys: the change position the index is in step with,
+    // the database time it was read in epoch milliseconds, and the document
+    // layout, so an index written by an older release is rebuilt
+    static final String POSITION = "position";
+    static final String POSITION_AT = "position_at";
+    static final String FORMAT = "format";
+    static final String CURRENT_FORMAT = "3";
+
+    static final int MIN_INFIX_DIGITS = 3;
+
+    // Terms the last word of a phrase may expand to, as Elasticsearch's max_expansions
+    private static final int MAX_EXPANSIONS = 50;
+
+    private static final Sort SCORE_THEN_ID = new Sort(SortField.FIELD_SCORE,
+            new SortField(ID_SORT, SortField.Type.LONG));
+
+    @Autowired
+    private PhonebookEntryRepository repository;
+
+    @Autowired
+    private PhonebookEntryBatchRepository batchRepository;
+
+    @Value("${app.search.lucene.path:data/lucene}")
+    private Path path;
+
+    // Upper bound on how long a change takes to become searchable
+    @Value("${app.search.lucene.refresh-interval:500ms}")
+    private Duration refreshInterval;
+
+    @Value("${app.search.lucene.load-batch-size:10000}")
+    private int loadBatchSize;
+
+    // How long deletes can be replayed, see PhonebookTombstonePruner
+    @Value("${app.search.tombstone-retention:7d}")
+    private Duration tombstoneRetention;
+
+    private final Analyzer analyzer = new StandardAnalyzer(CharArraySet.EMPTY_SET);
+    private Directory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    private ControlledRealTimeReopenThread<IndexSearcher> reopenThread;
+
+    // Read before the index was loaded or caught up
+    private ChangePosition position;
+
+    @PostConstruct
+    void open() throws IOException {
+        long start = System.nanoTime();
+        Files.createDirectories(path);
+        directory = new MMapDirectory(path);
+
+        // Read before loading: a write committed during the load lies past it
+        // and is replayed at the next start
+        ChangePosition current = batchRepository.changePosition();
+        Map<String, String> committed = DirectoryReader.indexExists(directory)
+                ? SegmentInfos.readLatestCommit(directory).getUserData()
+                : Map.of();
+        Long replayFrom = replayablePosition(committed, current);
+
+        IndexWriterConfig config = new IndexWriterConfig(analyzer).setOpenMode(
+                replayFrom != null ? IndexWriterConfig.OpenMode.APPEND : IndexWriterConfig.OpenMode.CREATE);
+        writer = new IndexWriter(directory, config);
+        int replayed = 0;
+        if (replayFrom != null) {
+            replayed = catchUp(replayFrom);
+        } else {
+            load();
+        }
+        position = current;
+        commit();
+
+        searcherManager = new SearcherManager(writer, null);
+        reopenThread = new ControlledRealTimeReopenThread<>(writer, searcherManager,
+                refreshInterval.toNanos() / 1e9, 0.01);
+        reopenThread.setName("phonebook-lucene-reopen");
+        reopenThread.setDaemon(true);
+        reopenThread.start();
+
+        if (replayFrom != null) {
+            log.info("Reopened Lucene index at {} with {} entries and replayed {} changes in {} ms", path,
+                    writer.getDocStats().numDocs, replayed, (System.nanoTime() - start) / 1_000_000);
+        } else {
+            log.info("Rebuilt Lucene index at {} with {} entries in {} ms", path, writer.getDocStats().numDocs,
+                    (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    /**
+     * The position the committed index can catch up from, or null if it has
+     * to be rebuilt
+     */
+    private Long replayablePosition(Map<String, String> committed, ChangePosition current) {
+        String value = committed.get(POSITION);
+        String at = committed.get(POSITION_AT);
+        if (!CURRENT_FORMAT.equals(committed.get(FORMAT)) || value == null || at == null) {
+            return null;
+        }
+        long replayFrom = Long.parseLong(value);
+        if (replayFrom > current.value()) {
+            log.warn("Lucene index is ahead of the database at change {}, rebuilding", replayFrom);
+            return null;
+        }
+        if (Instant.ofEpochMilli(Long.parseLong(at)).isBefore(current.at().minus(tombstoneRetention))) {
+            log.info("Lucene index is older than the tombstone retention of {}, rebuilding", tombstoneRetention);
+            return null;
+        }
+        return replayFrom;
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        reopenThread.close();
+        commit();
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    /**
+     * Make the changes so far durable. They keep the position read at
+     * startup, so a restart replays them with every other change since.
+     */
+    @Scheduled(fixedDelayString = "${app.search.lucene.commit-interval-ms:10000}")
+    public void commitChanges() throws IOException {
+        if (writer.hasUncommittedChanges()) {
+            commit();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntryChanged(PhonebookEntryChangedEvent event) {
+        try {
+            apply(event.id(), event.type() == PhonebookEntryChangedEvent.Type.DELETED ? null : event.entry());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Page<PhonebookEntryDocument> search(String keyword, Pageable pageable) {
+        return withSearcher(searcher -> {
+            Query query = query(searcher.getIndexReader(), keyword);
+            int offset = (int) Math.min(pageable.getOffset(), Integer.MAX_VALUE - pageable.getPageSize());
+            TopDocs top = searcher.search(query, Math.max(1, offset + pageable.getPageSize()), SCORE_THEN_ID,
+                    false);
+            List<PhonebookEntryDocument> content = documents(searcher, top.scoreDocs, offset, top.scoreDocs.length);
+            return new PageImpl<>(content, pageable, searcher.count(query));
+        });
+    }
+
+    /**
+     * searchAfter on score, then id, as the Elasticsearch engine does. There
+     * is no point in time; every page reads the latest searcher.
+     */
+    @Override
+    public CursorPage<PhonebookEntryDocument> searchAfter(String keyword, String cursor, int limit,
+            boolean pointInTime) {
+        FieldDoc after = cursor != null ? decodeCursor(cursor) : null;
+        return withSearcher(searcher -> {
+            // One extra hit tells whether there is a next page
+            TopDocs top = searcher.searchAfter(after, query(searcher.getIndexReader(), keyword), limit + 1,
+                    SCORE_THEN_ID, false);
+            if (top.scoreDocs.length <= limit) {
+                return new CursorPage<>(documents(searcher, top.scoreDocs, 0, top.scoreDocs.length), null);
+            }
+            FieldDoc last = (FieldDoc) top.scoreDocs[limit - 1];
+            return new CursorPage<>(documents(searcher, top.scoreDocs, 0, limit),
+                    encodeCursor((Float) last.fields[0], (Long) last.fields[1]));
+        });
+    }
+
+    /**
+     * The best matches only: hits beyond limit are not counted
+     */
+    @Override
+    public List<PhonebookEntryDocument> suggest(String prefix, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        return withSearcher(searcher -> {
+            TopDocs top = searcher.search(query(searcher.getIndexReader(), prefix), limit);
+            return documents(searcher, top.scoreDocs, 0, top.scoreDocs.length);
+        });
+    }
+
+    private void load() throws IOException {
+        long lastId = 0;
+        List<PhonebookEntry> batch;
+        do {
+            batch = repository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(loadBatchSize));
+            for (PhonebookEntry entry : batch) {
+                writer.addDocument(document(entry));
+                lastId = entry.getId();
+            }
+        } while (batch.size() == loadBatchSize);
+    }
+
+    /**
+     * Apply the changes after the given position in batches, each from the
+     * entry's current state, and return how many there were
+     */
+    private int catchUp(long from) throws IOException {
+        int replayed = 0;
+        List<Change> batch;
+        do {
+            batch = batchRepository.findChangesSince(from, loadBatchSize);
+            for (Change change : batch) {
+                apply(change.id(), change.entry());
+                from = change.position();
+            }
+            replayed += batch.size();
+        } while (batch.size() == loadBatchSize);
+        return replayed;
+    }
+
+    /**
+     * Index the entry, or remove the document when entry is null
+     */
+    private void apply(long entryId, PhonebookEntry entry) throws IOException {
+        Term id = new Term(ID, Long.toString(entryId));
+        if (entry == null) {
+            writer.deleteDocuments(id);
+        } else {
+            writer.updateDocument(id, document(entry));
+        }
+    }
+
+    private void commit() throws IOException {
+        writer.setLiveCommitData(Map.of(POSITION, Long.toString(position.value()),
+                POSITION_AT, Long.toString(position.at().toEpochMilli()), FORMAT, CURRENT_FORMAT).entrySet());
+        writer.commit();
+    }
+
+    private static Document document(PhonebookEntry entry) {
+        Document document = new Document();
+        document.add(new StringField(ID, Long.toString(entry.getId()), Field.Store.YES));
+        document.add(new NumericDocValuesField(ID_SORT, entry.getId()));
+        document.add(new StringField(PHONE, entry.getPhone(), Field.Store.YES));
+        for (int start = 1; start <= entry.getPhone().length() - MIN_INFIX_DIGITS; start++) {
+            document.add(new StringField(PHONE_SUFFIX, entry.getPhone().substring(start), Field.Store.NO));
+        }
+        document.add(new TextField(NAME, entry.getName(), Field.Store.YES));
+        return document;
+    }
+
+    /**
+     * Name phrase-prefix, phone prefix, or a number inside the phone. The
+     * keyword is analyzed like the names; the sanitizer's escaped apostrophe
+     * is turned back first.
+     */
+    Query query(IndexReader reader, String keyword) throws IOException {
+        String text = keyword.replace("&#x27;", "'").trim();
+        List<String> words = analyze(text);
+        if (words.isEmpty()) {
+            return new MatchNoDocsQuery();
+        }
+
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        query.add(namePhrasePrefix(reader, words), BooleanClause.Occur.SHOULD);
+        if (text.chars().allMatch(Character::isDigit)) {
+            query.add(new PrefixQuery(new Term(PHONE, text)), BooleanClause.Occur.SHOULD);
+            if (text.length() >= MIN_INFIX_DIGITS) {
+                query.add(new PrefixQuery(new Term(PHONE_SUFFIX, text)), BooleanClause.Occur.SHOULD);
+            }
+        }
+        return query.build();
+    }
+
+    private static Query namePhrasePrefix(IndexReader reader, List<String> words) throws IOException {
+        String last = words.get(words.size() - 1);
+        if (words.size() == 1) {
+            return new PrefixQuery(new Term(NAME, last));
+        }
+
+        List<Term> expansions = new ArrayList<>();
+        Terms terms = MultiTerms.getTerms(reader, NAME);
+        if (terms != null) {
+            BytesRef prefix = new BytesRef(last);
+            TermsEnum termsEnum = terms.iterator();
+            if (termsEnum.seekCeil(prefix) != TermsEnum.SeekStatus.END) {
+                do {
+                    BytesRef term = termsEnum.term();
+                    if (!StringHelper.startsWith(term, prefix)) {
+                        break;
+                    }
+                    expansions.add(new Term(NAME, BytesRef.deepCopyOf(term)));
+                } while (expansions.size() < MAX_EXPANSIONS && termsEnum.next() != null);
+            }
+        }
+        if (expansions.isEmpty()) {
+            return new MatchNoDocsQuery();
+        }
+
+        MultiPhraseQuery.Builder phrase = new MultiPhraseQuery.Builder();
+        for (String word : words.subList(0, words.size() - 1)) {
+            phrase.add(new Term(NAME, word));
+        }
+        phrase.add(expansions.toArray(new Term[0]));
+        return phrase.build();
+    }
+
+    private List<String> analyze(String text) throws IOException {
+        List<String> words = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream(NAME, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                words.add(term.toString());
+            }
+            stream.end();
+        }
+        return words;
+    }
+
+    private static List<PhonebookEntryDocument> documents(IndexSearcher searcher, ScoreDoc[] hits, int from, int to)
+            throws IOException {
+        StoredFields storedFields = searcher.storedFields();
+        List<PhonebookEntryDocument> documents = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            Document document = storedFields.document(hits[i].doc);
+            documents.add(new PhonebookEntryDocument(document.get(ID), document.get(PHONE), document.get(NAME)));
+        }
+        return documents;
+    }
+
+    @FunctionalInterface
+    private interface SearcherCall<T> {
+        T apply(IndexSearcher searcher) throws IOException;
+    }
+
+    private <T> T withSearcher(SearcherCall<T> call) {
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                return call.apply(searcher);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String encodeCursor(float score, long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((score + ":" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static FieldDoc decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            if (separator > 0) {
+                float score = Float.parseFloat(raw.substring(0, separator));
+                long id = Long.parseLong(raw.substring(separator + 1));
+                return new FieldDoc(Integer.MAX_VALUE, score, new Object[] { score, id });
+            }
+        } catch (IllegalArgumentException e) {
+            // Malformed Base64, score or id, reported below
+        }
+        throw new IllegalArgumentException("Invalid cursor");
+    }
+}
@@ -0,0 +1,314 @@
+package com.example.phonebook.search;
+
+import com.example.phonebook.util.LongIntHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory phrase-prefix index over entry names and phone numbers.
+ *
+ * Every name is stored once per token position ("mary jane smith", "jane
+ * smith", "smith"), so a phrase-prefix query such as "jane sm" becomes a
+ * single prefix lookup, mirroring Elasticsearch's match_phrase_prefix. Phones
+ * are stored as-is, and each proper suffix of at least MIN_INFIX_DIGITS
+ * digits in a separate trie, so a number also matches inside a phone as it
+ * does in the Elasticsearch engine. Entries live in parallel arrays addressed
+ * by an int ordinal, which is what the tries store.
+ */
+public final class PhonebookPrefixIndex {
+    static final int MIN_INFIX_DIGITS = 3;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final RadixTrie nameTrie = new RadixTrie();
+    private final RadixTrie phoneTrie = new RadixTrie();
+    private final RadixTrie phoneSuffixTrie = new RadixTrie();
+    private final LongIntHashMap ordinalsById;
+
+    private long[] ids;
+    private String[] phones;
+    private String[] names;
+    private int[] freeOrdinals = new int[16];
+    private int freeCount;
+    private int nextOrdinal;
+
+    public record Hit(long id, String phone, String name) {
+    }
+
+    public record Result(List<Hit> hits, boolean more) {
+    }
+
+    public PhonebookPrefixIndex(int expectedSize) {
+        int capacity = Math.max(16, expectedSize);
+        ids = new long[capacity];
+        phones = new String[capacity];
+        names = new String[capacity];
+        ordinalsById = new LongIntHashMap(capacity);
+    }
+
+    /**
+     * Insert or replace the entry with the given id
+     */
+    public void put(long id, String phone, String name) {
+        lock.writeLock().lock();
+        try {
+            int ordinal = ordinalsById.get(id, -1);
+            if (ordinal >= 0) {
+                unindex(ordinal);
+            } else {
+                ordinal = allocateOrdinal();
+                ordinalsById.put(id, ordinal);
+            }
+
+            ids[ordinal] = id;
+            phones[ordinal] = phone;
+            names[ordinal] = name;
+            for (String key : nameKeys(name)) {
+                nameTrie.add(key, ordinal);
+            }
+            if (phone != null) {
+                phoneTrie.add(phone, ordinal);
+                for (String suffix : phoneSuffixes(phone)) {
+                    phoneSuffixTrie.add(suffix, ordinal);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            int ordinal = ordinalsById.get(id, -1);
+            if (ordinal < 0) {
+                return;
+            }
+            unindex(ordinal);
+            ordinalsById.remove(id);
+            phones[ordinal] = null;
+            names[ordinal] = null;
+            if (freeCount == freeOrdinals.length) {
+                freeOrdinals = Arrays.copyOf(freeOrdinals, freeCount * 2);
+            }
+            freeOrdinals[freeCount++] = ordinal;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalsById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int nodeCount() {
+        lock.readLock().lock();
+        try {
+            return nameTrie.nodeCount() + phoneTrie.nodeCount() + phoneSuffixTrie.nodeCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Entries whose name contains the keyword as a phrase prefix, or whose
+     * phone starts with it or, for a number of at least MIN_INFIX_DIGITS
+     * digits, contains it, in key order with name matches first, skipping
+     * the first offset. The walk stops one match past the page, which tells
+     * whether there are more; nothing beyond that is visited.
+     */
+    public Result search(String keyword, int offset, int limit) {
+        String query = normalize(keyword);
+        if (query.isEmpty() || limit <= 0) {
+            return new Result(List.of(), false);
+        }
+
+        lock.readLock().lock();
+        try {
+            List<Hit> hits = collect(query, offset, (long) limit + 1);
+            boolean more = hits.size() > limit;
+            return new Result(more ? hits.subList(0, limit) : hits, more);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The number of entries {@link #search} matches, counting no further
+     * than max
+     */
+    public int count(String keyword, int max) {
+        String query = normalize(keyword);
+        if (query.isEmpty() || max <= 0) {
+            return 0;
+        }
+
+        lock.readLock().lock();
+        try {
+            BitSet seen = new BitSet();
+            int[] count = new int[1];
+            RadixTrie.KeyVisitor counter = (key, postings, postingCount) -> {
+                for (int i = 0; i < postingCount && count[0] < max; i++) {
+                    if (!seen.get(postings[i])) {
+                        seen.set(postings[i]);
+                        count[0]++;
+                    }
+                }
+                return count[0] < max;
+            };
+            nameTrie.visit(query, counter);
+            if (count[0] < max) {
+                phoneTrie.visit(query, counter);
+            }
+            if (count[0] < max && matchesInsidePhones(query)) {
+                phoneSuffixTrie.visit(query, counter);
+            }
+            return count[0];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Up to limit entries matching like {@link #search}. Keys are visited in
+     * order and the walk stops once limit entries are found, so the cost does
+     * not grow with the number of matches.
+     */
+    public List<Hit> suggest(String keyword, int limit) {
+        String query = normalize(keyword);
+        if (query.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            return collect(query, 0, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Distinct matches from offset on, at most limit of them; the caller
+     * holds the read lock
+     */
+    private List<Hit> collect(String query, int offset, long limit) {
+        long wanted = offset + limit;
+        BitSet seen = new BitSet();
+        int[] count = new int[1];
+        List<Hit> hits = new ArrayList<>((int) Math.min(limit, 64));
+        RadixTrie.KeyVisitor collector = (key, postings, postingCount) -> {
+            for (int i = 0; i < postingCount && count[0] < wanted; i++) {
+                int ordinal = postings[i];
+                if (!seen.get(ordinal)) {
+                    seen.set(ordinal);
+                    if (count[0]++ >= offset) {
+                        hits.add(new Hit(ids[ordinal], phones[ordinal], names[ordinal]));
+                    }
+                }
+            }
+            return count[0] < wanted;
+        };
+        nameTrie.visit(query, collector);
+        if (count[0] < wanted) {
+            phoneTrie.visit(query, collector);
+        }
+        if (count[0] < wanted && matchesInsidePhones(query)) {
+            phoneSuffixTrie.visit(query, collector);
+        }
+        return hits;
+    }
+
+    private static boolean matchesInsidePhones(String query) {
+        return query.length() >= MIN_INFIX_DIGITS && query.chars().allMatch(Character::isDigit);
+    }
+
+    /**
+     * Lowercased tokens joined by single spaces. Keywords arrive HTML-escaped
+     * from InputSanitizer, so the escaped apostrophe is turned back first.
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String unescaped = text.replace("&#x27;", "'");
+        StringBuilder normalized = new StringBuilder(unescaped.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < unescaped.length(); i++) {
+            char c = unescaped.charAt(i);
+            if (Character.isLetterOrDigit(c) || c == '\'') {
+                if (pendingSpace && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                pendingSpace = false;
+                normalized.append(Character.toLowerCase(c));
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * One key per token position: the normalized name and each of its suffixes
+     * that starts at a token boundary
+     */
+    static List<String> nameKeys(String name) {
+        String normalized = normalize(name);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        List<String> keys = new ArrayList<>(3);
+        keys.add(normalized);
+        for (int i = normalized.indexOf(' '); i >= 0; i = normalized.indexOf(' ', i + 1)) {
+            keys.add(normalized.substring(i + 1));
+        }
+        return keys;
+    }
+
+    /**
+     * Every suffix of the phone that starts after its first digit and is at
+     * least MIN_INFIX_DIGITS long; the whole phone is in the phone trie
+     */
+    static List<String> phoneSuffixes(String phone) {
+        List<String> suffixes = new ArrayList<>(Math.max(0, phone.length() - MIN_INFIX_DIGITS));
+        for (int start = 1; start <= phone.length() - MIN_INFIX_DIGITS; start++) {
+            suffixes.add(phone.substring(start));
+        }
+        return suffixes;
+    }
+
+    private void unindex(int ordinal) {
+        for (String key : nameKeys(names[ordinal])) {
+            nameTrie.remove(key, ordinal);
+        }
+        if (phones[ordinal] != null) {
+            phoneTrie.remove(phones[ordinal], ordinal);
+            for (String suffix : phoneSuffixes(phones[ordinal])) {
+                phoneSuffixTrie.remove(suffix, ordinal);
+            }
+        }
+    }
+
+    private int allocateOrdinal() {
+        if (freeCount > 0) {
+            return freeOrdinals[--freeCount];
+        }
+        if (nextOrdinal == ids.length) {
+            int capacity = ids.length + (ids.length >> 1);
+            ids = Arrays.copyOf(ids, capacity);
+            phones = Arrays.copyOf(phones, capacity);
+            names = Arrays.copyOf(names, capacity);
+        }
+        return nextOrdinal++;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.phonebook.search;
+
+import com.example.phonebook.dto.CursorPage;
+import com.example.phonebook.elasticsearch.PhonebookEntryDocument;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * Backend answering name/phone phrase-prefix searches. The implementation is
+ * chosen with the app.search.engine property.
+ */
+public interface PhonebookSearchEngine {
+    Page<PhonebookEntryDocument> search(String keyword, Pageable pageable);
+
+    /**
+     * Up to limit matches following the opaque cursor of the previous page,
+     * or the first page when cursor is null. No total is counted and a page
+     * costs about the same at any depth. With pointInTime, every page of the
+     * scan sees the index as it was on the first page, where supported.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    CursorPage<PhonebookEntryDocument> searchAfter(String keyword, String cursor, int limit, boolean pointInTime);
+
+    /**
+     * Up to limit entries whose phone, or a word of whose name, starts with
+     * prefix. Backed by an index-time structure and does not count matches.
+     */
+    List<PhonebookEntryDocument> suggest(String prefix, int limit);
+}
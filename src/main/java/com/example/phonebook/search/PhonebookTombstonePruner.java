@@ -0,0 +1,40 @@
+package com.example.phonebook.search;
+
+import com.example.phonebook.repository.PhonebookEntryBatchRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Forgets deleted entries once no index can still replay them. An index
+ * whose change position is older than the retention is rebuilt instead of
+ * caught up (see {@link LuceneSearchEngine}). Runs whatever the search
+ * engine, since every delete leaves a tombstone.
+ */
+@Component
+public class PhonebookTombstonePruner {
+    private static final Logger log = LoggerFactory.getLogger(PhonebookTombstonePruner.class);
+
+    @Autowired
+    private PhonebookEntryBatchRepository batchRepository;
+
+    @Value("${app.search.tombstone-retention:7d}")
+    private Duration retention;
+
+    @Scheduled(cron = "${app.search.tombstone-prune-cron:0 30 * * * *}")
+    public void prune() {
+        try {
+            int pruned = batchRepository.pruneTombstones(retention);
+            if (pruned > 0) {
+                log.debug("Pruned {} tombstones older than {}", pruned, retention);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Tombstone pruning failed: {}", e.getMessage());
+        }
+    }
+}
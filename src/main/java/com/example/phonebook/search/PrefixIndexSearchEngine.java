@@ -0,0 +1,129 @@
+package com.example.phonebook.search;
+
+import com.example.phonebook.dto.CursorPage;
+import com.example.phonebook.elasticsearch.PhonebookEntryDocument;
+import com.example.phonebook.entity.PhonebookEntry;
+import com.example.phonebook.repository.PhonebookEntryRepository;
+import com.example.phonebook.service.PhonebookEntryChangedEvent;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Serves searches from an in-process {@link PhonebookPrefixIndex} instead of
+ * Elasticsearch. The index is loaded from Postgres before the application
+ * starts serving requests and follows every committed entry change.
+ */
+@Component
+@ConditionalOnProperty(name = "app.search.engine", havingValue = "prefix-index")
+public class PrefixIndexSearchEngine implements PhonebookSearchEngine {
+    private static final Logger log = LoggerFactory.getLogger(PrefixIndexSearchEngine.class);
+
+    @Autowired
+    private PhonebookEntryRepository repository;
+
+    @Value("${app.search.prefix-index.load-batch-size:10000}")
+    private int loadBatchSize;
+
+    // Page totals are counted no further than this, like Elasticsearch's track_total_hits
+    @Value("${app.search.prefix-index.max-total:10000}")
+    private int maxTotal;
+
+    private PhonebookPrefixIndex index;
+
+    @PostConstruct
+    void load() {
+        long start = System.nanoTime();
+        index = new PhonebookPrefixIndex((int) Math.min(Integer.MAX_VALUE - 8, repository.count()));
+
+        // Keyset scan so memory stays bounded by one batch while loading
+        long lastId = 0;
+        List<PhonebookEntry> batch;
+        do {
+            batch = repository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(loadBatchSize));
+            for (PhonebookEntry entry : batch) {
+                index.put(entry.getId(), entry.getPhone(), entry.getName());
+                lastId = entry.getId();
+            }
+        } while (batch.size() == loadBatchSize);
+
+        log.info("Loaded {} entries into the prefix index in {} ms ({} trie nodes)", index.size(),
+                (System.nanoTime() - start) / 1_000_000, index.nodeCount());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntryChanged(PhonebookEntryChangedEvent event) {
+        if (event.type() == PhonebookEntryChangedEvent.Type.DELETED) {
+            index.remove(event.id());
+        } else {
+            index.put(event.id(), event.entry().getPhone(), event.entry().getName());
+        }
+    }
+
+    @Override
+    public Page<PhonebookEntryDocument> search(String keyword, Pageable pageable) {
+        PhonebookPrefixIndex.Result result = index.search(keyword, (int) Math.min(pageable.getOffset(),
+                Integer.MAX_VALUE), pageable.getPageSize());
+        List<PhonebookEntryDocument> content = result.hits().stream()
+                .map(hit -> new PhonebookEntryDocument(Long.toString(hit.id()), hit.phone(), hit.name()))
+                .toList();
+        // Only counted when the page itself does not tell the total
+        return PageableExecutionUtils.getPage(content, pageable, () -> index.count(keyword, maxTotal));
+    }
+
+    /**
+     * The cursor is an offset: skipping matches in memory is cheap next to a
+     * remote call. There is no point in time, so entries changed between
+     * pages may be skipped or repeated.
+     */
+    @Override
+    public CursorPage<PhonebookEntryDocument> searchAfter(String keyword, String cursor, int limit,
+            boolean pointInTime) {
+        int offset = cursor != null ? decodeOffset(cursor) : 0;
+        PhonebookPrefixIndex.Result result = index.search(keyword, offset, limit);
+        List<PhonebookEntryDocument> content = result.hits().stream()
+                .map(hit -> new PhonebookEntryDocument(Long.toString(hit.id()), hit.phone(), hit.name()))
+                .toList();
+        return new CursorPage<>(content, result.more() ? encodeOffset(offset + content.size()) : null);
+    }
+
+    @Override
+    public List<PhonebookEntryDocument> suggest(String prefix, int limit) {
+        return index.suggest(prefix, limit).stream()
+                .map(hit -> new PhonebookEntryDocument(Long.toString(hit.id()), hit.phone(), hit.name()))
+                .toList();
+    }
+
+    static String encodeOffset(int offset) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(("o:" + offset).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static int decodeOffset(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (raw.startsWith("o:")) {
+                int offset = Integer.parseInt(raw.substring(2));
+                if (offset >= 0) {
+                    return offset;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // Malformed Base64 or offset, reported below
+        }
+        throw new IllegalArgumentException("Invalid cursor");
+    }
+}
@@ -0,0 +1,238 @@
+package com.example.phonebook.search;
+
+import java.util.Arrays;
+
+/**
+ * Compressed (radix) trie from string keys to int postings. Edges carry whole
+ * substrings, so a chain of single-child nodes collapses into one node.
+ * Not thread-safe; callers synchronize.
+ */
+final class RadixTrie {
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final int[] NO_POSTINGS = new int[0];
+
+    private final Node root = new Node("");
+    private int nodeCount = 1;
+
+    private static final class Node {
+        String label;
+        Node[] children = NO_CHILDREN;
+        int[] postings = NO_POSTINGS;
+        int postingCount;
+
+        Node(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * Add a posting under the given key
+     */
+    void add(String key, int posting) {
+        Node node = root;
+        int offset = 0;
+
+        while (offset < key.length()) {
+            int index = childIndex(node, key.charAt(offset));
+            if (index < 0) {
+                Node leaf = new Node(key.substring(offset));
+                insertChild(node, -index - 1, leaf);
+                node = leaf;
+                offset = key.length();
+                break;
+            }
+
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, key, offset);
+            if (common < child.label.length()) {
+                // Split the edge: child keeps the tail of its label under a new intermediate node
+                Node middle = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.children = new Node[] { child };
+                node.children[index] = middle;
+                nodeCount++;
+                child = middle;
+            }
+            node = child;
+            offset += common;
+        }
+
+        addPosting(node, posting);
+    }
+
+    /**
+     * Remove a posting from the given key, pruning nodes that become empty
+     */
+    void remove(String key, int posting) {
+        Node[] path = new Node[key.length() + 1];
+        int depth = 0;
+        Node node = root;
+        int offset = 0;
+        path[depth++] = node;
+
+        while (offset < key.length()) {
+            int index = childIndex(node, key.charAt(offset));
+            if (index < 0) {
+                return;
+            }
+            Node child = node.children[index];
+            if (!key.startsWith(child.label, offset)) {
+                return;
+            }
+            node = child;
+            offset += child.label.length();
+            path[depth++] = node;
+        }
+
+        if (!removePosting(node, posting)) {
+            return;
+        }
+
+        // Walk back up, dropping empty leaves and merging pass-through nodes
+        for (int i = depth - 1; i > 0; i--) {
+            Node current = path[i];
+            Node parent = path[i - 1];
+            if (current.postingCount == 0 && current.children.length == 0) {
+                removeChild(parent, current);
+                nodeCount--;
+            } else if (current.postingCount == 0 && current.children.length == 1) {
+                Node only = current.children[0];
+                current.label = current.label + only.label;
+                current.children = only.children;
+                current.postings = only.postings;
+                current.postingCount = only.postingCount;
+                nodeCount--;
+                break;
+            } else {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Visit keys starting with prefix in lexicographic order, stopping once the
+     * visitor returns false. Each visit receives the full key and its postings.
+     */
+    void visit(String prefix, KeyVisitor visitor) {
+        Node node = root;
+        int offset = 0;
+        StringBuilder key = new StringBuilder(prefix.length() + 16);
+
+        while (offset < prefix.length()) {
+            int index = childIndex(node, prefix.charAt(offset));
+            if (index < 0) {
+                return;
+            }
+            Node child = node.children[index];
+            int common = commonPrefix(child.label, prefix, offset);
+            if (offset + common == prefix.length()) {
+                key.append(child.label);
+                node = child;
+                break;
+            }
+            if (common < child.label.length()) {
+                return;
+            }
+            key.append(child.label);
+            node = child;
+            offset += common;
+        }
+
+        visitSubtree(node, key, visitor);
+    }
+
+    interface KeyVisitor {
+        boolean visit(CharSequence key, int[] postings, int postingCount);
+    }
+
+    int nodeCount() {
+        return nodeCount;
+    }
+
+    private static boolean visitSubtree(Node node, StringBuilder key, KeyVisitor visitor) {
+        if (node.postingCount > 0 && !visitor.visit(key, node.postings, node.postingCount)) {
+            return false;
+        }
+        for (Node child : node.children) {
+            int length = key.length();
+            key.append(child.label);
+            boolean more = visitSubtree(child, key, visitor);
+            key.setLength(length);
+            if (!more) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Binary search over children by first label character; negative when absent
+     */
+    private static int childIndex(Node node, char c) {
+        int low = 0;
+        int high = node.children.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midChar = node.children[mid].label.charAt(0);
+            if (midChar < c) {
+                low = mid + 1;
+            } else if (midChar > c) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void insertChild(Node parent, int position, Node child) {
+        Node[] children = new Node[parent.children.length + 1];
+        System.arraycopy(parent.children, 0, children, 0, position);
+        children[position] = child;
+        System.arraycopy(parent.children, position, children, position + 1, parent.children.length - position);
+        parent.children = children;
+        nodeCount++;
+    }
+
+    private static void removeChild(Node parent, Node child) {
+        int index = childIndex(parent, child.label.charAt(0));
+        Node[] children = new Node[parent.children.length - 1];
+        System.arraycopy(parent.children, 0, children, 0, index);
+        System.arraycopy(parent.children, index + 1, children, index, children.length - index);
+        parent.children = children.length == 0 ? NO_CHILDREN : children;
+    }
+
+    private static void addPosting(Node node, int posting) {
+        for (int i = 0; i < node.postingCount; i++) {
+            if (node.postings[i] == posting) {
+                return;
+            }
+        }
+        if (node.postingCount == node.postings.length) {
+            node.postings = Arrays.copyOf(node.postings, Math.max(2, node.postingCount * 2));
+        }
+        node.postings[node.postingCount++] = posting;
+    }
+
+    private static boolean removePosting(Node node, int posting) {
+        for (int i = 0; i < node.postingCount; i++) {
+            if (node.postings[i] == posting) {
+                node.postings[i] = node.postings[--node.postingCount];
+                if (node.postingCount == 0) {
+                    node.postings = NO_POSTINGS;
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+}
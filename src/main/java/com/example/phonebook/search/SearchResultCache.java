@@ -0,0 +1,376 @@
+package com.example.phonebook.search;
+
+import com.example.phonebook.elasticsearch.PhonebookEntryDocument;
+import com.example.phonebook.entity.PhonebookEntry;
+import com.example.phonebook.service.PhonebookEntryChangedEvent;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Caches search result pages by normalized keyword, page and size. When
+ * several requests miss on the same key at once, they share one backend
+ * request: the first caller runs it outside any cache lock, and the others
+ * wait on its future. A committed entry change only drops the pages it can affect:
+ * <ul>
+ * <li>pages that contain the entry;</li>
+ * <li>pages whose keyword's first word is a prefix of a word in the
+ * entry's name or phone, or any part of a number in it.</li>
+ * </ul>
+ * The search index trails the database, so a page loaded soon after a
+ * matching change is only kept until the index should have caught up.
+ */
+@Component
+public class SearchResultCache {
+    // Rough heap cost of a cached page and of each document on it, on top of their strings
+    private static final int PAGE_OVERHEAD_BYTES = 256;
+    private static final int DOCUMENT_OVERHEAD_BYTES = 160;
+
+    // Beyond this many recent changes, every new page is treated as affected
+    private static final int MAX_RECENT_CHANGES = 10_000;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.search.cache.ttl:10s}")
+    private Duration ttl;
+
+    @Value("${app.search.cache.max-bytes:33554432}")
+    private long maxBytes;
+
+    // How long a committed change may take to become visible in search
+    @Value("${app.search.cache.index-lag:3s}")
+    private Duration indexLag;
+
+    record Key(String keyword, int page, int size) {
+    }
+
+    // words is empty for a deleted entry
+    private record Change(long id, List<String> words, long atNanos) {
+    }
+
+    private AsyncCache<Key, Page<PhonebookEntryDocument>> cache;
+
+    // Secondary indexes over the cached keys, used to find the pages a change affects
+    private final Map<String, Set<Key>> keysByWord = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Key>> keysByEntry = new ConcurrentHashMap<>();
+
+    private final Deque<Change> recentChanges = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger recentChangeCount = new AtomicInteger();
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher(SearchResultCache::weigh)
+                .expireAfter(new Expiry<Key, Page<PhonebookEntryDocument>>() {
+                    @Override
+                    public long expireAfterCreate(Key key, Page<PhonebookEntryDocument> page, long currentTime) {
+                        return lifetimeNanos(key, page, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Key key, Page<PhonebookEntryDocument> page, long currentTime,
+                            long currentDuration) {
+                        return lifetimeNanos(key, page, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Key key, Page<PhonebookEntryDocument> page, long currentTime,
+                            long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                // Run on the removing thread so the key indexes never lag behind the cache
+                .executor(Runnable::run)
+                .removalListener((Key key, Page<PhonebookEntryDocument> page, RemovalCause cause) -> {
+                    // For a page invalidated while loading, called once the load completes
+                    if (key != null && page != null) {
+                        unregister(key, page);
+                    }
+                })
+                .recordStats()
+                .buildAsync();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "phonebookSearch");
+        Gauge.builder("phonebook.search.cache.hit.ratio", cache, c -> c.synchronous().stats().hitRate())
+                .description("Share of search requests answered from the cache")
+                .register(meterRegistry);
+        Gauge.builder("phonebook.search.cache.memory", cache,
+                c -> c.synchronous().policy().eviction()
+                        .map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L))
+                .description("Estimated heap used by cached search pages")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The cached page for keyword, or the one loader returns. Concurrent
+     * calls for the same key wait for a single load. keyword must already
+     * be normalized.
+     */
+    public Page<PhonebookEntryDocument> get(String keyword, int page, int size,
+            Supplier<Page<PhonebookEntryDocument>> loader) {
+        Key key = new Key(keyword, page, size);
+        // Only creating the future runs inside the map's compute; the backend
+        // call below does not hold a hash-bin lock
+        CompletableFuture<Page<PhonebookEntryDocument>> loading = new CompletableFuture<>();
+        CompletableFuture<Page<PhonebookEntryDocument>> cached = cache.get(key, (k, executor) -> loading);
+        if (cached != loading) {
+            return join(cached);
+        }
+
+        // Registered by keyword before the load, so a matching change that
+        // commits during it drops the pending page
+        registerKeyword(key);
+        Page<PhonebookEntryDocument> loaded;
+        try {
+            loaded = loader.get();
+        } catch (RuntimeException e) {
+            loading.completeExceptionally(e);
+            unregister(key, null);
+            throw e;
+        }
+        registerEntries(key, loaded);
+        loading.complete(loaded);
+        // Invalidated while loading: the callers get the page, the cache does not
+        if (cache.asMap().get(key) != loading) {
+            unregister(key, loaded);
+        }
+        return loaded;
+    }
+
+    private static Page<PhonebookEntryDocument> join(CompletableFuture<Page<PhonebookEntryDocument>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntryChanged(PhonebookEntryChangedEvent event) {
+        PhonebookEntry entry = event.entry();
+        List<String> words = event.type() == PhonebookEntryChangedEvent.Type.DELETED
+                ? List.of()
+                : words(entry.getName(), entry.getPhone());
+        recordChange(new Change(event.id(), words, System.nanoTime()));
+
+        Set<Key> affected = new HashSet<>(keysByEntry.getOrDefault(event.id(), Set.of()));
+        for (String word : words) {
+            // Numbers also match from inside, see PhonebookEntrySearchRepository
+            int lastStart = isDigits(word) ? word.length() : 0;
+            for (int start = 0; start <= lastStart; start++) {
+                for (int end = start; end <= word.length(); end++) {
+                    Set<Key> keys = keysByWord.get(word.substring(start, end));
+                    if (keys != null) {
+                        affected.addAll(keys);
+                    }
+                }
+            }
+        }
+        if (!affected.isEmpty()) {
+            cache.synchronous().invalidateAll(affected);
+        }
+    }
+
+    public long size() {
+        return cache.synchronous().estimatedSize();
+    }
+
+    /**
+     * Lowercase, trimmed, with runs of whitespace collapsed to one space
+     */
+    public static String normalize(String keyword) {
+        StringBuilder normalized = new StringBuilder(keyword.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < keyword.length(); i++) {
+            char c = keyword.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = true;
+            } else {
+                if (pendingSpace && normalized.length() > 0) {
+                    normalized.append(' ');
+                }
+                pendingSpace = false;
+                normalized.append(c);
+            }
+        }
+        return normalized.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The leading run of letters and digits. Whatever the analyzer does
+     * with punctuation, a matching entry has a word starting with it.
+     */
+    static String firstWord(String keyword) {
+        int end = 0;
+        while (end < keyword.length() && Character.isLetterOrDigit(keyword.charAt(end))) {
+            end++;
+        }
+        return keyword.substring(0, end);
+    }
+
+    /**
+     * The lowercased runs of letters and digits in the given texts
+     */
+    static List<String> words(String... texts) {
+        List<String> words = new ArrayList<>();
+        for (String text : texts) {
+            if (text == null) {
+                continue;
+            }
+            int start = -1;
+            for (int i = 0; i <= text.length(); i++) {
+                boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+                if (wordChar && start < 0) {
+                    start = i;
+                } else if (!wordChar && start >= 0) {
+                    words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                    start = -1;
+                }
+            }
+        }
+        return words;
+    }
+
+    private static boolean isDigits(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            if (!Character.isDigit(word.charAt(i))) {
+                return false;
+            }
+        }
+        return !word.isEmpty();
+    }
+
+    private static int weigh(Key key, Page<PhonebookEntryDocument> page) {
+        long bytes = PAGE_OVERHEAD_BYTES + 2L * key.keyword().length();
+        for (PhonebookEntryDocument document : page.getContent()) {
+            bytes += DOCUMENT_OVERHEAD_BYTES + 2L * (length(document.getId()) + length(document.getPhone())
+                    + length(document.getName()));
+        }
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    /**
+     * The full TTL, or less when a recent change that affects the page may
+     * not have reached the search index yet
+     */
+    private long lifetimeNanos(Key key, Page<PhonebookEntryDocument> page, long now) {
+        long lag = indexLag.toNanos();
+        pruneChanges(now - lag);
+
+        long caughtUpAt = now;
+        if (recentChangeCount.get() > MAX_RECENT_CHANGES) {
+            Change newest = recentChanges.peekLast();
+            if (newest != null) {
+                caughtUpAt = newest.atNanos() + lag;
+            }
+        } else {
+            String firstWord = firstWord(key.keyword());
+            for (Change change : recentChanges) {
+                if (affects(change, firstWord, page)) {
+                    caughtUpAt = Math.max(caughtUpAt, change.atNanos() + lag);
+                }
+            }
+        }
+        return caughtUpAt > now ? Math.min(caughtUpAt - now, ttl.toNanos()) : ttl.toNanos();
+    }
+
+    private static boolean affects(Change change, String firstWord, Page<PhonebookEntryDocument> page) {
+        for (String word : change.words()) {
+            if (isDigits(word) ? word.contains(firstWord) : word.startsWith(firstWord)) {
+                return true;
+            }
+        }
+        String id = Long.toString(change.id());
+        for (PhonebookEntryDocument document : page.getContent()) {
+            if (id.equals(document.getId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void recordChange(Change change) {
+        recentChanges.addLast(change);
+        recentChangeCount.incrementAndGet();
+        pruneChanges(change.atNanos() - indexLag.toNanos());
+    }
+
+    private void pruneChanges(long olderThan) {
+        Change oldest;
+        while ((oldest = recentChanges.peekFirst()) != null && oldest.atNanos() - olderThan < 0) {
+            if (recentChanges.remove(oldest)) {
+                recentChangeCount.decrementAndGet();
+            }
+        }
+    }
+
+    private void registerKeyword(Key key) {
+        keysByWord.compute(firstWord(key.keyword()), (word, keys) -> add(keys, key));
+    }
+
+    private void registerEntries(Key key, Page<PhonebookEntryDocument> page) {
+        for (PhonebookEntryDocument document : page.getContent()) {
+            keysByEntry.compute(Long.parseLong(document.getId()), (id, keys) -> add(keys, key));
+        }
+    }
+
+    private void unregister(Key key, Page<PhonebookEntryDocument> page) {
+        // The key may already be cached again, registered by its new load
+        if (cache.asMap().containsKey(key)) {
+            return;
+        }
+        keysByWord.computeIfPresent(firstWord(key.keyword()), (word, keys) -> remove(keys, key));
+        if (page == null) {
+            return;
+        }
+        for (PhonebookEntryDocument document : page.getContent()) {
+            keysByEntry.computeIfPresent(Long.parseLong(document.getId()), (id, keys) -> remove(keys, key));
+        }
+    }
+
+    private static Set<Key> add(Set<Key> keys, Key key) {
+        Set<Key> result = keys != null ? keys : ConcurrentHashMap.newKeySet();
+        result.add(key);
+        return result;
+    }
+
+    private static Set<Key> remove(Set<Key> keys, Key key) {
+        keys.remove(key);
+        return keys.isEmpty() ? null : keys;
+    }
+}
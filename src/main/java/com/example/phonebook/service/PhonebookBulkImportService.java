@@ -0,0 +1,242 @@
+package com.example.phonebook.service;
+
+import com.example.phonebook.dto.BulkImportResult;
+import com.example.phonebook.entity.PhonebookEntry;
+import com.example.phonebook.repository.PhonebookEntryBatchRepository;
+import com.example.phonebook.util.InputSanitizer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streams CSV or NDJSON rows into the phonebook. Rows are sanitized one at a
+ * time and written to Postgres one batch per statement, together with the
+ * outbox events that PhonebookOutboxIndexer turns into bulk index requests.
+ * Memory use depends on the batch size only.
+ */
+@Service
+public class PhonebookBulkImportService {
+    @Autowired
+    private PhonebookEntryBatchRepository batchRepository;
+    @Autowired
+    private InputSanitizer sanitizer;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.bulk-import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.bulk-import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    public BulkImportResult importRows(Reader reader, Format format) throws IOException {
+        long start = System.nanoTime();
+        BulkImportResult result = new BulkImportResult();
+        Batch batch = new Batch();
+
+        BufferedReader in = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader, 65536);
+        // Column positions for CSV; a header line may reorder them
+        int phoneColumn = 0;
+        int nameColumn = 1;
+        boolean firstRow = true;
+
+        String line;
+        long lineNumber = 0;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+
+            boolean counted = false;
+            try {
+                String phone;
+                String name;
+                if (format == Format.CSV) {
+                    List<String> fields = parseCsvLine(line);
+                    if (firstRow && isCsvHeader(fields)) {
+                        firstRow = false;
+                        phoneColumn = indexOfIgnoreCase(fields, "phone");
+                        nameColumn = indexOfIgnoreCase(fields, "name");
+                        continue;
+                    }
+                    phone = phoneColumn < fields.size() ? fields.get(phoneColumn) : null;
+                    name = nameColumn < fields.size() ? fields.get(nameColumn) : null;
+                } else {
+                    JsonNode node = objectMapper.readTree(line);
+                    if (!node.isObject()) {
+                        throw new IllegalArgumentException("Row must be a JSON object");
+                    }
+                    phone = node.hasNonNull("phone") ? node.get("phone").asText() : null;
+                    name = node.hasNonNull("name") ? node.get("name").asText() : null;
+                }
+                firstRow = false;
+                counted = true;
+                result.setRowsRead(result.getRowsRead() + 1);
+
+                if (phone == null || phone.isBlank()) {
+                    throw new IllegalArgumentException("Phone number is required");
+                }
+                if (name == null) {
+                    throw new IllegalArgumentException("Name is required");
+                }
+
+                String sanitizedPhone = sanitizer.sanitizePhone(phone);
+                String sanitizedName = sanitizer.sanitizeName(name);
+                if (!batch.add(lineNumber, sanitizedPhone, sanitizedName)) {
+                    throw new IllegalArgumentException("Duplicate phone number in import");
+                }
+            } catch (JsonProcessingException e) {
+                firstRow = false;
+                result.setRowsRead(result.getRowsRead() + 1);
+                reportError(result, lineNumber, "Malformed JSON");
+            } catch (IllegalArgumentException e) {
+                firstRow = false;
+                if (!counted) {
+                    result.setRowsRead(result.getRowsRead() + 1);
+                }
+                reportError(result, lineNumber, e.getMessage());
+            }
+
+            if (batch.size() >= batchSize) {
+                flush(batch, result);
+            }
+        }
+        flush(batch, result);
+
+        long elapsedNanos = System.nanoTime() - start;
+        result.setElapsedMillis(elapsedNanos / 1_000_000);
+        result.setRowsPerSecond(elapsedNanos > 0 ? result.getRowsRead() * 1_000_000_000.0 / elapsedNanos : 0);
+        return result;
+    }
+
+    private void flush(Batch batch, BulkImportResult result) {
+        if (batch.size() == 0) {
+            return;
+        }
+
+        List<PhonebookEntry> inserted = batchRepository.insertAll(batch.phones, batch.names);
+        Set<String> insertedPhones = new HashSet<>(inserted.size() * 2);
+        for (PhonebookEntry entry : inserted) {
+            insertedPhones.add(entry.getPhone());
+            eventPublisher.publishEvent(PhonebookEntryChangedEvent.saved(entry));
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            if (!insertedPhones.contains(batch.phones.get(i))) {
+                reportError(result, batch.lines.get(i), "Phone number already exists");
+            }
+        }
+        result.setRowsImported(result.getRowsImported() + inserted.size());
+        batch.clear();
+    }
+
+    private void reportError(BulkImportResult result, long lineNumber, String message) {
+        result.setRowsFailed(result.getRowsFailed() + 1);
+        if (result.getErrors().size() < maxReportedErrors) {
+            result.getErrors().add(new BulkImportResult.RowError(lineNumber, message));
+        } else {
+            result.setErrorsTruncated(true);
+        }
+    }
+
+    private boolean isCsvHeader(List<String> fields) {
+        return indexOfIgnoreCase(fields, "phone") >= 0 && indexOfIgnoreCase(fields, "name") >= 0;
+    }
+
+    private int indexOfIgnoreCase(List<String> fields, String column) {
+        for (int i = 0; i < fields.size(); i++) {
+            if (fields.get(i).trim().equalsIgnoreCase(column)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Split one CSV line, honouring double-quoted fields and "" escapes
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>(2);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Rows waiting for the next flush, deduplicated by phone
+     */
+    private class Batch {
+        private final List<Long> lines = new ArrayList<>(batchSize);
+        private final List<String> phones = new ArrayList<>(batchSize);
+        private final List<String> names = new ArrayList<>(batchSize);
+        private final Map<String, Long> seenPhones = new HashMap<>(batchSize * 2);
+
+        boolean add(long line, String phone, String name) {
+            if (seenPhones.putIfAbsent(phone, line) != null) {
+                return false;
+            }
+            lines.add(line);
+            phones.add(phone);
+            names.add(name);
+            return true;
+        }
+
+        int size() {
+            return phones.size();
+        }
+
+        void clear() {
+            lines.clear();
+            phones.clear();
+            names.clear();
+            seenPhones.clear();
+        }
+    }
+}
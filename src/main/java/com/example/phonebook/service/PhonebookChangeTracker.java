@@ -0,0 +1,84 @@
+package com.example.phonebook.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Version of the phonebook as a whole, for conditional GETs of list views.
+ * A trigger bumps phonebook_change_counter in the transaction of every write
+ * to phonebook_entry, on any instance (changeset mk:7), so the counter only
+ * grows and a new value is never visible before the write's data. It is read
+ * at most once per refresh interval; writes made by this instance mark it
+ * stale right away.
+ */
+@Component
+public class PhonebookChangeTracker {
+    private static final String LAST_CHANGE_SQL = "SELECT COALESCE(sum(changes), 0) FROM phonebook_change_counter";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.etag.refresh-interval:1s}")
+    private Duration refreshInterval;
+
+    // Not synchronized: the refresh is a JDBC round trip, which would pin a virtual thread's carrier
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private volatile Version current;
+    private volatile long readAtNanos;
+    private volatile boolean stale = true;
+
+    /**
+     * The change counter and the time this instance first saw it, in whole
+     * seconds as Last-Modified carries them
+     */
+    public record Version(long value, Instant lastModified) {
+        public String etag() {
+            return "\"" + value + "\"";
+        }
+    }
+
+    public Version current() {
+        Version version = current;
+        return needsRefresh() ? refresh() : version;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntryChanged(PhonebookEntryChangedEvent event) {
+        stale = true;
+    }
+
+    private boolean needsRefresh() {
+        return stale || System.nanoTime() - readAtNanos >= refreshInterval.toNanos();
+    }
+
+    private Version refresh() {
+        refreshLock.lock();
+        try {
+            // Another thread may have refreshed while this one waited
+            if (!needsRefresh()) {
+                return current;
+            }
+            // Clear the flag first, so a write committed during the query marks it stale again
+            stale = false;
+            Long value = jdbcTemplate.queryForObject(LAST_CHANGE_SQL, Long.class);
+            long changes = value != null ? value : 0;
+            Version previous = current;
+            if (previous == null || previous.value() != changes) {
+                current = new Version(changes, Instant.now().truncatedTo(ChronoUnit.SECONDS));
+            }
+            readAtNanos = System.nanoTime();
+            return current;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+}
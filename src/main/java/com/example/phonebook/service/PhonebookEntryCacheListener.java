@@ -0,0 +1,51 @@
+package com.example.phonebook.service;
+
+import com.example.phonebook.config.CacheConfig;
+import com.example.phonebook.entity.PhonebookEntry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Keeps the getEntryById cache in step with writes. Runs after commit, but a
+ * reader that loaded the row before the commit can still put it afterwards.
+ * For a saved entry the cache keeps the higher version (see CacheConfig). A
+ * deleted entry has nothing newer to win with, so it is evicted once more
+ * after app.cache.entries.re-evict-delay, when such reads have finished.
+ */
+@Component
+public class PhonebookEntryCacheListener {
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Value("${app.cache.entries.re-evict-delay:2s}")
+    private Duration reEvictDelay;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntryChanged(PhonebookEntryChangedEvent event) {
+        Cache cache = cacheManager.getCache(CacheConfig.ENTRY_CACHE);
+        if (cache == null) {
+            return;
+        }
+
+        if (event.type() == PhonebookEntryChangedEvent.Type.DELETED) {
+            Long id = event.id();
+            cache.evict(id);
+            taskScheduler.schedule(() -> cache.evict(id), Instant.now().plus(reEvictDelay));
+        } else {
+            // Cache a copy so callers holding the saved instance cannot change the cached one
+            PhonebookEntry entry = event.entry();
+            cache.put(event.id(), new PhonebookEntry(entry.getId(), entry.getPhone(), entry.getName(),
+                    entry.getVersion()));
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.phonebook.service;
+
+import com.example.phonebook.entity.PhonebookEntry;
+
+/**
+ * Published for every committed entry change, whichever write path made it.
+ * In-process read models (indexes, caches) listen for it to stay current.
+ */
+public record PhonebookEntryChangedEvent(Type type, Long id, PhonebookEntry entry) {
+    public enum Type {
+        SAVED, DELETED
+    }
+
+    public static PhonebookEntryChangedEvent saved(PhonebookEntry entry) {
+        return new PhonebookEntryChangedEvent(Type.SAVED, entry.getId(), entry);
+    }
+
+    public static PhonebookEntryChangedEvent deleted(Long id) {
+        return new PhonebookEntryChangedEvent(Type.DELETED, id, null);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.phonebook.service;
+
+import com.example.phonebook.entity.PhonebookEntry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Most writes go through PhonebookEntryBatchRepository with plain JDBC, which
+ * Hibernate does not see. After each committed change this does what
+ * Hibernate does after its own writes:
+ * <ul>
+ * <li>locks and unlocks the entry's cache item. The unlock time is kept, so
+ * a load that started before it, and may have read the old row, cannot put
+ * it back into the cache;</li>
+ * <li>invalidates phonebook_entry in the update-timestamps region, so every
+ * cached page computed by a query that started earlier is stale.</li>
+ * </ul>
+ * Writes made through JPA are already handled by Hibernate; doing it again
+ * is harmless. Only this instance's regions are updated.
+ */
+@Component
+public class PhonebookEntrySecondLevelCacheListener {
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntryChanged(PhonebookEntryChangedEvent event) {
+        SessionFactoryImplementor factory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        EntityPersister persister = factory.getMappingMetamodel().getEntityDescriptor(PhonebookEntry.class);
+        // Only needed as the cache's session argument; no connection is opened
+        try (StatelessSession statelessSession = factory.openStatelessSession()) {
+            SharedSessionContractImplementor session = (SharedSessionContractImplementor) statelessSession;
+            EntityDataAccess entities = persister.getCacheAccessStrategy();
+            if (entities != null) {
+                Object key = entities.generateCacheKey(event.id(), persister, factory, null);
+                SoftLock lock = entities.lockItem(session, key, null);
+                entities.unlockItem(session, key, lock);
+            }
+            factory.getCache().getTimestampsCache().invalidate(persister.getPropertySpaces(), session);
+        }
+    }
+}
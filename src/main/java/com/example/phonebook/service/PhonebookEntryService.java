@@ -1,27 +1,63 @@
 package com.example.phonebook.service;
 
-import com.example.phonebook.elasticsearch.PhonebookEntryDocument;
-import com.example.phonebook.elasticsearch.PhonebookEntrySearchRepository;
+import com.example.phonebook.config.CacheConfig;
+import com.example.phonebook.dto.BulkDeleteResult;
+import com.example.phonebook.dto.CursorPage;
+import com.example.phonebook.dto.MultiGetResult;
 import com.example.phonebook.entity.PhonebookEntry;
+import com.example.phonebook.entity.PhonebookOutboxEvent;
+import com.example.phonebook.repository.PhonebookEntryBatchRepository;
 import com.example.phonebook.repository.PhonebookEntryRepository;
+import com.example.phonebook.repository.PhonebookOutboxRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+/**
+ * Writes never call Elasticsearch directly: each one queues an outbox event in
+ * the same transaction, and PhonebookOutboxIndexer brings the index up to date.
+ * In-process listeners, including the getEntryById cache, are notified through
+ * {@link PhonebookEntryChangedEvent}.
+ */
 @Service
 public class PhonebookEntryService {
     @Autowired
     private PhonebookEntryRepository repository;
     @Autowired
-    private PhonebookEntrySearchRepository searchRepository;
+    private PhonebookOutboxRepository outboxRepository;
+    @Autowired
+    private PhonebookEntryBatchRepository batchRepository;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.bulk-delete.batch-size:5000}")
+    private int bulkDeleteBatchSize;
+
+    @Value("${app.bulk-delete.max-ids:100000}")
+    private int maxBulkDeleteIds;
 
+    @Transactional
     public PhonebookEntry createEntry(PhonebookEntry entry) {
         PhonebookEntry saved = repository.save(entry);
-        searchRepository.save(toDocument(saved));
+        outboxRepository.save(PhonebookOutboxEvent.of(saved.getId(), PhonebookOutboxEvent.Operation.INDEX));
+        eventPublisher.publishEvent(PhonebookEntryChangedEvent.saved(saved));
         return saved;
 
     }
@@ -30,32 +66,186 @@ public class PhonebookEntryService {
         return repository.findAll();
     }
 
+    // Misses are not cached, so newly created ids become visible right away
+    @Cacheable(cacheNames = CacheConfig.ENTRY_CACHE, key = "#id", unless = "#result == null")
     public Optional<PhonebookEntry> getEntryById(Long id) {
         return repository.findById(id);
     }
 
+    /**
+     * Fetch many entries with one query. The result has one item per
+     * requested id, in request order, marking the ids that do not exist.
+     */
+    public List<MultiGetResult> getEntriesByIds(List<Long> ids) {
+        Map<Long, PhonebookEntry> found = new HashMap<>();
+        for (PhonebookEntry entry : batchRepository.findAllById(new LinkedHashSet<>(ids))) {
+            found.put(entry.getId(), entry);
+        }
+
+        List<MultiGetResult> results = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            PhonebookEntry entry = found.get(id);
+            results.add(new MultiGetResult(id, entry != null, entry));
+        }
+        return results;
+    }
+
+    /**
+     * Replace the phone and name of an existing entry
+     */
     public PhonebookEntry updateEntry(Long id, PhonebookEntry entry) {
-        entry.setId(id);
-        PhonebookEntry saved = repository.save(entry);
-        searchRepository.save(toDocument(saved));
-        return saved;
+        return patchEntry(id, entry.getPhone(), entry.getName(), null)
+                .orElseThrow(() -> new EmptyResultDataAccessException("Entry " + id + " does not exist", 1));
     }
 
-    public void deleteEntry(Long id) {
-        repository.deleteById(id);
-        searchRepository.deleteById(id.toString());
+    /**
+     * Change the given fields of an entry in one statement; null fields keep
+     * their value. Empty if there is no such entry. With an expectedVersion,
+     * an entry at another version is left alone and
+     * OptimisticLockingFailureException is thrown.
+     *
+     * Not @Transactional: the statement commits on its own, so the write is a
+     * single round-trip without BEGIN and COMMIT.
+     */
+    public Optional<PhonebookEntry> patchEntry(Long id, String phone, String name, Long expectedVersion) {
+        Optional<PhonebookEntry> updated = batchRepository.update(id, phone, name, expectedVersion);
+        if (updated.isEmpty() && expectedVersion != null && repository.existsById(id)) {
+            throw new OptimisticLockingFailureException(
+                    "Entry " + id + " is no longer at version " + expectedVersion);
+        }
+        updated.ifPresent(entry -> eventPublisher.publishEvent(PhonebookEntryChangedEvent.saved(entry)));
+        return updated;
+    }
 
+    /**
+     * Create the entry for phone, or rename it if it exists, in one
+     * statement. With an expectedVersion only an existing entry at that
+     * version is renamed; otherwise OptimisticLockingFailureException.
+     */
+    public PhonebookEntryBatchRepository.Upserted upsertEntry(String phone, String name, Long expectedVersion) {
+        PhonebookEntryBatchRepository.Upserted upserted = batchRepository.upsertByPhone(phone, name, expectedVersion)
+                .orElseThrow(() -> new OptimisticLockingFailureException(
+                        "No entry for " + phone + " at version " + expectedVersion));
+        eventPublisher.publishEvent(PhonebookEntryChangedEvent.saved(upserted.entry()));
+        return upserted;
+    }
+
+    /**
+     * Delete an entry in one statement. Returns false if there was none.
+     */
+    public boolean deleteEntry(Long id) {
+        List<Long> deleted = batchRepository.deleteAll(List.of(id));
+        deleted.forEach(deletedId -> eventPublisher.publishEvent(PhonebookEntryChangedEvent.deleted(deletedId)));
+        return !deleted.isEmpty();
+    }
+
+    /**
+     * Delete the entries with the given ids, bulkDeleteBatchSize per
+     * statement. Ids that do not exist are ignored. Each statement commits on
+     * its own, so rows deleted before a failure stay deleted.
+     */
+    public BulkDeleteResult deleteEntries(List<Long> ids) {
+        if (ids.size() > maxBulkDeleteIds) {
+            throw new IllegalArgumentException("At most " + maxBulkDeleteIds + " ids can be deleted at once");
+        }
+
+        long start = System.nanoTime();
+        long deleted = 0;
+        for (int from = 0; from < ids.size(); from += bulkDeleteBatchSize) {
+            List<Long> batch = ids.subList(from, Math.min(from + bulkDeleteBatchSize, ids.size()));
+            deleted += publishDeleted(batchRepository.deleteAll(batch));
+        }
+        return new BulkDeleteResult(deleted, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Delete every entry whose phone starts with the given digits, in
+     * statements of up to bulkDeleteBatchSize rows
+     */
+    public BulkDeleteResult deleteEntriesByPhonePrefix(String prefix) {
+        if (prefix.isEmpty() || prefix.length() > 8 || !prefix.chars().allMatch(c -> c >= '0' && c <= '9')) {
+            throw new IllegalArgumentException("Phone prefix must be 1 to 8 digits");
+        }
+
+        long start = System.nanoTime();
+        long deleted = 0;
+        int batchDeleted;
+        do {
+            batchDeleted = publishDeleted(batchRepository.deleteByPhonePrefix(prefix, bulkDeleteBatchSize));
+            deleted += batchDeleted;
+        } while (batchDeleted == bulkDeleteBatchSize);
+        return new BulkDeleteResult(deleted, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private int publishDeleted(List<Long> ids) {
+        ids.forEach(id -> eventPublisher.publishEvent(PhonebookEntryChangedEvent.deleted(id)));
+        return ids.size();
     }
 
     public Page<PhonebookEntry> getAllEntries(Pageable pageable) {
         return repository.findAll(pageable);
     }
 
-    private PhonebookEntryDocument toDocument(PhonebookEntry phonebookEntry) {
-        PhonebookEntryDocument doc = new PhonebookEntryDocument();
-        doc.setId(phonebookEntry.getId().toString());
-        doc.setName(phonebookEntry.getName());
-        doc.setPhone(phonebookEntry.getPhone());
-        return doc;
+    public enum CursorSort {
+        ID, NAME
+    }
+
+    /**
+     * Keyset pagination: returns up to limit entries after the given cursor.
+     * The cursor carries its own sort order; sort only applies to the first page.
+     */
+    public CursorPage<PhonebookEntry> getEntriesAfter(String cursor, int limit, CursorSort sort) {
+        Cursor position = cursor != null ? Cursor.decode(cursor) : null;
+        if (position != null && sort != null && sort != position.sort()) {
+            throw new IllegalArgumentException("Cursor does not match the requested sort");
+        }
+        CursorSort effectiveSort = position != null ? position.sort() : (sort != null ? sort : CursorSort.ID);
+
+        // Fetch one extra row to find out whether there is a next page
+        List<PhonebookEntry> rows;
+        if (effectiveSort == CursorSort.NAME) {
+            rows = position != null
+                    ? repository.findByNameAndIdAfter(position.name(), position.id(), limit + 1)
+                    : repository.findByNameAndIdAfter("", 0L, limit + 1);
+        } else {
+            rows = repository.findByIdGreaterThanOrderByIdAsc(position != null ? position.id() : 0L,
+                    Limit.of(limit + 1));
+        }
+
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        List<PhonebookEntry> page = rows.subList(0, limit);
+        PhonebookEntry last = page.get(limit - 1);
+        return new CursorPage<>(page, new Cursor(effectiveSort, last.getId(), last.getName()).encode());
+    }
+
+    /**
+     * Opaque position in a keyset scan, serialized as URL-safe Base64
+     */
+    record Cursor(CursorSort sort, long id, String name) {
+        String encode() {
+            String raw = sort == CursorSort.NAME ? "n:" + id + ":" + name : "i:" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                if (raw.startsWith("i:")) {
+                    return new Cursor(CursorSort.ID, Long.parseLong(raw.substring(2)), null);
+                }
+                if (raw.startsWith("n:")) {
+                    int separator = raw.indexOf(':', 2);
+                    if (separator > 0) {
+                        return new Cursor(CursorSort.NAME, Long.parseLong(raw.substring(2, separator)),
+                                raw.substring(separator + 1));
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                // Malformed Base64 or id, reported below
+            }
+            throw new IllegalArgumentException("Invalid cursor");
+        }
     }
-}
\ No newline at end of file
+}
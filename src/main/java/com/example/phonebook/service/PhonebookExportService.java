@@ -0,0 +1,100 @@
+package com.example.phonebook.service;
+
+import com.example.phonebook.repository.PhonebookEntryBatchRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the whole phonebook to a stream as CSV or NDJSON. Rows go straight
+ * from the database cursor to the output, so memory use does not depend on
+ * the number of entries.
+ */
+@Service
+public class PhonebookExportService {
+    @Autowired
+    private PhonebookEntryBatchRepository batchRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    /**
+     * Export every entry in id order. The CSV has an id,phone,name header and
+     * can be fed back to the bulk import.
+     */
+    @Transactional(readOnly = true)
+    public void export(OutputStream out, Format format) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 65536);
+        try {
+            if (format == Format.NDJSON) {
+                writeNdjson(writer);
+            } else {
+                writeCsv(writer);
+            }
+        } catch (UncheckedIOException e) {
+            // Usually the client went away; the cursor has been closed by now
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private void writeCsv(Writer writer) throws IOException {
+        writer.write("id,phone,name\n");
+        batchRepository.streamAll((id, phone, name) -> {
+            writer.write(Long.toString(id));
+            writer.write(',');
+            writeCsvField(writer, phone);
+            writer.write(',');
+            writeCsvField(writer, name);
+            writer.write('\n');
+        });
+    }
+
+    private void writeNdjson(Writer writer) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(writer);
+        generator.setRootValueSeparator(null);
+        batchRepository.streamAll((id, phone, name) -> {
+            generator.writeStartObject();
+            generator.writeNumberField("id", id);
+            generator.writeStringField("phone", phone);
+            generator.writeStringField("name", name);
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        });
+        generator.flush();
+    }
+
+    static void writeCsvField(Writer writer, String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+}
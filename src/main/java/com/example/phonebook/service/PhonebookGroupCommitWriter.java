@@ -0,0 +1,247 @@
+package com.example.phonebook.service;
+
+import com.example.phonebook.entity.PhonebookEntry;
+import com.example.phonebook.metrics.StageMetrics;
+import com.example.phonebook.repository.PhonebookEntryBatchRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Group commit for single-entry creates. Callers queue their entry and wait
+ * while one flusher thread collects the creates that arrive within the batch
+ * window, up to the maximum batch size. The batch is written with one
+ * multi-row INSERT that also queues the outbox events, so it commits once and
+ * the outbox indexer sends it to Elasticsearch in one bulk request.
+ *
+ * Each caller gets its own row, or DuplicateKeyException when its phone
+ * already exists or was taken by an earlier caller in the same batch. A
+ * caller waits no longer than the batch window plus the connection and
+ * statement timeouts, then gets QueryTimeoutException. Creates are timed as
+ * the service stage's createEntry, like those made through
+ * PhonebookEntryService.
+ */
+@Component
+public class PhonebookGroupCommitWriter {
+    private static final Logger log = LoggerFactory.getLogger(PhonebookGroupCommitWriter.class);
+
+    public static final String BATCH_SIZE_SUMMARY = "phonebook.group.commit.batch.size";
+
+    @Autowired
+    private PhonebookEntryBatchRepository batchRepository;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private StageMetrics stageMetrics;
+
+    @Value("${app.group-commit.enabled:false}")
+    private boolean enabled;
+
+    // How long the first create of a batch waits for others to join it
+    @Value("${app.group-commit.window:5ms}")
+    private Duration window;
+
+    @Value("${app.group-commit.max-batch-size:200}")
+    private int maxBatchSize;
+
+    // Query timeout of each batch INSERT
+    @Value("${app.group-commit.statement-timeout:10s}")
+    private Duration statementTimeout;
+
+    // How long the flusher may wait for a pooled connection
+    @Value("${spring.datasource.hikari.connection-timeout:30000}")
+    private long connectionTimeoutMillis;
+
+    record PendingCreate(String phone, String name, CompletableFuture<PhonebookEntry> result) {
+    }
+
+    private final BlockingQueue<PendingCreate> queue = new LinkedBlockingQueue<>();
+    private DistributionSummary batchSizes;
+    private Duration waitTimeout;
+    private Thread flusher;
+    private volatile boolean running;
+
+    @PostConstruct
+    void start() {
+        batchSizes = DistributionSummary.builder(BATCH_SIZE_SUMMARY)
+                .description("Creates written together by one group commit")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        waitTimeout = window.plusMillis(connectionTimeoutMillis).plus(statementTimeout);
+        if (enabled) {
+            running = true;
+            flusher = new Thread(this::run, "phonebook-group-commit");
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (flusher != null) {
+            flusher.interrupt();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Create an entry as part of the next group commit and wait for it.
+     * Not transactional: the caller holds no connection while it waits.
+     */
+    public PhonebookEntry create(String phone, String name) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            PhonebookEntry created = await(phone, name);
+            success = true;
+            return created;
+        } finally {
+            stageMetrics.record(StageMetrics.SERVICE, "createEntry", success, System.nanoTime() - start);
+        }
+    }
+
+    private PhonebookEntry await(String phone, String name) {
+        PendingCreate pending = new PendingCreate(phone, name, new CompletableFuture<>());
+        queue.add(pending);
+        // The flusher may have stopped after the check a caller cannot make atomically
+        if (!running && queue.remove(pending)) {
+            throw new IllegalStateException("Group commit is not running");
+        }
+        try {
+            try {
+                return pending.result().get(waitTimeout.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // A create still queued is never written, one in a batch is skipped if the batch
+                // has not started. If the flusher completed it meanwhile, get returns its result.
+                queue.remove(pending);
+                pending.result().completeExceptionally(
+                        new QueryTimeoutException("Group commit did not finish within " + waitTimeout));
+                return pending.result().get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the group commit", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void run() {
+        List<PendingCreate> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (running) {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + window.toNanos();
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingCreate next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                try {
+                    flush(batch);
+                } catch (RuntimeException e) {
+                    log.error("Group commit of {} entries failed", batch.size(), e);
+                    batch.forEach(pending -> pending.result().completeExceptionally(e));
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            // Stopped
+        } finally {
+            running = false;
+            IllegalStateException stopped = new IllegalStateException("Group commit is not running");
+            batch.forEach(pending -> pending.result().completeExceptionally(stopped));
+            queue.forEach(pending -> pending.result().completeExceptionally(stopped));
+            queue.clear();
+        }
+    }
+
+    void flush(List<PendingCreate> batch) {
+        // Callers that timed out while the batch was collected
+        batch.removeIf(pending -> pending.result().isDone());
+        if (batch.isEmpty()) {
+            return;
+        }
+        batchSizes.record(batch.size());
+
+        // Only the first create of a phone is inserted; later ones in the batch lose to it
+        Map<String, PendingCreate> byPhone = new LinkedHashMap<>();
+        List<PendingCreate> duplicates = new ArrayList<>();
+        for (PendingCreate pending : batch) {
+            if (byPhone.putIfAbsent(pending.phone(), pending) != null) {
+                duplicates.add(pending);
+            }
+        }
+
+        List<String> phones = new ArrayList<>(byPhone.size());
+        List<String> names = new ArrayList<>(byPhone.size());
+        byPhone.values().forEach(pending -> {
+            phones.add(pending.phone());
+            names.add(pending.name());
+        });
+
+        List<PhonebookEntry> inserted;
+        try {
+            inserted = batchRepository.insertAll(phones, names, statementTimeout);
+        } catch (RuntimeException e) {
+            batch.forEach(pending -> pending.result().completeExceptionally(e));
+            return;
+        }
+
+        for (PhonebookEntry entry : inserted) {
+            if (!byPhone.remove(entry.getPhone()).result().complete(entry)) {
+                log.warn("Entry {} was created after its caller timed out", entry.getId());
+            }
+            try {
+                eventPublisher.publishEvent(PhonebookEntryChangedEvent.saved(entry));
+            } catch (RuntimeException e) {
+                // The row is committed and its outbox event queued
+                log.warn("Change listener failed for entry {}: {}", entry.getId(), e.getMessage());
+            }
+        }
+        // What is left already existed in the table
+        byPhone.values().forEach(pending -> pending.result().completeExceptionally(duplicatePhone()));
+        duplicates.forEach(pending -> pending.result().completeExceptionally(duplicatePhone()));
+    }
+
+    private static DuplicateKeyException duplicatePhone() {
+        return new DuplicateKeyException("Phone number already exists");
+    }
+}
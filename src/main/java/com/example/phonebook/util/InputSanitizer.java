@@ -1,19 +1,23 @@
 package com.example.phonebook.util;
 
 import org.springframework.stereotype.Component;
-import java.util.regex.Pattern;
 
+/**
+ * Validates and normalizes user input. Every check walks the input once,
+ * character by character, without regular expressions. Input that is already
+ * clean is returned as the same String instance. Otherwise the result is
+ * built in one char array that is only allocated once the output first
+ * differs from the input.
+ */
 @Component
 public class InputSanitizer {
 
-    // Pattern for phone numbers (8 digits only)
-    private static final Pattern PHONE_PATTERN = Pattern.compile("^\\d{8}$");
+    private static final int PHONE_LENGTH = 8;
 
-    // Pattern for names (letters, spaces, hyphens, apostrophes only)
-    private static final Pattern NAME_PATTERN = Pattern.compile("^[a-zA-Z\\s\\-']+$");
-
-    // Pattern for search keywords (alphanumeric, spaces, basic punctuation)
-    private static final Pattern SEARCH_PATTERN = Pattern.compile("^[a-zA-Z0-9\\s\\-']+$");
+    // Case-insensitive substrings rejected by containsDangerousContent
+    private static final String[] SCRIPT_PATTERNS = { "<script", "javascript:" };
+    private static final String[] SQL_PATTERNS = { "union", "select", "drop", "delete", "insert", "update" };
+    private static final String[] PATH_PATTERNS = { "../", "..\\" };
 
     /**
      * Escape HTML entities to prevent XSS
@@ -23,12 +27,7 @@ public class InputSanitizer {
             return null;
         }
 
-        return input.replace("&", "&amp;")
-                .replace("<", "&lt;")
-                .replace(">", "&gt;")
-                .replace("\"", "&quot;")
-                .replace("'", "&#x27;")
-                .replace("/", "&#x2F;");
+        return escapeHtml(input, 0, input.length());
     }
 
     /**
@@ -39,15 +38,24 @@ public class InputSanitizer {
             return null;
         }
 
-        // Remove all non-digit characters
-        String cleaned = phone.replaceAll("[^\\d]", "");
+        // Keep the ASCII digits only; there must be exactly eight of them
+        char[] out = null;
+        int length = 0;
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (length == PHONE_LENGTH) {
+                    throw new IllegalArgumentException("Phone number must be exactly 8 digits");
+                }
+                out = emit(out, PHONE_LENGTH, phone, 0, length++, c);
+            }
+        }
 
-        // Validate format
-        if (!PHONE_PATTERN.matcher(cleaned).matches()) {
+        if (length != PHONE_LENGTH) {
             throw new IllegalArgumentException("Phone number must be exactly 8 digits");
         }
 
-        return cleaned;
+        return result(out, phone, 0, length);
     }
 
     /**
@@ -59,20 +67,65 @@ public class InputSanitizer {
         }
 
         // Trim whitespace
-        String trimmed = name.trim();
+        int start = trimStart(name);
+        int end = trimEnd(name, start);
 
         // Check for empty string
-        if (trimmed.isEmpty()) {
+        if (start == end) {
             throw new IllegalArgumentException("Name cannot be empty");
         }
 
-        // Validate format
-        if (!NAME_PATTERN.matcher(trimmed).matches()) {
-            throw new IllegalArgumentException("Name contains invalid characters");
+        // Validate format and capitalize first letter of each word. Words are
+        // separated by runs of whitespace, which collapse to one space.
+        char[] out = null;
+        int length = 0;
+        int i = start;
+        while (true) {
+            int wordStart = i;
+            boolean hyphen = false;
+            boolean apostrophe = false;
+            while (i < end && !isWhitespace(name.charAt(i))) {
+                char c = name.charAt(i);
+                if (c == '-') {
+                    hyphen = true;
+                } else if (c == '\'') {
+                    apostrophe = true;
+                } else if (!isAsciiLetter(c)) {
+                    throw new IllegalArgumentException("Name contains invalid characters");
+                }
+                i++;
+            }
+
+            // Hyphenated words are capitalized per hyphen part, otherwise per
+            // apostrophe part (like O'Connor). Separators at the end of a word
+            // are dropped, as String.split drops trailing empty parts.
+            char separator = hyphen ? '-' : apostrophe ? '\'' : 0;
+            int wordEnd = i;
+            while (separator != 0 && wordEnd > wordStart && name.charAt(wordEnd - 1) == separator) {
+                wordEnd--;
+            }
+            boolean partStart = true;
+            for (int j = wordStart; j < wordEnd; j++) {
+                char c = name.charAt(j);
+                if (c == separator) {
+                    partStart = true;
+                } else {
+                    c = partStart ? toAsciiUpperCase(c) : toAsciiLowerCase(c);
+                    partStart = false;
+                }
+                out = emit(out, end - start, name, start, length++, c);
+            }
+
+            if (i == end) {
+                break;
+            }
+            while (isWhitespace(name.charAt(i))) {
+                i++;
+            }
+            out = emit(out, end - start, name, start, length++, ' ');
         }
 
-        // Capitalize first letter of each word
-        return capitalizeWords(trimmed);
+        return result(out, name, start, length);
     }
 
     /**
@@ -84,33 +137,29 @@ public class InputSanitizer {
         }
 
         // Trim whitespace
-        String trimmed = keyword.trim();
+        int start = trimStart(keyword);
+        int end = trimEnd(keyword, start);
 
         // If empty, return null
-        if (trimmed.isEmpty()) {
+        if (start == end) {
             return null;
         }
 
         // Check for dangerous content first
-        if (containsDangerousContent(trimmed)) {
+        if (containsDangerousContent(keyword, start, end)) {
             throw new IllegalArgumentException("Search keyword contains potentially dangerous content");
         }
 
         // Validate format - be more specific about what's allowed
-        if (!SEARCH_PATTERN.matcher(trimmed).matches()) {
-            // Find the first invalid character to provide a helpful error message
-            for (int i = 0; i < trimmed.length(); i++) {
-                char c = trimmed.charAt(i);
-                if (!Character.isLetterOrDigit(c) && c != ' ' && c != '-' && c != '\'') {
-                    throw new IllegalArgumentException("Search keyword contains invalid character: '" + c
-                            + "'. Only letters, numbers, spaces, hyphens, and apostrophes are allowed.");
-                }
+        for (int i = start; i < end; i++) {
+            char c = keyword.charAt(i);
+            if (!isAsciiLetter(c) && !(c >= '0' && c <= '9') && !isWhitespace(c) && c != '-' && c != '\'') {
+                throw invalidSearchKeyword(keyword, start, end);
             }
-            throw new IllegalArgumentException("Search keyword contains invalid characters");
         }
 
         // Escape HTML entities to prevent XSS
-        return escapeHtml(trimmed);
+        return escapeHtml(keyword, start, end);
     }
 
     /**
@@ -121,11 +170,9 @@ public class InputSanitizer {
             return null;
         }
 
-        // Trim whitespace
-        String trimmed = text.trim();
-
-        // Escape HTML entities
-        return escapeHtml(trimmed);
+        // Trim whitespace and escape HTML entities
+        int start = trimStart(text);
+        return escapeHtml(text, start, trimEnd(text, start));
     }
 
     /**
@@ -159,83 +206,156 @@ public class InputSanitizer {
     }
 
     /**
-     * Capitalize first letter of each word
+     * Check if input contains potentially dangerous content
      */
-    private String capitalizeWords(String text) {
-        if (text == null || text.isEmpty()) {
-            return text;
+    public boolean containsDangerousContent(String input) {
+        if (input == null) {
+            return false;
         }
 
-        // Split by whitespace, but preserve hyphens and apostrophes
-        String[] words = text.split("\\s+");
-        StringBuilder result = new StringBuilder();
+        return containsDangerousContent(input, 0, input.length());
+    }
 
-        for (int i = 0; i < words.length; i++) {
-            if (i > 0) {
-                result.append(" ");
-            }
-            if (!words[i].isEmpty()) {
-                // Handle hyphenated words
-                if (words[i].contains("-")) {
-                    String[] hyphenParts = words[i].split("-");
-                    for (int j = 0; j < hyphenParts.length; j++) {
-                        if (j > 0)
-                            result.append("-");
-                        if (!hyphenParts[j].isEmpty()) {
-                            result.append(Character.toUpperCase(hyphenParts[j].charAt(0)))
-                                    .append(hyphenParts[j].substring(1).toLowerCase());
-                        }
-                    }
-                } else {
-                    // Handle words with apostrophes (like O'Connor)
-                    if (words[i].contains("'")) {
-                        String[] apostropheParts = words[i].split("'");
-                        for (int j = 0; j < apostropheParts.length; j++) {
-                            if (j > 0)
-                                result.append("'");
-                            if (!apostropheParts[j].isEmpty()) {
-                                result.append(Character.toUpperCase(apostropheParts[j].charAt(0)))
-                                        .append(apostropheParts[j].substring(1).toLowerCase());
-                            }
-                        }
-                    } else {
-                        result.append(Character.toUpperCase(words[i].charAt(0)))
-                                .append(words[i].substring(1).toLowerCase());
+    /**
+     * Look for script tags, SQL keywords and path traversal in one pass. Each
+     * position is only compared with the patterns that start with its
+     * character, ignoring ASCII case.
+     */
+    private static boolean containsDangerousContent(String input, int from, int to) {
+        for (int i = from; i < to; i++) {
+            String[] candidates = switch (toAsciiLowerCase(input.charAt(i))) {
+                case '<', 'j' -> SCRIPT_PATTERNS;
+                case 'u', 's', 'd', 'i' -> SQL_PATTERNS;
+                case '.' -> PATH_PATTERNS;
+                default -> null;
+            };
+            if (candidates != null) {
+                for (String pattern : candidates) {
+                    if (regionMatchesIgnoreAsciiCase(input, i, to, pattern)) {
+                        return true;
                     }
                 }
             }
         }
+        return false;
+    }
 
-        return result.toString();
+    private static boolean regionMatchesIgnoreAsciiCase(String input, int offset, int to, String pattern) {
+        if (to - offset < pattern.length()) {
+            return false;
+        }
+        for (int k = 0; k < pattern.length(); k++) {
+            if (toAsciiLowerCase(input.charAt(offset + k)) != pattern.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
-     * Check if input contains potentially dangerous content
+     * Find the first invalid character to provide a helpful error message
      */
-    public boolean containsDangerousContent(String input) {
-        if (input == null) {
-            return false;
+    private static IllegalArgumentException invalidSearchKeyword(String keyword, int from, int to) {
+        for (int i = from; i < to; i++) {
+            char c = keyword.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != ' ' && c != '-' && c != '\'') {
+                return new IllegalArgumentException("Search keyword contains invalid character: '" + c
+                        + "'. Only letters, numbers, spaces, hyphens, and apostrophes are allowed.");
+            }
         }
+        return new IllegalArgumentException("Search keyword contains invalid characters");
+    }
 
-        String lowerInput = input.toLowerCase();
+    private static String escapeHtml(String input, int from, int to) {
+        int i = from;
+        while (i < to && escape(input.charAt(i)) == null) {
+            i++;
+        }
+        if (i == to) {
+            return from == 0 && to == input.length() ? input : input.substring(from, to);
+        }
 
-        // Check for script tags
-        if (lowerInput.contains("<script") || lowerInput.contains("javascript:")) {
-            return true;
+        StringBuilder escaped = new StringBuilder(to - from + 16);
+        escaped.append(input, from, i);
+        for (; i < to; i++) {
+            char c = input.charAt(i);
+            String entity = escape(c);
+            if (entity != null) {
+                escaped.append(entity);
+            } else {
+                escaped.append(c);
+            }
         }
+        return escaped.toString();
+    }
+
+    private static String escape(char c) {
+        return switch (c) {
+            case '&' -> "&amp;";
+            case '<' -> "&lt;";
+            case '>' -> "&gt;";
+            case '"' -> "&quot;";
+            case '\'' -> "&#x27;";
+            case '/' -> "&#x2F;";
+            default -> null;
+        };
+    }
 
-        // Check for SQL injection patterns
-        if (lowerInput.contains("union") || lowerInput.contains("select") ||
-                lowerInput.contains("drop") || lowerInput.contains("delete") ||
-                lowerInput.contains("insert") || lowerInput.contains("update")) {
-            return true;
+    /**
+     * Write c at position length of the output. While the output still
+     * matches source from offset on, nothing is written; the buffer is only
+     * allocated, with the matching prefix copied in, at the first difference.
+     */
+    private static char[] emit(char[] out, int capacity, String source, int offset, int length, char c) {
+        if (out == null) {
+            if (source.charAt(offset + length) == c) {
+                return null;
+            }
+            out = new char[capacity];
+            source.getChars(offset, offset + length, out, 0);
         }
+        out[length] = c;
+        return out;
+    }
 
-        // Check for path traversal
-        if (lowerInput.contains("../") || lowerInput.contains("..\\")) {
-            return true;
+    private static String result(char[] out, String source, int offset, int length) {
+        if (out != null) {
+            return new String(out, 0, length);
         }
+        return offset == 0 && length == source.length() ? source : source.substring(offset, offset + length);
+    }
 
-        return false;
+    // Same boundaries as String.trim
+    private static int trimStart(String s) {
+        int start = 0;
+        while (start < s.length() && s.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(String s, int start) {
+        int end = s.length();
+        while (end > start && s.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    // The characters matched by \s
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static char toAsciiUpperCase(char c) {
+        return c >= 'a' && c <= 'z' ? (char) (c - 32) : c;
+    }
+
+    private static char toAsciiLowerCase(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
     }
-}
\ No newline at end of file
+}
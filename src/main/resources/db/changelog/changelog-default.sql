@@ -2,4 +2,111 @@
 --changeset mk:1
 INSERT INTO phonebook_entry (phone, name) VALUES ('12345678', 'Alice');
 INSERT INTO phonebook_entry (phone, name) VALUES ('87654321', 'Bob');
-INSERT INTO phonebook_entry (phone, name) VALUES ('11223344', 'Charlie');
\ No newline at end of file
+INSERT INTO phonebook_entry (phone, name) VALUES ('11223344', 'Charlie');
+--changeset mk:2
+CREATE TABLE IF NOT EXISTS phonebook_outbox (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    entry_id BIGINT NOT NULL,
+    operation VARCHAR(16) NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now(),
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+);
+CREATE INDEX IF NOT EXISTS idx_phonebook_outbox_next_attempt ON phonebook_outbox (next_attempt_at, id);
+
+--changeset mk:3
+CREATE INDEX IF NOT EXISTS idx_phonebook_entry_name_id ON phonebook_entry (name, id);
+
+--changeset mk:4
+ALTER TABLE phonebook_entry ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+--changeset mk:5
+CREATE INDEX IF NOT EXISTS idx_phonebook_entry_phone_pattern ON phonebook_entry (phone text_pattern_ops);
+
+--changeset mk:6
+-- Pooled ids for Hibernate: each nextval hands out the 50 ids ending at its value.
+-- Start past the current ids, and let JDBC inserts use the same sequence.
+CREATE SEQUENCE IF NOT EXISTS phonebook_entry_seq INCREMENT BY 50;
+SELECT setval('phonebook_entry_seq', COALESCE((SELECT max(id) FROM phonebook_entry), 0) + 50, false);
+ALTER TABLE phonebook_entry ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE phonebook_entry ALTER COLUMN id SET DEFAULT nextval('phonebook_entry_seq');
+ALTER SEQUENCE phonebook_entry_seq OWNED BY phonebook_entry.id;
+DROP SEQUENCE IF EXISTS phonebook_entry_id_seq;
+
+--changeset mk:7 splitStatements:false
+-- Phonebook-wide change counter for list ETags (see PhonebookChangeTracker). Every statement
+-- that writes phonebook_entry bumps it in the same transaction, so a new value is only
+-- visible once the write has committed. Spread over 16 rows so concurrent writers rarely
+-- wait for each other's row lock; a transaction always uses the same row, so two writers
+-- never lock rows in opposite orders.
+CREATE TABLE IF NOT EXISTS phonebook_change_counter (
+    slot SMALLINT PRIMARY KEY,
+    changes BIGINT NOT NULL DEFAULT 0
+);
+INSERT INTO phonebook_change_counter (slot) SELECT generate_series(0, 15) ON CONFLICT DO NOTHING;
+
+CREATE OR REPLACE FUNCTION phonebook_count_change() RETURNS trigger AS $$
+BEGIN
+    UPDATE phonebook_change_counter SET changes = changes + 1 WHERE slot = txid_current() % 16;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS phonebook_entry_count_change ON phonebook_entry;
+CREATE TRIGGER phonebook_entry_count_change AFTER INSERT OR UPDATE OR DELETE ON phonebook_entry
+    FOR EACH STATEMENT EXECUTE FUNCTION phonebook_count_change();
+
+--changeset mk:8
+-- External version of a DELETE event's search-index delete, one past the deleted row's version
+ALTER TABLE phonebook_outbox ADD COLUMN IF NOT EXISTS entry_version BIGINT;
+
+--changeset mk:9
+-- Full reindex in progress on some instance (see PhonebookReindexService), and the entries
+-- the outbox indexer wrote while it runs, to be copied into its new index
+CREATE TABLE IF NOT EXISTS phonebook_reindex_run (
+    target_index VARCHAR(255) PRIMARY KEY,
+    started_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+);
+CREATE TABLE IF NOT EXISTS phonebook_reindex_change (
+    entry_id BIGINT PRIMARY KEY
+);
+
+--changeset mk:10 splitStatements:false
+-- Change positions for indexes that catch up after a restart (see LuceneSearchEngine): every
+-- insert or update stamps the row with the next change_seq, and every delete leaves a
+-- tombstone stamped the same way. Tombstones are pruned after app.search.tombstone-retention.
+CREATE SEQUENCE IF NOT EXISTS phonebook_entry_change_seq;
+ALTER TABLE phonebook_entry ADD COLUMN IF NOT EXISTS change_seq BIGINT NOT NULL DEFAULT 0;
+CREATE INDEX IF NOT EXISTS idx_phonebook_entry_change_seq ON phonebook_entry (change_seq);
+CREATE TABLE IF NOT EXISTS phonebook_entry_tombstone (
+    entry_id BIGINT PRIMARY KEY,
+    change_seq BIGINT NOT NULL,
+    deleted_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now()
+);
+CREATE INDEX IF NOT EXISTS idx_phonebook_entry_tombstone_change_seq ON phonebook_entry_tombstone (change_seq);
+CREATE INDEX IF NOT EXISTS idx_phonebook_entry_tombstone_deleted_at ON phonebook_entry_tombstone (deleted_at);
+
+CREATE OR REPLACE FUNCTION phonebook_stamp_change() RETURNS trigger AS $$
+BEGIN
+    NEW.change_seq := nextval('phonebook_entry_change_seq');
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION phonebook_record_deletes() RETURNS trigger AS $$
+BEGIN
+    INSERT INTO phonebook_entry_tombstone (entry_id, change_seq)
+    SELECT id, nextval('phonebook_entry_change_seq') FROM deleted_entries
+    ON CONFLICT (entry_id) DO UPDATE SET change_seq = EXCLUDED.change_seq, deleted_at = now();
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS phonebook_entry_stamp_change ON phonebook_entry;
+CREATE TRIGGER phonebook_entry_stamp_change BEFORE INSERT OR UPDATE ON phonebook_entry
+    FOR EACH ROW EXECUTE FUNCTION phonebook_stamp_change();
+
+DROP TRIGGER IF EXISTS phonebook_entry_record_deletes ON phonebook_entry;
+CREATE TRIGGER phonebook_entry_record_deletes AFTER DELETE ON phonebook_entry
+    REFERENCING OLD TABLE AS deleted_entries
+    FOR EACH STATEMENT EXECUTE FUNCTION phonebook_record_deletes();
@@ -1,21 +1,38 @@
 package com.example.phonebook.controller;
 
+import com.example.phonebook.dto.BulkDeleteResult;
+import com.example.phonebook.dto.BulkImportResult;
+import com.example.phonebook.dto.CursorPage;
+import com.example.phonebook.dto.MultiGetResult;
 import com.example.phonebook.entity.PhonebookEntry;
+import com.example.phonebook.repository.PhonebookEntryBatchRepository;
+import com.example.phonebook.service.PhonebookBulkImportService;
+import com.example.phonebook.service.PhonebookChangeTracker;
 import com.example.phonebook.service.PhonebookEntryService;
+import com.example.phonebook.service.PhonebookGroupCommitWriter;
+import com.example.phonebook.service.PhonebookExportService;
 import com.example.phonebook.util.InputSanitizer;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -30,9 +47,26 @@ class PhonebookEntryControllerTest {
         @MockBean
         private PhonebookEntryService service;
 
+        @MockBean
+        private PhonebookBulkImportService bulkImportService;
+
+        @MockBean
+        private PhonebookExportService exportService;
+
+        @MockBean
+        private PhonebookChangeTracker changeTracker;
+
+        @MockBean
+        private PhonebookGroupCommitWriter groupCommitWriter;
+
         @MockBean
         private InputSanitizer sanitizer;
 
+        @BeforeEach
+        void setUp() {
+                when(changeTracker.current()).thenReturn(new PhonebookChangeTracker.Version(42, Instant.parse("2024-01-01T00:00:00Z")));
+        }
+
         @Test
         void testCreateEntry() throws Exception {
                 PhonebookEntry entry = new PhonebookEntry(null, "12345678", "Alice");
@@ -59,6 +93,24 @@ class PhonebookEntryControllerTest {
                                 .andExpect(jsonPath("$.content[0].name").value("Alice"));
         }
 
+        @Test
+        void testGetAllEntriesNotModified() throws Exception {
+                mockMvc.perform(get("/api/phonebook").header("If-None-Match", "\"42\""))
+                                .andExpect(status().isNotModified())
+                                .andExpect(header().string("ETag", "\"42\""));
+
+                Mockito.verifyNoInteractions(service);
+        }
+
+        @Test
+        void testGetEntryByIdNotModified() throws Exception {
+                when(service.getEntryById(1L)).thenReturn(Optional.of(new PhonebookEntry(1L, "12345678", "Alice", 3L)));
+                when(sanitizer.sanitizeLong("1")).thenReturn(1L);
+
+                mockMvc.perform(get("/api/phonebook/1").header("If-None-Match", "\"3\""))
+                                .andExpect(status().isNotModified());
+        }
+
         @Test
         void testGetEntryById() throws Exception {
                 when(service.getEntryById(1L)).thenReturn(Optional.of(new PhonebookEntry(1L, "12345678", "Alice")));
@@ -69,9 +121,22 @@ class PhonebookEntryControllerTest {
                                 .andExpect(jsonPath("$.name").value("Alice"));
         }
 
+        @Test
+        void testMultiGet() throws Exception {
+                when(service.getEntriesByIds(List.of(2L, 1L))).thenReturn(List.of(
+                                new MultiGetResult(2L, false, null),
+                                new MultiGetResult(1L, true, new PhonebookEntry(1L, "12345678", "Alice"))));
+
+                mockMvc.perform(post("/api/phonebook/_mget")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[2, 1]"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$[0].found").value(false))
+                                .andExpect(jsonPath("$[1].entry.name").value("Alice"));
+        }
+
         @Test
         void testUpdateEntry() throws Exception {
-                when(service.getEntryById(1L)).thenReturn(Optional.of(new PhonebookEntry(1L, "12345678", "Alice")));
                 when(service.updateEntry(Mockito.eq(1L), any(PhonebookEntry.class)))
                                 .thenReturn(new PhonebookEntry(1L, "12345678", "Alice Updated"));
                 when(sanitizer.sanitizeLong("1")).thenReturn(1L);
@@ -85,12 +150,174 @@ class PhonebookEntryControllerTest {
                                 .andExpect(jsonPath("$.name").value("Alice Updated"));
         }
 
+        @Test
+        void testPatchEntry() throws Exception {
+                when(service.patchEntry(1L, null, "Alice Updated", 3L))
+                                .thenReturn(Optional.of(new PhonebookEntry(1L, "12345678", "Alice Updated", 4L)));
+                when(sanitizer.sanitizeLong("1")).thenReturn(1L);
+                when(sanitizer.sanitizeName("Alice Updated")).thenReturn("Alice Updated");
+
+                mockMvc.perform(patch("/api/phonebook/1")
+                                .header("If-Match", "\"3\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\":\"Alice Updated\"}"))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("ETag", "\"4\""))
+                                .andExpect(jsonPath("$.version").value(4));
+        }
+
+        @Test
+        void testPatchEntryWithStaleVersion() throws Exception {
+                when(service.patchEntry(1L, null, "Alice Updated", 3L))
+                                .thenThrow(new OptimisticLockingFailureException("stale"));
+                when(sanitizer.sanitizeLong("1")).thenReturn(1L);
+                when(sanitizer.sanitizeName("Alice Updated")).thenReturn("Alice Updated");
+
+                mockMvc.perform(patch("/api/phonebook/1")
+                                .header("If-Match", "\"3\"")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\":\"Alice Updated\"}"))
+                                .andExpect(status().isPreconditionFailed());
+        }
+
+        @Test
+        void testUpsertByPhoneCreates() throws Exception {
+                when(service.upsertEntry("12345678", "Alice", null)).thenReturn(new PhonebookEntryBatchRepository.Upserted(
+                                new PhonebookEntry(7L, "12345678", "Alice"), true));
+                when(sanitizer.sanitizePhone("12345678")).thenReturn("12345678");
+                when(sanitizer.sanitizeName("Alice")).thenReturn("Alice");
+
+                mockMvc.perform(put("/api/phonebook/by-phone/12345678")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"name\":\"Alice\"}"))
+                                .andExpect(status().isCreated())
+                                .andExpect(header().string("Location", "/api/phonebook/7"))
+                                .andExpect(header().string("ETag", "\"0\""));
+        }
+
+        @Test
+        void testParseIfMatch() {
+                assertNull(PhonebookEntryController.parseIfMatch(null));
+                assertNull(PhonebookEntryController.parseIfMatch("*"));
+                assertEquals(5L, PhonebookEntryController.parseIfMatch(" \"5\" "));
+                assertThrows(IllegalArgumentException.class, () -> PhonebookEntryController.parseIfMatch("W/\"5\""));
+                assertThrows(IllegalArgumentException.class, () -> PhonebookEntryController.parseIfMatch("\"1\", \"2\""));
+        }
+
         @Test
         void testDeleteEntry() throws Exception {
-                when(service.getEntryById(1L)).thenReturn(Optional.of(new PhonebookEntry(1L, "12345678", "Alice")));
+                when(service.deleteEntry(1L)).thenReturn(true);
                 when(sanitizer.sanitizeLong("1")).thenReturn(1L);
 
                 mockMvc.perform(delete("/api/phonebook/1"))
                                 .andExpect(status().isNoContent());
         }
-}
\ No newline at end of file
+
+        @Test
+        void testDeleteMissingEntry() throws Exception {
+                when(service.deleteEntry(1L)).thenReturn(false);
+                when(sanitizer.sanitizeLong("1")).thenReturn(1L);
+
+                mockMvc.perform(delete("/api/phonebook/1"))
+                                .andExpect(status().isNotFound());
+        }
+
+        @Test
+        void testBulkDeleteByPhonePrefix() throws Exception {
+                when(service.deleteEntriesByPhonePrefix("5550")).thenReturn(new BulkDeleteResult(42, 7));
+
+                mockMvc.perform(post("/api/phonebook/bulk-delete")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"phonePrefix\":\"5550\"}"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.rowsDeleted").value(42));
+        }
+
+        @Test
+        void testBulkDeleteRejectsIdsAndPrefixTogether() throws Exception {
+                mockMvc.perform(post("/api/phonebook/bulk-delete")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"ids\":[1,2],\"phonePrefix\":\"5550\"}"))
+                                .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        void testBulkImportCsv() throws Exception {
+                BulkImportResult result = new BulkImportResult();
+                result.setRowsRead(2);
+                result.setRowsImported(2);
+                when(bulkImportService.importRows(any(), Mockito.eq(PhonebookBulkImportService.Format.CSV)))
+                                .thenReturn(result);
+
+                mockMvc.perform(post("/api/phonebook/bulk")
+                                .contentType("text/csv")
+                                .content("phone,name\n12345678,Alice\n87654321,Bob\n"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.rowsImported").value(2));
+        }
+
+        @Test
+        void testBulkImportNdjson() throws Exception {
+                BulkImportResult result = new BulkImportResult();
+                result.setRowsRead(1);
+                result.setRowsImported(1);
+                when(bulkImportService.importRows(any(), Mockito.eq(PhonebookBulkImportService.Format.NDJSON)))
+                                .thenReturn(result);
+
+                mockMvc.perform(post("/api/phonebook/bulk")
+                                .contentType(MediaType.APPLICATION_NDJSON)
+                                .content("{\"phone\":\"12345678\",\"name\":\"Alice\"}\n"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.rowsImported").value(1));
+        }
+
+        @Test
+        void testGetEntriesAfterCursor() throws Exception {
+                when(sanitizer.sanitizeInteger("1")).thenReturn(1);
+                when(service.getEntriesAfter("aTox", 1, null))
+                                .thenReturn(new CursorPage<>(List.of(new PhonebookEntry(2L, "87654321", "Bob")), "aToy"));
+
+                mockMvc.perform(get("/api/phonebook?after=aTox&limit=1"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.content[0].name").value("Bob"))
+                                .andExpect(jsonPath("$.nextCursor").value("aToy"))
+                                .andExpect(jsonPath("$.totalElements").doesNotExist());
+        }
+
+        @Test
+        void testGetEntriesAfterRejectsOversizedLimit() throws Exception {
+                when(sanitizer.sanitizeInteger("5000")).thenReturn(5000);
+
+                mockMvc.perform(get("/api/phonebook?limit=5000"))
+                                .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        void testExportNegotiatesNdjson() throws Exception {
+                Mockito.doAnswer(invocation -> {
+                        OutputStream out = invocation.getArgument(0);
+                        out.write("{\"id\":1}\n".getBytes(StandardCharsets.UTF_8));
+                        return null;
+                }).when(exportService).export(any(), Mockito.eq(PhonebookExportService.Format.NDJSON));
+
+                MvcResult result = mockMvc.perform(get("/api/phonebook/export")
+                                .accept(MediaType.APPLICATION_NDJSON))
+                                .andExpect(request().asyncStarted())
+                                .andReturn();
+
+                mockMvc.perform(asyncDispatch(result))
+                                .andExpect(status().isOk())
+                                .andExpect(header().string("Content-Type", "application/x-ndjson;charset=UTF-8"))
+                                .andExpect(content().string("{\"id\":1}\n"));
+        }
+
+        @Test
+        void testNegotiateExportType() {
+                assertEquals(PhonebookEntryController.TEXT_CSV, PhonebookEntryController.negotiateExportType(null));
+                assertEquals(PhonebookEntryController.TEXT_CSV, PhonebookEntryController.negotiateExportType("*/*"));
+                assertEquals(MediaType.APPLICATION_NDJSON,
+                                PhonebookEntryController.negotiateExportType("text/csv;q=0.5, application/*"));
+                assertTrue(PhonebookEntryController.acceptsGzip("deflate, gzip;q=0.8"));
+                assertFalse(PhonebookEntryController.acceptsGzip("gzip;q=0"));
+        }
+}
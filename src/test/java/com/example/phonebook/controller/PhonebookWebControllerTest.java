@@ -1,8 +1,13 @@
 package com.example.phonebook.controller;
 
+import com.example.phonebook.dto.CursorPage;
+import com.example.phonebook.elasticsearch.PhonebookEntryDocument;
+import com.example.phonebook.service.PhonebookChangeTracker;
 import com.example.phonebook.service.PhonebookEntryService;
+import com.example.phonebook.service.PhonebookGroupCommitWriter;
 import com.example.phonebook.elasticsearch.PhonebookEntrySearchService;
 import com.example.phonebook.util.InputSanitizer;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -12,9 +17,12 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.Instant;
 import java.util.Arrays;
+import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -34,9 +42,28 @@ class PhonebookWebControllerTest {
         @MockBean
         private PhonebookEntrySearchService searchService;
 
+        @MockBean
+        private PhonebookChangeTracker changeTracker;
+
+        @MockBean
+        private PhonebookGroupCommitWriter groupCommitWriter;
+
         @MockBean
         private InputSanitizer sanitizer;
 
+        @BeforeEach
+        void setUp() {
+                when(changeTracker.current()).thenReturn(new PhonebookChangeTracker.Version(42, Instant.parse("2024-01-01T00:00:00Z")));
+        }
+
+        @Test
+        void testListEntries_NotModified() throws Exception {
+                mockMvc.perform(get("/phonebook").header("If-None-Match", "\"42\""))
+                                .andExpect(status().isNotModified());
+
+                verifyNoInteractions(service);
+        }
+
         @Test
         void testListEntries_WithValidSearch() throws Exception {
                 when(service.getAllEntries(any(PageRequest.class)))
@@ -48,6 +75,22 @@ class PhonebookWebControllerTest {
                                 .andExpect(view().name("phonebook_list"));
         }
 
+        @Test
+        void testListEntries_CursorMode() throws Exception {
+                when(sanitizer.sanitizeSearchKeyword("smith")).thenReturn("smith");
+                when(searchService.searchAfter("smith", null, 5, false))
+                                .thenReturn(new CursorPage<>(List.of(new PhonebookEntryDocument("1", "12345678", "John Smith")),
+                                                "next"));
+
+                mockMvc.perform(get("/phonebook")
+                                .param("keyword", "smith")
+                                .param("cursor", ""))
+                                .andExpect(status().isOk())
+                                .andExpect(view().name("phonebook_list"))
+                                .andExpect(model().attribute("cursorMode", true))
+                                .andExpect(model().attribute("nextCursor", "next"));
+        }
+
         @Test
         void testListEntries_WithInvalidSearch_ShowsError() throws Exception {
                 // Mock sanitizer to throw exception for invalid input
@@ -0,0 +1,170 @@
+package com.example.phonebook.elasticsearch;
+
+import co.elastic.clients.elasticsearch._types.query_dsl.Intervals;
+import co.elastic.clients.elasticsearch._types.query_dsl.IntervalsQuery;
+import com.example.phonebook.dto.CursorPage;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ElasticsearchSearchEngineTest {
+
+    @Mock
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @InjectMocks
+    private ElasticsearchSearchEngine engine;
+
+    ElasticsearchSearchEngineTest() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(engine, "pointInTimeKeepAlive", Duration.ofMinutes(1));
+    }
+
+    @SuppressWarnings("unchecked")
+    private SearchHit<PhonebookEntryDocument> hit(long id, List<Object> sortValues) {
+        SearchHit<PhonebookEntryDocument> hit = mock(SearchHit.class);
+        when(hit.getContent()).thenReturn(new PhonebookEntryDocument(Long.toString(id), "1234567" + id, "Jane " + id));
+        when(hit.getSortValues()).thenReturn(sortValues);
+        return hit;
+    }
+
+    @SuppressWarnings("unchecked")
+    private SearchHits<PhonebookEntryDocument> hits(String pointInTimeId, List<SearchHit<PhonebookEntryDocument>> page) {
+        SearchHits<PhonebookEntryDocument> hits = mock(SearchHits.class);
+        when(hits.getSearchHits()).thenReturn(page);
+        when(hits.getPointInTimeId()).thenReturn(pointInTimeId);
+        return hits;
+    }
+
+    private static List<co.elastic.clients.elasticsearch._types.query_dsl.Query> clauses(String keyword) {
+        return ElasticsearchSearchEngine.nameOrPhoneQuery(keyword).bool().should();
+    }
+
+    @Test
+    void testSingleWordMatchesNamePrefixAndPhonePrefix() {
+        List<co.elastic.clients.elasticsearch._types.query_dsl.Query> should = clauses("jane");
+
+        assertEquals(2, should.size());
+        assertEquals("name", should.get(0).matchPhrase().field());
+        assertEquals("jane", should.get(0).matchPhrase().query());
+        assertEquals("phone", should.get(1).prefix().field());
+    }
+
+    @Test
+    void testOnlyTheLastWordIsAPrefix() {
+        IntervalsQuery intervals = clauses(" jane  o'c ").get(0).intervals();
+
+        assertEquals("name.words", intervals.field());
+        assertTrue(intervals.allOf().ordered());
+        assertEquals(0, intervals.allOf().maxGaps());
+        List<Intervals> parts = intervals.allOf().intervals();
+        assertEquals("jane", parts.get(0).match().query());
+        assertNull(parts.get(0).match().useField());
+        assertEquals("o'c", parts.get(1).match().query());
+        assertEquals("name", parts.get(1).match().useField());
+    }
+
+    @Test
+    void testNumbersOfThreeDigitsAlsoMatchInsidePhones() {
+        assertEquals(2, clauses("12").size());
+        List<co.elastic.clients.elasticsearch._types.query_dsl.Query> should = clauses("4567");
+        assertEquals(3, should.size());
+        assertEquals("phone.infix", should.get(2).matchPhrase().field());
+        assertEquals(2, clauses("jane 456").size());
+    }
+
+    @Test
+    void testSearchPagesWithTheSameQuery() {
+        SearchHits<PhonebookEntryDocument> found = hits(null, List.of(hit(1, List.of())));
+        when(found.getTotalHits()).thenReturn(11L);
+        when(elasticsearchOperations.search(any(Query.class), eq(PhonebookEntryDocument.class))).thenReturn(found);
+
+        Page<PhonebookEntryDocument> page = engine.search("jane o&#x27;c", PageRequest.of(1, 10));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(elasticsearchOperations).search(query.capture(), eq(PhonebookEntryDocument.class));
+        assertEquals(PageRequest.of(1, 10), query.getValue().getPageable());
+        assertEquals(List.of("1"), page.getContent().stream().map(PhonebookEntryDocument::getId).toList());
+        assertEquals(11, page.getTotalElements());
+    }
+
+    @Test
+    void testCursorRoundTripKeepsSortValueTypes() {
+        ElasticsearchSearchEngine.Cursor cursor = new ElasticsearchSearchEngine.Cursor(
+                List.of(1.25, "17", 4294967298L), "pit-1");
+
+        ElasticsearchSearchEngine.Cursor decoded = ElasticsearchSearchEngine.Cursor.decode(cursor.encode());
+
+        assertEquals(1.25, ((Number) decoded.sortValues().get(0)).doubleValue());
+        assertEquals("17", decoded.sortValues().get(1));
+        assertEquals(4294967298L, ((Number) decoded.sortValues().get(2)).longValue());
+        assertEquals("pit-1", decoded.pointInTimeId());
+        assertNull(ElasticsearchSearchEngine.Cursor.decode(
+                new ElasticsearchSearchEngine.Cursor(List.of(1.0, "1"), null).encode()).pointInTimeId());
+    }
+
+    @Test
+    void testMalformedCursorIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ElasticsearchSearchEngine.Cursor.decode("not:base64"));
+        assertThrows(IllegalArgumentException.class, () -> ElasticsearchSearchEngine.Cursor.decode("e30"));
+        assertThrows(IllegalArgumentException.class, () -> engine.searchAfter("jane", "bm9wZQ", 2, false));
+    }
+
+    @Test
+    void testPointInTimeScanSendsBackAllSortValues() {
+        when(elasticsearchOperations.getIndexCoordinatesFor(PhonebookEntryDocument.class))
+                .thenReturn(IndexCoordinates.of(PhonebookEntryDocument.INDEX));
+        when(elasticsearchOperations.openPointInTime(any(IndexCoordinates.class), any(Duration.class)))
+                .thenReturn("pit-1");
+        // With a point in time the sort gets an implicit _shard_doc tiebreaker
+        SearchHits<PhonebookEntryDocument> first = hits("pit-2", List.of(
+                hit(1, List.of(2.0, "1", 10L)),
+                hit(3, List.of(1.5, "3", 11L)),
+                hit(4, List.of(1.5, "4", 12L))));
+        SearchHits<PhonebookEntryDocument> last = hits("pit-3", List.of(hit(4, List.of(1.5, "4", 12L))));
+        when(elasticsearchOperations.search(any(Query.class), eq(PhonebookEntryDocument.class)))
+                .thenReturn(first, last);
+
+        CursorPage<PhonebookEntryDocument> page = engine.searchAfter("jane", null, 2, true);
+        CursorPage<PhonebookEntryDocument> next = engine.searchAfter("jane", page.getNextCursor(), 2, true);
+
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        verify(elasticsearchOperations, times(2)).search(queries.capture(), eq(PhonebookEntryDocument.class));
+        Query firstQuery = queries.getAllValues().get(0);
+        Query nextQuery = queries.getAllValues().get(1);
+        assertNull(firstQuery.getSearchAfter());
+        assertEquals("pit-1", firstQuery.getPointInTime().id());
+
+        List<Object> searchAfter = new ArrayList<>(nextQuery.getSearchAfter());
+        assertEquals(3, searchAfter.size());
+        assertEquals(1.5, ((Number) searchAfter.get(0)).doubleValue());
+        assertEquals("3", searchAfter.get(1));
+        assertEquals(11L, ((Number) searchAfter.get(2)).longValue());
+        assertEquals("pit-2", nextQuery.getPointInTime().id());
+
+        assertEquals(List.of("1", "3"), page.getContent().stream().map(PhonebookEntryDocument::getId).toList());
+        assertEquals(List.of("4"), next.getContent().stream().map(PhonebookEntryDocument::getId).toList());
+        assertNull(next.getNextCursor());
+        verify(elasticsearchOperations).closePointInTime("pit-3");
+        verify(elasticsearchOperations, times(1)).openPointInTime(any(IndexCoordinates.class), any(Duration.class));
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.phonebook.elasticsearch;
+
+import com.example.phonebook.entity.PhonebookEntry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhonebookEntryDocumentTest {
+
+    @Test
+    void testCompletionInputsArePhoneAndNameSuffixesAtWordStarts() {
+        PhonebookEntryDocument document = PhonebookEntryDocument.forIndexing("1", "12345678", "John Smith", 0);
+
+        assertArrayEquals(new String[] { "12345678", "John Smith", "Smith" }, document.getSuggest().getInput());
+    }
+
+    @Test
+    void testHyphensAndRepeatedSpacesStartWordsOnce() {
+        PhonebookEntryDocument document = PhonebookEntryDocument.forIndexing("2", "87654321",
+                " Mary-Jane  van Dyke ", 0);
+
+        assertArrayEquals(new String[] { "87654321", "Mary-Jane  van Dyke", "Jane  van Dyke", "van Dyke", "Dyke" },
+                document.getSuggest().getInput());
+        // The stored name is left as given
+        assertEquals(" Mary-Jane  van Dyke ", document.getName());
+    }
+
+    @Test
+    void testMissingNameLeavesOnlyThePhone() {
+        PhonebookEntryDocument document = PhonebookEntryDocument.forIndexing("3", "11223344", null, 0);
+
+        assertArrayEquals(new String[] { "11223344" }, document.getSuggest().getInput());
+    }
+
+    @Test
+    void testFromEntryCarriesIdChecksumAndVersion() {
+        PhonebookEntryDocument document = PhonebookEntryDocument.fromEntry(
+                new PhonebookEntry(7L, "12345678", "Alice", 4));
+
+        assertEquals("7", document.getId());
+        assertEquals(7L, document.getEntryId());
+        assertEquals(4L, document.getEntryVersion());
+        assertEquals(PhonebookEntryDocument.checksum(7, "12345678", "Alice"), document.getChecksum());
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.phonebook.elasticsearch;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.*;
+
+class PhonebookIndexReconcilerTest {
+
+    private PhonebookIndexReconciler reconciler;
+    private InMemorySource database;
+    private InMemorySource index;
+
+    @BeforeEach
+    void setUp() {
+        reconciler = new PhonebookIndexReconciler();
+        ReflectionTestUtils.setField(reconciler, "fanout", 4);
+        ReflectionTestUtils.setField(reconciler, "leafSize", 8);
+        database = new InMemorySource();
+        index = new InMemorySource();
+        for (long id = 1; id <= 1000; id++) {
+            int checksum = PhonebookEntryDocument.checksum(id, Long.toString(10_000_000 + id), "Entry " + id);
+            database.entries.put(id, checksum);
+            index.entries.put(id, checksum);
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPassIsSkippedWhileAnotherInstanceHoldsTheLock() throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        PhonebookReindexService reindexService = mock(PhonebookReindexService.class);
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet lockResult = mock(ResultSet.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(lockResult);
+        when(lockResult.next()).thenReturn(true);
+        when(lockResult.getBoolean(1)).thenReturn(false);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenAnswer(
+                invocation -> ((ConnectionCallback<?>) invocation.getArgument(0)).doInConnection(connection));
+        ReflectionTestUtils.setField(reconciler, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(reconciler, "reindexService", reindexService);
+
+        assertNull(reconciler.reconcile());
+
+        verify(statement).executeQuery(contains("pg_try_advisory_lock"));
+        verify(statement, never()).executeQuery(contains("pg_advisory_unlock"));
+        // Nothing is compared or queued
+        verify(jdbcTemplate).execute(any(ConnectionCallback.class));
+        verifyNoMoreInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void testIndexInStepComparesOnlyTopRanges() {
+        PhonebookIndexReconciler.Drift drift = reconciler.compare(database, index);
+
+        assertEquals(0, drift.total());
+        assertEquals(4, drift.ranges());
+        assertEquals(0, database.leafCalls);
+    }
+
+    @Test
+    void testDescendsIntoDifferingRangesOnly() {
+        index.entries.remove(17L);
+        index.entries.put(500L, PhonebookEntryDocument.checksum(500, "10000500", "Renamed"));
+        database.entries.remove(900L);
+
+        PhonebookIndexReconciler.Drift drift = reconciler.compare(database, index);
+
+        assertEquals(List.of(17L), drift.missing());
+        assertEquals(List.of(500L), drift.stale());
+        assertEquals(List.of(900L), drift.orphaned());
+        assertEquals(3, database.leafCalls);
+        assertEquals(40, drift.ranges());
+    }
+
+    @Test
+    void testChecksumMatchesSqlDefinition() {
+        // ('x' || substr(md5('1|12345678|Mary-Jane Smith'), 1, 6))::bit(24)::int
+        assertEquals(0x12ee3b, PhonebookEntryDocument.checksum(1, "12345678", "Mary-Jane Smith"));
+        assertEquals(0x25fed0, PhonebookEntryDocument.checksum(3, "87654321", "Jane O'Connor"));
+    }
+
+    private static class InMemorySource implements PhonebookIndexReconciler.ChecksumSource {
+        final NavigableMap<Long, Integer> entries = new TreeMap<>();
+        int leafCalls;
+
+        @Override
+        public long maxId() {
+            return entries.isEmpty() ? 0 : entries.lastKey();
+        }
+
+        @Override
+        public Map<Long, PhonebookIndexReconciler.Summary> summarize(long from, long to, long width) {
+            Map<Long, PhonebookIndexReconciler.Summary> summaries = new HashMap<>();
+            entries.subMap(from, true, to, false).forEach((id, checksum) -> summaries.merge((id - from) / width,
+                    new PhonebookIndexReconciler.Summary(1, checksum),
+                    (a, b) -> new PhonebookIndexReconciler.Summary(a.entries() + b.entries(),
+                            a.checksum() + b.checksum())));
+            return summaries;
+        }
+
+        @Override
+        public Map<Long, Integer> checksums(long from, long to) {
+            leafCalls++;
+            return new HashMap<>(entries.subMap(from, true, to, false));
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.phonebook.elasticsearch;
+
+import com.example.phonebook.entity.PhonebookEntry;
+import com.example.phonebook.entity.PhonebookOutboxEvent;
+import com.example.phonebook.repository.PhonebookEntryRepository;
+import com.example.phonebook.repository.PhonebookOutboxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PhonebookOutboxIndexerTest {
+
+    private static final IndexCoordinates COORDINATES = IndexCoordinates.of(PhonebookEntryDocument.INDEX);
+
+    @Mock
+    private PhonebookOutboxRepository outboxRepository;
+
+    @Mock
+    private PhonebookEntryRepository repository;
+
+    @Mock
+    private PhonebookIndexWriter indexWriter;
+
+    @Mock
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Mock
+    private PhonebookReindexService reindexService;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @InjectMocks
+    private PhonebookOutboxIndexer indexer;
+
+    @SuppressWarnings("unchecked")
+    public PhonebookOutboxIndexerTest() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(indexer, "batchSize", 500);
+        ReflectionTestUtils.setField(indexer, "initialBackoffMillis", 1000L);
+        ReflectionTestUtils.setField(indexer, "maxBackoffMillis", 300000L);
+        indexer.registerMetrics();
+        when(transactionTemplate.execute(any())).thenAnswer(
+                invocation -> ((TransactionCallback<Integer>) invocation.getArgument(0)).doInTransaction(null));
+        when(elasticsearchOperations.getIndexCoordinatesFor(PhonebookEntryDocument.class)).thenReturn(COORDINATES);
+    }
+
+    private static PhonebookOutboxEvent event(long id, long entryId, PhonebookOutboxEvent.Operation operation,
+            Long entryVersion) {
+        PhonebookOutboxEvent event = PhonebookOutboxEvent.of(entryId, operation);
+        event.setId(id);
+        event.setEntryVersion(entryVersion);
+        return event;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testDrainIndexesCurrentStateAndDeletesMissingEntries() {
+        List<PhonebookOutboxEvent> events = List.of(
+                event(1, 1, PhonebookOutboxEvent.Operation.INDEX, null),
+                event(2, 1, PhonebookOutboxEvent.Operation.INDEX, null),
+                event(3, 2, PhonebookOutboxEvent.Operation.INDEX, null),
+                event(4, 2, PhonebookOutboxEvent.Operation.DELETE, 4L),
+                event(5, 3, PhonebookOutboxEvent.Operation.DELETE, null));
+        when(outboxRepository.lockNextBatch(500)).thenReturn(events);
+        when(repository.findAllById(any())).thenReturn(List.of(new PhonebookEntry(1L, "12345678", "Alice", 5)));
+
+        assertEquals(5, indexer.drainBatch());
+
+        ArgumentCaptor<List<PhonebookEntryDocument>> indexed = ArgumentCaptor.forClass(List.class);
+        verify(indexWriter).index(indexed.capture(), eq(COORDINATES));
+        assertEquals(1, indexed.getValue().size());
+        PhonebookEntryDocument document = indexed.getValue().get(0);
+        assertEquals("1", document.getId());
+        assertEquals("Alice", document.getName());
+        assertEquals(5L, document.getEntryVersion());
+
+        // Entry 2's delete carries the version it was deleted at; 3 came without one
+        Map<String, Long> expectedDeletes = new HashMap<>();
+        expectedDeletes.put("2", 4L);
+        expectedDeletes.put("3", null);
+        verify(indexWriter).delete(expectedDeletes, COORDINATES);
+
+        verify(reindexService).recordChanged(Set.of(1L, 2L, 3L));
+        verify(outboxRepository).deleteAllInBatch(events);
+        assertEquals(1, meterRegistry.counter("phonebook.outbox.documents", "operation", "index").count());
+        assertEquals(2, meterRegistry.counter("phonebook.outbox.documents", "operation", "delete").count());
+    }
+
+    @Test
+    void testFailedBatchIsKeptAndRetriedWithBackoff() {
+        PhonebookOutboxEvent first = event(1, 1, PhonebookOutboxEvent.Operation.INDEX, null);
+        PhonebookOutboxEvent retried = event(2, 2, PhonebookOutboxEvent.Operation.DELETE, 3L);
+        retried.setAttempts(2);
+        when(outboxRepository.lockNextBatch(500)).thenReturn(List.of(first, retried));
+        when(repository.findAllById(any())).thenReturn(List.of(new PhonebookEntry(1L, "12345678", "Alice")));
+        doThrow(new IllegalStateException("cluster unavailable")).when(indexWriter).index(anyList(), any());
+
+        Instant before = Instant.now();
+        assertEquals(0, indexer.drainBatch());
+
+        assertEquals(1, first.getAttempts());
+        assertEquals(3, retried.getAttempts());
+        assertFalse(first.getNextAttemptAt().isBefore(before.plusSeconds(1)));
+        assertFalse(retried.getNextAttemptAt().isBefore(before.plusSeconds(4)));
+        assertTrue(retried.getNextAttemptAt().isBefore(before.plusSeconds(5)));
+        verify(outboxRepository, never()).deleteAllInBatch(any());
+        assertEquals(1, meterRegistry.counter("phonebook.outbox.failures").count());
+    }
+
+    @Test
+    void testBackoffDoublesUpToMaximum() {
+        assertEquals(Duration.ofSeconds(1), indexer.backoff(1));
+        assertEquals(Duration.ofSeconds(2), indexer.backoff(2));
+        assertEquals(Duration.ofSeconds(8), indexer.backoff(4));
+        assertEquals(Duration.ofMinutes(5), indexer.backoff(10));
+        assertEquals(Duration.ofMinutes(5), indexer.backoff(100));
+    }
+
+    @Test
+    void testEmptyOutboxWritesNothing() {
+        when(outboxRepository.lockNextBatch(500)).thenReturn(List.of());
+
+        assertEquals(0, indexer.drainBatch());
+
+        verify(indexWriter, never()).index(anyList(), any());
+        verify(indexWriter, never()).delete(anyMap(), any());
+        verify(outboxRepository, never()).deleteAllInBatch(any());
+    }
+}
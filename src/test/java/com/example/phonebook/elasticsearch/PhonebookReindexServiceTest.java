@@ -0,0 +1,214 @@
+package com.example.phonebook.elasticsearch;
+
+import com.example.phonebook.entity.PhonebookEntry;
+import com.example.phonebook.repository.PhonebookEntryRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.index.AliasAction;
+import org.springframework.data.elasticsearch.core.index.AliasActions;
+import org.springframework.data.elasticsearch.core.index.AliasData;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PhonebookReindexServiceTest {
+
+    private static final String TARGET = "phonebook_v20260101000000";
+
+    @Mock
+    private ElasticsearchOperations elasticsearchOperations;
+
+    @Mock
+    private PhonebookIndexWriter indexWriter;
+
+    @Mock
+    private PhonebookEntryRepository repository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private DataSource dataSource;
+
+    @InjectMocks
+    private PhonebookReindexService reindexService;
+
+    private final Map<String, IndexOperations> indexOps = new HashMap<>();
+
+    @SuppressWarnings("unchecked")
+    public PhonebookReindexServiceTest() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(reindexService, "bulkSize", 2);
+        when(elasticsearchOperations.indexOps(any(IndexCoordinates.class))).thenAnswer(invocation -> indexOps
+                .computeIfAbsent(((IndexCoordinates) invocation.getArgument(0)).getIndexName(),
+                        name -> mock(IndexOperations.class)));
+        when(transactionTemplate.execute(any())).thenAnswer(
+                invocation -> ((TransactionCallback<Object>) invocation.getArgument(0)).doInTransaction(null));
+        doAnswer(invocation -> {
+            ((Consumer<TransactionStatus>) invocation.getArgument(0)).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    @Test
+    void testChangesAreRecordedInTheDatabase() throws SQLException {
+        reindexService.recordChanged(List.of());
+        verifyNoInteractions(jdbcTemplate);
+
+        reindexService.recordChanged(List.of(3L, 1L));
+
+        ArgumentCaptor<PreparedStatementCreator> statement = ArgumentCaptor.forClass(PreparedStatementCreator.class);
+        verify(jdbcTemplate).update(statement.capture());
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenReturn(mock(PreparedStatement.class));
+        statement.getValue().createPreparedStatement(connection);
+        verify(connection).createArrayOf("bigint", new Long[] { 3L, 1L });
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testChangedEntriesAreCopiedAndDeletedEntriesRemovedInBulk() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(2)))
+                .thenReturn(List.of(1L, 2L), List.of(3L), List.of());
+        when(repository.findAllById(any())).thenAnswer(invocation -> {
+            List<PhonebookEntry> found = new ArrayList<>();
+            for (Long id : (Iterable<Long>) invocation.getArgument(0)) {
+                if (id == 1L) {
+                    found.add(new PhonebookEntry(1L, "12345678", "Alice", 3));
+                }
+            }
+            return found;
+        });
+
+        ReflectionTestUtils.invokeMethod(reindexService, "applyChanges", TARGET, false);
+
+        // Three ids in batches of two, each taken in its own transaction
+        ArgumentCaptor<List<PhonebookEntryDocument>> indexed = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<Map<String, Long>> deleted = ArgumentCaptor.forClass(Map.class);
+        ArgumentCaptor<IndexCoordinates> coordinates = ArgumentCaptor.forClass(IndexCoordinates.class);
+        verify(indexWriter, times(2)).index(indexed.capture(), coordinates.capture());
+        verify(indexWriter, times(2)).delete(deleted.capture(), any());
+
+        assertEquals(List.of("1"), indexed.getAllValues().stream().flatMap(List::stream)
+                .map(PhonebookEntryDocument::getId).toList());
+        assertEquals(3L, indexed.getAllValues().stream().flatMap(List::stream).findFirst().orElseThrow()
+                .getEntryVersion());
+        assertEquals(Set.of("2", "3"), deleted.getAllValues().stream().flatMap(map -> map.keySet().stream())
+                .collect(Collectors.toSet()));
+        assertTrue(coordinates.getAllValues().stream().allMatch(value -> TARGET.equals(value.getIndexName())));
+        verify(transactionTemplate, times(3)).execute(any());
+        verify(jdbcTemplate, never()).execute(anyString());
+        verify(elasticsearchOperations, never()).delete(anyString(), any(IndexCoordinates.class));
+    }
+
+    @Test
+    void testChangesAfterSwapWaitForUncommittedWriters() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(2))).thenReturn(List.of(1L), List.of());
+        when(repository.findAllById(any())).thenReturn(List.of(new PhonebookEntry(1L, "12345678", "Alice", 3)));
+
+        ReflectionTestUtils.invokeMethod(reindexService, "applyChanges", TARGET, true);
+
+        // The table lock and every batch share one transaction
+        InOrder inOrder = inOrder(transactionTemplate, jdbcTemplate, indexWriter);
+        inOrder.verify(transactionTemplate).executeWithoutResult(any());
+        inOrder.verify(jdbcTemplate).execute("LOCK TABLE phonebook_reindex_change IN SHARE MODE");
+        inOrder.verify(jdbcTemplate).queryForList(anyString(), eq(Long.class), eq(2));
+        inOrder.verify(indexWriter).index(any(), any());
+        verify(transactionTemplate, never()).execute(any());
+    }
+
+    @Test
+    void testStartIsRefusedWhileAnotherInstanceHoldsTheLock() throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenReturn(rs);
+        when(rs.next()).thenReturn(true);
+        when(rs.getBoolean(1)).thenReturn(false);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> reindexService.start());
+
+        assertTrue(e.getMessage().contains("another instance"));
+        verify(connection).close();
+        verifyNoInteractions(jdbcTemplate);
+        assertFalse(reindexService.isRunning());
+    }
+
+    @Test
+    void testAliasMovesFromPreviousIndexInOneRequest() {
+        IndexOperations aliasOps = mock(IndexOperations.class);
+        indexOps.put(PhonebookEntryDocument.INDEX, aliasOps);
+        when(aliasOps.getAliases(PhonebookEntryDocument.INDEX)).thenReturn(Map.of(
+                "phonebook_v1", Set.of(mock(AliasData.class))));
+
+        ReflectionTestUtils.invokeMethod(reindexService, "swapAlias", TARGET);
+
+        ArgumentCaptor<AliasActions> request = ArgumentCaptor.forClass(AliasActions.class);
+        verify(aliasOps).alias(request.capture());
+        List<AliasAction> actions = request.getValue().getActions();
+        assertEquals(2, actions.size());
+        assertInstanceOf(AliasAction.Remove.class, actions.get(0));
+        assertArrayEquals(new String[] { "phonebook_v1" }, actions.get(0).getParameters().getIndices());
+        assertInstanceOf(AliasAction.Add.class, actions.get(1));
+        assertArrayEquals(new String[] { TARGET }, actions.get(1).getParameters().getIndices());
+        assertArrayEquals(new String[] { PhonebookEntryDocument.INDEX }, actions.get(1).getParameters().getAliases());
+
+        verify(indexOps.get("phonebook_v1")).delete();
+        verify(aliasOps, never()).delete();
+    }
+
+    @Test
+    void testPlainIndexIsReplacedByAlias() {
+        IndexOperations aliasOps = mock(IndexOperations.class);
+        indexOps.put(PhonebookEntryDocument.INDEX, aliasOps);
+        // Before the first reindex "phonebook" is a concrete index, not an alias
+        when(aliasOps.getAliases(PhonebookEntryDocument.INDEX)).thenThrow(new IllegalStateException("no alias"));
+        when(aliasOps.exists()).thenReturn(true);
+
+        ReflectionTestUtils.invokeMethod(reindexService, "swapAlias", TARGET);
+
+        ArgumentCaptor<AliasActions> request = ArgumentCaptor.forClass(AliasActions.class);
+        verify(aliasOps).alias(request.capture());
+        List<AliasAction> actions = request.getValue().getActions();
+        assertEquals(2, actions.size());
+        assertInstanceOf(AliasAction.RemoveIndex.class, actions.get(0));
+        assertArrayEquals(new String[] { PhonebookEntryDocument.INDEX }, actions.get(0).getParameters().getIndices());
+        assertInstanceOf(AliasAction.Add.class, actions.get(1));
+        assertArrayEquals(new String[] { TARGET }, actions.get(1).getParameters().getIndices());
+    }
+}
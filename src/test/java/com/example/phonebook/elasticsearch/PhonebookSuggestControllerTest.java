@@ -0,0 +1,96 @@
+package com.example.phonebook.elasticsearch;
+
+import com.example.phonebook.util.InputSanitizer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(PhonebookSuggestController.class)
+class PhonebookSuggestControllerTest {
+
+        @Autowired
+        private MockMvc mockMvc;
+
+        @MockBean
+        private PhonebookEntrySearchService searchService;
+
+        @MockBean
+        private InputSanitizer sanitizer;
+
+        @Test
+        void testSuggest() throws Exception {
+                when(sanitizer.sanitizeSearchKeyword("smi")).thenReturn("smi");
+                when(sanitizer.sanitizeInteger("5")).thenReturn(5);
+                when(searchService.suggest("smi", 5)).thenReturn(List.of(
+                                PhonebookEntryDocument.forIndexing("1", "12345678", "John Smith", 0)));
+
+                mockMvc.perform(get("/api/phonebook/suggest").param("q", "smi").param("limit", "5"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.length()").value(1))
+                                .andExpect(jsonPath("$[0].id").value("1"))
+                                .andExpect(jsonPath("$[0].name").value("John Smith"))
+                                .andExpect(jsonPath("$[0].suggest").doesNotExist());
+        }
+
+        @Test
+        void testSuggestUsesDefaultLimit() throws Exception {
+                when(sanitizer.sanitizeSearchKeyword("jo")).thenReturn("jo");
+                when(searchService.suggest("jo", PhonebookSuggestController.DEFAULT_LIMIT)).thenReturn(List.of());
+
+                mockMvc.perform(get("/api/phonebook/suggest").param("q", "jo"))
+                                .andExpect(status().isOk())
+                                .andExpect(jsonPath("$.length()").value(0));
+
+                verify(searchService).suggest("jo", PhonebookSuggestController.DEFAULT_LIMIT);
+        }
+
+        @Test
+        void testSuggestRejectsLimitOutOfRange() throws Exception {
+                when(sanitizer.sanitizeSearchKeyword("jo")).thenReturn("jo");
+                when(sanitizer.sanitizeInteger("0")).thenReturn(0);
+                when(sanitizer.sanitizeInteger("51")).thenReturn(PhonebookSuggestController.MAX_LIMIT + 1);
+
+                mockMvc.perform(get("/api/phonebook/suggest").param("q", "jo").param("limit", "0"))
+                                .andExpect(status().isBadRequest())
+                                .andExpect(content().string("Validation error: limit must be between 1 and 50"));
+                mockMvc.perform(get("/api/phonebook/suggest").param("q", "jo").param("limit", "51"))
+                                .andExpect(status().isBadRequest());
+
+                verify(searchService, never()).suggest(anyString(), anyInt());
+        }
+
+        @Test
+        void testSuggestRejectsEmptyPrefix() throws Exception {
+                when(sanitizer.sanitizeSearchKeyword("   ")).thenReturn("");
+
+                mockMvc.perform(get("/api/phonebook/suggest").param("q", "   "))
+                                .andExpect(status().isBadRequest())
+                                .andExpect(content().string("Search keyword cannot be empty"));
+                mockMvc.perform(get("/api/phonebook/suggest"))
+                                .andExpect(status().isBadRequest());
+
+                verify(searchService, never()).suggest(anyString(), anyInt());
+        }
+
+        @Test
+        void testSuggestRejectsInvalidInput() throws Exception {
+                when(sanitizer.sanitizeSearchKeyword("jo")).thenReturn("jo");
+                when(sanitizer.sanitizeInteger("ten")).thenThrow(new IllegalArgumentException("Invalid numeric input"));
+
+                mockMvc.perform(get("/api/phonebook/suggest").param("q", "jo").param("limit", "ten"))
+                                .andExpect(status().isBadRequest())
+                                .andExpect(content().string("Invalid search parameters: Invalid numeric input"));
+        }
+}
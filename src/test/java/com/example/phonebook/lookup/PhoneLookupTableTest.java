@@ -0,0 +1,56 @@
+package com.example.phonebook.lookup;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhoneLookupTableTest {
+
+    private PhoneLookupTable table;
+
+    @BeforeEach
+    void setUp() {
+        table = new PhoneLookupTable(2);
+        table.put(1L, 12345678, "Mary-Jane Smith");
+        table.put(2L, 1234567, "Zoë O'Connor");
+    }
+
+    @Test
+    void testGet() {
+        assertEquals(new PhoneLookupTable.Match(1L, "Mary-Jane Smith"), table.get(12345678));
+        assertEquals(new PhoneLookupTable.Match(2L, "Zoë O'Connor"), table.get(1234567));
+        assertNull(table.get(87654321));
+    }
+
+    @Test
+    void testPutMovesEntryWhenPhoneChanges() {
+        table.put(1L, 87654321, "Mary Smith");
+
+        assertNull(table.get(12345678));
+        assertEquals(new PhoneLookupTable.Match(1L, "Mary Smith"), table.get(87654321));
+        assertEquals(2, table.size());
+    }
+
+    @Test
+    void testRemove() {
+        table.remove(2L);
+        table.remove(99L);
+
+        assertNull(table.get(1234567));
+        assertEquals(1, table.size());
+    }
+
+    @Test
+    void testGrowsAndCompactsUnderChurn() {
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 10_000; i++) {
+                table.put(100L + i, 20_000_000 + i, "Name " + round + " " + i);
+            }
+        }
+
+        assertEquals(10_002, table.size());
+        assertEquals(new PhoneLookupTable.Match(5099L, "Name 4 4999"), table.get(20_004_999));
+        assertTrue(table.memoryBytes() / table.size() < 100);
+    }
+}
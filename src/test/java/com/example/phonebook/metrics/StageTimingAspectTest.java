@@ -0,0 +1,78 @@
+package com.example.phonebook.metrics;
+
+import com.example.phonebook.entity.PhonebookEntry;
+import com.example.phonebook.repository.PhonebookEntryRepository;
+import com.example.phonebook.service.PhonebookEntryService;
+import com.example.phonebook.util.InputSanitizer;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StageTimingAspectTest {
+
+    private SimpleMeterRegistry registry;
+    private StageTimingAspect aspect;
+    private PhonebookEntryRepository repository;
+    private PhonebookEntryService service;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        StageMetrics stageMetrics = new StageMetrics();
+        ReflectionTestUtils.setField(stageMetrics, "meterRegistry", registry);
+        aspect = new StageTimingAspect();
+        ReflectionTestUtils.setField(aspect, "stageMetrics", stageMetrics);
+
+        repository = mock(PhonebookEntryRepository.class);
+        PhonebookEntryService target = new PhonebookEntryService();
+        ReflectionTestUtils.setField(target, "repository", repository);
+        service = proxy(target);
+    }
+
+    private <T> T proxy(T target) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        return factory.getProxy();
+    }
+
+    private Timer timer(String operation, String outcome) {
+        return registry.find(StageMetrics.TIMER)
+                .tags("stage", StageMetrics.SERVICE, "endpoint", StageMetrics.NO_ENDPOINT,
+                        "operation", operation, "outcome", outcome)
+                .timer();
+    }
+
+    @Test
+    void testRecordsSuccessAndErrorSeparately() {
+        when(repository.findById(1L)).thenReturn(Optional.of(new PhonebookEntry(1L, "12345678", "Alice")));
+        when(repository.findById(2L)).thenThrow(new DataAccessResourceFailureException("database down"));
+
+        service.getEntryById(1L);
+        service.getEntryById(1L);
+        assertThrows(DataAccessResourceFailureException.class, () -> service.getEntryById(2L));
+
+        assertEquals(2, timer("getEntryById", "success").count());
+        assertEquals(1, timer("getEntryById", "error").count());
+        assertNull(timer("getAllEntries", "success"));
+    }
+
+    @Test
+    void testSanitizerCallsAreNotTimed() {
+        InputSanitizer sanitizer = proxy(new InputSanitizer());
+
+        sanitizer.sanitizePhone("12345678");
+        assertThrows(IllegalArgumentException.class, () -> sanitizer.sanitizePhone("123"));
+
+        assertTrue(registry.find(StageMetrics.TIMER).timers().isEmpty());
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.phonebook.repository;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PhonebookEntryBatchRepositoryTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private PhonebookEntryBatchRepository batchRepository;
+
+    public PhonebookEntryBatchRepositoryTest() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void testIdsAreHandedOutFromReservedBlocks() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(1)))
+                .thenReturn(List.of(150L), List.of(300L));
+
+        assertArrayEquals(new long[] { 101, 102, 103 }, batchRepository.reserveIds(3));
+        // 47 ids are left in the first block; the next 13 come from a new one
+        long[] ids = batchRepository.reserveIds(60);
+
+        assertArrayEquals(LongStream.concat(LongStream.rangeClosed(104, 150), LongStream.rangeClosed(251, 263))
+                .toArray(), ids);
+        verify(jdbcTemplate, times(2)).queryForList(anyString(), eq(Long.class), eq(1));
+    }
+
+    @Test
+    void testLargeBatchReservesAllBlocksInOneQuery() {
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), eq(3))).thenReturn(List.of(50L, 200L, 250L));
+
+        long[] ids = batchRepository.reserveIds(120);
+
+        assertArrayEquals(LongStream.concat(LongStream.concat(LongStream.rangeClosed(1, 50),
+                LongStream.rangeClosed(151, 200)), LongStream.rangeClosed(201, 220)).toArray(), ids);
+        assertArrayEquals(new long[] { 221 }, batchRepository.reserveIds(1));
+        verify(jdbcTemplate).queryForList(anyString(), eq(Long.class), eq(3));
+    }
+}
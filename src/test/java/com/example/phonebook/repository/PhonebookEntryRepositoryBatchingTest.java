@@ -0,0 +1,140 @@
+package com.example.phonebook.repository;
+
+import com.example.phonebook.entity.PhonebookEntry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs against an in-memory H2 database. The Liquibase changelog is
+ * Postgres-specific, so the schema comes from the entity instead, and the
+ * second-level cache regions of HibernateCacheConfig are not loaded.
+ */
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.cache.use_query_cache=false"
+})
+class PhonebookEntryRepositoryBatchingTest {
+
+    @Autowired
+    private PhonebookEntryRepository repository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private StatementCounter statementCounter;
+
+    @Test
+    void testInsertsReachDatabaseInBatches() {
+        List<PhonebookEntry> entries = new ArrayList<>();
+        for (int i = 0; i < 2 * PhonebookEntry.ALLOCATION_SIZE; i++) {
+            entries.add(new PhonebookEntry(null, String.format("%08d", i), "Name " + i));
+        }
+        statementCounter.reset();
+
+        repository.saveAll(entries);
+        entityManager.flush();
+
+        // Ids were assigned from the pooled sequence before the flush
+        entries.forEach(entry -> assertNotNull(entry.getId()));
+        assertEquals(2, statementCounter.insertBatches.get());
+        assertEquals(0, statementCounter.singleInserts.get());
+        // 100 ids cost at most three round-trips to the sequence
+        assertTrue(statementCounter.sequenceCalls.get() <= 3);
+    }
+
+    /**
+     * Wraps the DataSource and counts how INSERTs and sequence calls are executed
+     */
+    static class StatementCounter implements BeanPostProcessor {
+        final AtomicInteger insertBatches = new AtomicInteger();
+        final AtomicInteger singleInserts = new AtomicInteger();
+        final AtomicInteger sequenceCalls = new AtomicInteger();
+
+        void reset() {
+            insertBatches.set(0);
+            singleInserts.set(0);
+            sequenceCalls.set(0);
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource) {
+                return proxy(DataSource.class, dataSource, (target, method, args) -> {
+                    Object result = method.invoke(target, args);
+                    return result instanceof Connection connection ? countingConnection(connection) : result;
+                });
+            }
+            return bean;
+        }
+
+        private Connection countingConnection(Connection connection) {
+            return proxy(Connection.class, connection, (target, method, args) -> {
+                Object result = method.invoke(target, args);
+                if (method.getName().equals("prepareStatement") && result instanceof PreparedStatement statement) {
+                    return countingStatement(statement, ((String) args[0]).toLowerCase(Locale.ROOT));
+                }
+                return result;
+            });
+        }
+
+        private PreparedStatement countingStatement(PreparedStatement statement, String sql) {
+            return proxy(PreparedStatement.class, statement, (target, method, args) -> {
+                if (sql.startsWith("insert")) {
+                    if (method.getName().equals("executeBatch")) {
+                        insertBatches.incrementAndGet();
+                    } else if (method.getName().equals("executeUpdate")) {
+                        singleInserts.incrementAndGet();
+                    }
+                } else if (sql.contains("phonebook_entry_seq") && method.getName().equals("executeQuery")) {
+                    sequenceCalls.incrementAndGet();
+                }
+                return method.invoke(target, args);
+            });
+        }
+
+        @FunctionalInterface
+        private interface Handler<T> {
+            Object invoke(T target, java.lang.reflect.Method method, Object[] args) throws Throwable;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, T target, Handler<T> handler) {
+            InvocationHandler invocationHandler = (proxy, method, args) -> {
+                try {
+                    return handler.invoke(target, method, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            };
+            return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, invocationHandler);
+        }
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        static StatementCounter statementCounter() {
+            return new StatementCounter();
+        }
+    }
+}
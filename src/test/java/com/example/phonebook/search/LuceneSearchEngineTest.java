@@ -0,0 +1,179 @@
+package com.example.phonebook.search;
+
+import com.example.phonebook.dto.CursorPage;
+import com.example.phonebook.elasticsearch.PhonebookEntryDocument;
+import com.example.phonebook.entity.PhonebookEntry;
+import com.example.phonebook.repository.PhonebookEntryBatchRepository;
+import com.example.phonebook.repository.PhonebookEntryBatchRepository.Change;
+import com.example.phonebook.repository.PhonebookEntryBatchRepository.ChangePosition;
+import com.example.phonebook.repository.PhonebookEntryRepository;
+import com.example.phonebook.service.PhonebookEntryChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class LuceneSearchEngineTest {
+
+    @Mock
+    private PhonebookEntryRepository repository;
+
+    @Mock
+    private PhonebookEntryBatchRepository batchRepository;
+
+    @TempDir
+    Path path;
+
+    private LuceneSearchEngine engine;
+
+    LuceneSearchEngineTest() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(batchRepository.changePosition()).thenReturn(new ChangePosition(3, Instant.now()));
+        when(repository.findByIdGreaterThanOrderByIdAsc(anyLong(), any())).thenReturn(List.of(
+                new PhonebookEntry(1L, "12345678", "Mary-Jane Smith"),
+                new PhonebookEntry(2L, "12349999", "John Doe"),
+                new PhonebookEntry(3L, "87654321", "Jane O'Connor")));
+        engine = open();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        engine.close();
+    }
+
+    private LuceneSearchEngine open() throws Exception {
+        LuceneSearchEngine opened = new LuceneSearchEngine();
+        ReflectionTestUtils.setField(opened, "repository", repository);
+        ReflectionTestUtils.setField(opened, "batchRepository", batchRepository);
+        ReflectionTestUtils.setField(opened, "path", path);
+        ReflectionTestUtils.setField(opened, "refreshInterval", Duration.ofMillis(100));
+        ReflectionTestUtils.setField(opened, "loadBatchSize", 10);
+        ReflectionTestUtils.setField(opened, "tombstoneRetention", Duration.ofDays(7));
+        opened.open();
+        return opened;
+    }
+
+    private List<String> ids(Page<PhonebookEntryDocument> page) {
+        return page.getContent().stream().map(PhonebookEntryDocument::getId).toList();
+    }
+
+    @Test
+    void testSearchByNamePrefixAtAnyTokenPosition() {
+        Page<PhonebookEntryDocument> page = engine.search("jane", PageRequest.of(0, 10));
+
+        assertEquals(List.of("1", "3"), ids(page));
+        assertEquals(2, page.getTotalElements());
+    }
+
+    @Test
+    void testSearchByPhrasePrefix() {
+        assertEquals(List.of("1"), ids(engine.search("jane sm", PageRequest.of(0, 10))));
+        assertEquals(List.of(), ids(engine.search("smith jane", PageRequest.of(0, 10))));
+        assertEquals(List.of("3"), ids(engine.search("jane o&#x27;c", PageRequest.of(0, 10))));
+    }
+
+    @Test
+    void testSearchByPhonePrefix() {
+        assertEquals(List.of("1", "2"), ids(engine.search("1234", PageRequest.of(0, 10))));
+    }
+
+    @Test
+    void testSearchByNumberInsidePhone() {
+        assertEquals(List.of("1", "2"), ids(engine.search("234", PageRequest.of(0, 10))));
+        assertEquals(List.of("3"), ids(engine.search("654", PageRequest.of(0, 10))));
+        assertEquals(List.of(), ids(engine.search("23", PageRequest.of(0, 10))));
+    }
+
+    @Test
+    void testSearchAfterWalksAllMatches() {
+        CursorPage<PhonebookEntryDocument> first = engine.searchAfter("jane", null, 1, false);
+        CursorPage<PhonebookEntryDocument> second = engine.searchAfter("jane", first.getNextCursor(), 1, false);
+
+        assertEquals("1", first.getContent().get(0).getId());
+        assertEquals("3", second.getContent().get(0).getId());
+        assertNull(second.getNextCursor());
+        assertThrows(IllegalArgumentException.class, () -> engine.searchAfter("jane", "o:1", 1, false));
+    }
+
+    @Test
+    void testReopensIndexWhenNothingChanged() throws Exception {
+        engine.close();
+        engine = open();
+
+        verify(repository, times(1)).findByIdGreaterThanOrderByIdAsc(anyLong(), any());
+        verify(batchRepository).findChangesSince(3L, 10);
+        assertEquals(List.of("1", "2"), ids(engine.search("1234", PageRequest.of(0, 10))));
+    }
+
+    @Test
+    void testCatchesUpChangesFromOtherInstances() throws Exception {
+        engine.close();
+        when(batchRepository.changePosition()).thenReturn(new ChangePosition(5, Instant.now()));
+        when(batchRepository.findChangesSince(3L, 10)).thenReturn(List.of(
+                new Change(2L, null, 4),
+                new Change(4L, new PhonebookEntry(4L, "55512345", "Jane Roe"), 5)));
+        engine = open();
+
+        verify(repository, times(1)).findByIdGreaterThanOrderByIdAsc(anyLong(), any());
+        assertEquals(List.of("1"), ids(engine.search("1234", PageRequest.of(0, 10))));
+        assertEquals(List.of("4"), ids(engine.search("roe", PageRequest.of(0, 10))));
+    }
+
+    @Test
+    void testLocalChangesKeepTheStartupPosition() throws Exception {
+        engine.onEntryChanged(PhonebookEntryChangedEvent.deleted(2L));
+        engine.commitChanges();
+        engine.close();
+        when(batchRepository.changePosition()).thenReturn(new ChangePosition(4, Instant.now()));
+        when(batchRepository.findChangesSince(3L, 10)).thenReturn(List.of(new Change(2L, null, 4)));
+        engine = open();
+
+        // The deletion is replayed from the position read before the load
+        verify(batchRepository).findChangesSince(3L, 10);
+        verify(repository, times(1)).findByIdGreaterThanOrderByIdAsc(anyLong(), any());
+        assertEquals(List.of("1"), ids(engine.search("1234", PageRequest.of(0, 10))));
+    }
+
+    @Test
+    void testRebuildsIndexOlderThanTombstoneRetention() throws Exception {
+        engine.close();
+        // Eight days on, deletes past the seven-day retention may be gone
+        when(batchRepository.changePosition())
+                .thenReturn(new ChangePosition(3, Instant.now().plus(Duration.ofDays(8))));
+        engine = open();
+
+        verify(repository, times(2)).findByIdGreaterThanOrderByIdAsc(anyLong(), any());
+        verify(batchRepository, never()).findChangesSince(anyLong(), anyInt());
+        assertEquals(2, engine.search("1234", PageRequest.of(0, 10)).getTotalElements());
+    }
+
+    @Test
+    void testRebuildsIndexAheadOfTheDatabase() throws Exception {
+        engine.close();
+        when(batchRepository.changePosition()).thenReturn(new ChangePosition(1, Instant.now()));
+        engine = open();
+
+        verify(repository, times(2)).findByIdGreaterThanOrderByIdAsc(anyLong(), any());
+        verify(batchRepository, never()).findChangesSince(anyLong(), anyInt());
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.phonebook.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhonebookPrefixIndexTest {
+
+    private PhonebookPrefixIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new PhonebookPrefixIndex(4);
+        index.put(1L, "12345678", "Mary-Jane Smith");
+        index.put(2L, "12349999", "John Doe");
+        index.put(3L, "87654321", "Jane O'Connor");
+    }
+
+    private List<Long> ids(PhonebookPrefixIndex.Result result) {
+        return result.hits().stream().map(PhonebookPrefixIndex.Hit::id).toList();
+    }
+
+    @Test
+    void testSearchByNamePrefixAtAnyTokenPosition() {
+        // Key order: "jane o'connor" before "jane smith"
+        assertEquals(List.of(3L, 1L), ids(index.search("jane", 0, 10)));
+        assertEquals(List.of(2L), ids(index.search("Do", 0, 10)));
+    }
+
+    @Test
+    void testSearchByPhrasePrefix() {
+        assertEquals(List.of(1L), ids(index.search("jane sm", 0, 10)));
+        assertEquals(List.of(), ids(index.search("smith jane", 0, 10)));
+    }
+
+    @Test
+    void testSuggestStopsAtLimit() {
+        assertEquals(List.of(3L, 1L), index.suggest("jane", 10).stream().map(PhonebookPrefixIndex.Hit::id).toList());
+        assertEquals(1, index.suggest("jane", 1).size());
+        assertEquals(List.of(1L, 2L), index.suggest("1234", 10).stream().map(PhonebookPrefixIndex.Hit::id).toList());
+        assertEquals(List.of(), index.suggest("", 10));
+    }
+
+    @Test
+    void testSearchByPhonePrefix() {
+        PhonebookPrefixIndex.Result result = index.search("1234", 0, 10);
+        assertEquals(List.of(1L, 2L), ids(result));
+        assertFalse(result.more());
+        assertEquals(2, index.count("1234", 100));
+    }
+
+    @Test
+    void testNumbersOfThreeDigitsMatchInsidePhones() {
+        assertEquals(List.of(1L, 2L), ids(index.search("234", 0, 10)));
+        assertEquals(List.of(3L), ids(index.search("654", 0, 10)));
+        assertEquals(List.of(), ids(index.search("23", 0, 10)));
+        // A phone prefix is not counted again as an infix match
+        assertEquals(2, index.count("123", 100));
+        assertEquals(List.of("2345678", "345678", "45678", "5678", "678"), PhonebookPrefixIndex.phoneSuffixes("12345678"));
+
+        index.remove(2L);
+        assertEquals(List.of(1L), ids(index.search("234", 0, 10)));
+    }
+
+    @Test
+    void testSearchUnescapesApostrophe() {
+        assertEquals(List.of(3L), ids(index.search("o&#x27;conn", 0, 10)));
+    }
+
+    @Test
+    void testSearchPaging() {
+        PhonebookPrefixIndex.Result result = index.search("j", 1, 1);
+        assertEquals(List.of(1L), ids(result));
+        assertTrue(result.more());
+
+        PhonebookPrefixIndex.Result last = index.search("j", 2, 5);
+        assertEquals(List.of(2L), ids(last));
+        assertFalse(last.more());
+        assertEquals(3, index.count("j", 100));
+    }
+
+    @Test
+    void testSearchAndCountStopEarly() {
+        PhonebookPrefixIndex.Result first = index.search("j", 0, 2);
+        assertEquals(List.of(3L, 1L), ids(first));
+        assertTrue(first.more());
+        assertEquals(2, index.count("j", 2));
+        assertEquals(0, index.count("", 10));
+        assertEquals(List.of(), ids(index.search("j", 0, 0)));
+    }
+
+    @Test
+    void testPutReplacesAndRemoveDeletes() {
+        index.put(1L, "55555555", "Alice");
+        assertEquals(List.of(3L), ids(index.search("jane", 0, 10)));
+        assertEquals(List.of(2L), ids(index.search("1234", 0, 10)));
+
+        index.remove(2L);
+        assertEquals(0, index.count("1234", 100));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void testNameKeys() {
+        assertEquals(List.of("mary jane smith", "jane smith", "smith"), PhonebookPrefixIndex.nameKeys("Mary-Jane  Smith"));
+    }
+}
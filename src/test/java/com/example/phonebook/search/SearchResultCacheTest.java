@@ -0,0 +1,159 @@
+package com.example.phonebook.search;
+
+import com.example.phonebook.elasticsearch.PhonebookEntryDocument;
+import com.example.phonebook.entity.PhonebookEntry;
+import com.example.phonebook.service.PhonebookEntryChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchResultCacheTest {
+
+    private SearchResultCache cache;
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new SearchResultCache();
+        ReflectionTestUtils.setField(cache, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(cache, "ttl", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(cache, "maxBytes", 1_000_000L);
+        ReflectionTestUtils.setField(cache, "indexLag", Duration.ZERO);
+        cache.init();
+        loads = new AtomicInteger();
+    }
+
+    private Page<PhonebookEntryDocument> load(PhonebookEntryDocument... documents) {
+        loads.incrementAndGet();
+        return new PageImpl<>(List.of(documents));
+    }
+
+    private void cacheAlice() {
+        cache.get("ali", 0, 10, () -> load(new PhonebookEntryDocument("1", "12345678", "Alice Smith")));
+    }
+
+    @Test
+    void testRepeatedSearchIsServedFromCache() {
+        cacheAlice();
+        cacheAlice();
+
+        assertEquals(1, loads.get());
+        assertEquals(0.5, meterRegistry.get("phonebook.search.cache.hit.ratio").gauge().value());
+        assertTrue(meterRegistry.get("phonebook.search.cache.memory").gauge().value() > 0);
+    }
+
+    @Test
+    void testUnrelatedChangeKeepsPage() {
+        cacheAlice();
+
+        cache.onEntryChanged(PhonebookEntryChangedEvent.saved(new PhonebookEntry(2L, "87654321", "Bob Jones")));
+
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void testMatchingChangeInvalidatesPage() {
+        cacheAlice();
+
+        cache.onEntryChanged(PhonebookEntryChangedEvent.saved(new PhonebookEntry(2L, "87654321", "Bob Alison")));
+        cacheAlice();
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testChangeToMatchingPhoneDigitsInvalidatesPage() {
+        cache.get("4567", 0, 10, () -> load());
+
+        cache.onEntryChanged(PhonebookEntryChangedEvent.saved(new PhonebookEntry(2L, "12345678", "Bob Jones")));
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testDeletingEntryOnPageInvalidatesPage() {
+        cacheAlice();
+
+        cache.onEntryChanged(PhonebookEntryChangedEvent.deleted(1L));
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testConcurrentMissesShareOneLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Page<PhonebookEntryDocument>> first = executor.submit(() -> cache.get("ali", 0, 10, () -> {
+                loading.countDown();
+                await(release);
+                return load(new PhonebookEntryDocument("1", "12345678", "Alice Smith"));
+            }));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<Page<PhonebookEntryDocument>> second = executor.submit(() -> cache.get("ali", 0, 10,
+                    () -> load(new PhonebookEntryDocument("1", "12345678", "Alice Smith"))));
+            release.countDown();
+
+            assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testChangeDuringLoadDropsPendingPage() {
+        // Runs outside the cache's compute, so it may touch the same key
+        cache.get("ali", 0, 10, () -> {
+            cache.onEntryChanged(PhonebookEntryChangedEvent.saved(new PhonebookEntry(2L, "87654321", "Bob Alison")));
+            return load(new PhonebookEntryDocument("1", "12345678", "Alice Smith"));
+        });
+        cacheAlice();
+
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void testFailedLoadIsNotCached() {
+        assertThrows(IllegalStateException.class, () -> cache.get("ali", 0, 10, () -> {
+            throw new IllegalStateException("search backend down");
+        }));
+        cacheAlice();
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void testNormalizeAndWords() {
+        assertEquals("jane sm", SearchResultCache.normalize("  Jane \t SM "));
+        assertEquals("o", SearchResultCache.firstWord("o&#x27;connor"));
+        assertEquals(List.of("jane", "o", "connor", "12345678"), SearchResultCache.words("Jane O'Connor", "12345678"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
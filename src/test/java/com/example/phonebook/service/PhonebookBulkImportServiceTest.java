@@ -0,0 +1,96 @@
+package com.example.phonebook.service;
+
+import com.example.phonebook.dto.BulkImportResult;
+import com.example.phonebook.entity.PhonebookEntry;
+import com.example.phonebook.repository.PhonebookEntryBatchRepository;
+import com.example.phonebook.util.InputSanitizer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class PhonebookBulkImportServiceTest {
+
+    @Mock
+    private PhonebookEntryBatchRepository batchRepository;
+
+    @Spy
+    private InputSanitizer sanitizer = new InputSanitizer();
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private PhonebookBulkImportService service;
+
+    public PhonebookBulkImportServiceTest() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(service, "batchSize", 2);
+        ReflectionTestUtils.setField(service, "maxReportedErrors", 10);
+    }
+
+    @Test
+    void testImportCsvWithHeader() throws Exception {
+        when(batchRepository.insertAll(anyList(), anyList())).thenAnswer(invocation -> {
+            List<String> phones = invocation.getArgument(0);
+            List<String> names = invocation.getArgument(1);
+            return List.of(new PhonebookEntry(1L, phones.get(0), names.get(0)));
+        });
+
+        BulkImportResult result = service.importRows(
+                new StringReader("name,phone\nalice,12345678\n\"bob\",87654321\n"),
+                PhonebookBulkImportService.Format.CSV);
+
+        assertEquals(2, result.getRowsRead());
+        assertEquals(1, result.getRowsImported());
+        assertEquals(1, result.getRowsFailed());
+        assertEquals(3, result.getErrors().get(0).getLine());
+        assertEquals("Phone number already exists", result.getErrors().get(0).getMessage());
+        verify(batchRepository).insertAll(List.of("12345678", "87654321"), List.of("Alice", "Bob"));
+    }
+
+    @Test
+    void testImportNdjsonReportsInvalidRows() throws Exception {
+        when(batchRepository.insertAll(anyList(), anyList())).thenAnswer(invocation -> {
+            List<String> phones = invocation.getArgument(0);
+            List<String> names = invocation.getArgument(1);
+            return List.of(new PhonebookEntry(1L, phones.get(0), names.get(0)));
+        });
+
+        BulkImportResult result = service.importRows(new StringReader("""
+                {"phone":"12345678","name":"alice"}
+                {"phone":"1234","name":"bob"}
+                not json
+                {"phone":"12345678","name":"carol"}
+                """), PhonebookBulkImportService.Format.NDJSON);
+
+        assertEquals(4, result.getRowsRead());
+        assertEquals(1, result.getRowsImported());
+        assertEquals(3, result.getRowsFailed());
+        assertEquals("Phone number must be exactly 8 digits", result.getErrors().get(0).getMessage());
+        assertEquals("Malformed JSON", result.getErrors().get(1).getMessage());
+        assertEquals("Duplicate phone number in import", result.getErrors().get(2).getMessage());
+    }
+
+    @Test
+    void testParseCsvLine() {
+        assertEquals(List.of("12345678", "O'Connor, Jr"),
+                PhonebookBulkImportService.parseCsvLine("12345678,\"O'Connor, Jr\""));
+        assertEquals(List.of("a", "say \"hi\""), PhonebookBulkImportService.parseCsvLine("a,\"say \"\"hi\"\"\""));
+        assertThrows(IllegalArgumentException.class, () -> PhonebookBulkImportService.parseCsvLine("\"open"));
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.phonebook.service;
+
+import com.example.phonebook.config.CacheConfig;
+import com.example.phonebook.entity.PhonebookEntry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.MockitoAnnotations;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PhonebookEntryCacheListenerTest {
+
+    @Spy
+    private CacheManager cacheManager = new CacheConfig().cacheManager(100, Duration.ofMinutes(10));
+
+    @Mock
+    private TaskScheduler taskScheduler;
+
+    @InjectMocks
+    private PhonebookEntryCacheListener listener;
+
+    public PhonebookEntryCacheListenerTest() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(listener, "reEvictDelay", Duration.ofSeconds(2));
+    }
+
+    private Cache cache() {
+        return cacheManager.getCache(CacheConfig.ENTRY_CACHE);
+    }
+
+    @Test
+    void testSavedEntryRefreshesCache() {
+        PhonebookEntry saved = new PhonebookEntry(1L, "12345678", "Alice");
+        listener.onEntryChanged(PhonebookEntryChangedEvent.saved(saved));
+
+        PhonebookEntry cached = cache().get(1L, PhonebookEntry.class);
+        assertEquals(saved, cached);
+        assertNotSame(saved, cached);
+        verifyNoInteractions(taskScheduler);
+    }
+
+    @Test
+    void testStaleReadCannotReplaceNewerVersion() {
+        listener.onEntryChanged(PhonebookEntryChangedEvent.saved(new PhonebookEntry(1L, "12345678", "Bob", 3)));
+
+        // A read that loaded the row before the update committed puts it afterwards
+        cache().put(1L, new PhonebookEntry(1L, "12345678", "Alice", 2));
+        assertEquals("Bob", cache().get(1L, PhonebookEntry.class).getName());
+
+        cache().put(1L, new PhonebookEntry(1L, "12345678", "Carol", 4));
+        assertEquals("Carol", cache().get(1L, PhonebookEntry.class).getName());
+    }
+
+    @Test
+    void testDeletedEntryIsEvictedAgainLater() {
+        cache().put(1L, new PhonebookEntry(1L, "12345678", "Alice"));
+
+        listener.onEntryChanged(PhonebookEntryChangedEvent.deleted(1L));
+        assertNull(cache().get(1L));
+
+        // A read that started before the delete committed caches the row again
+        cache().put(1L, new PhonebookEntry(1L, "12345678", "Alice"));
+        ArgumentCaptor<Runnable> reEvict = ArgumentCaptor.forClass(Runnable.class);
+        verify(taskScheduler).schedule(reEvict.capture(), any(Instant.class));
+        reEvict.getValue().run();
+
+        assertNull(cache().get(1L));
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.phonebook.service;
+
+import com.example.phonebook.entity.PhonebookEntry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.cache.spi.CacheImplementor;
+import org.hibernate.cache.spi.TimestampsCache;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.metamodel.spi.MappingMetamodelImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PhonebookEntrySecondLevelCacheListenerTest {
+
+    private static final String[] SPACES = { "phonebook_entry" };
+
+    @Mock
+    private EntityManagerFactory entityManagerFactory;
+
+    @Mock
+    private SessionFactoryImplementor sessionFactory;
+
+    @Mock
+    private MappingMetamodelImplementor metamodel;
+
+    @Mock
+    private EntityPersister persister;
+
+    @Mock
+    private EntityDataAccess entityAccess;
+
+    @Mock
+    private CacheImplementor cache;
+
+    @Mock
+    private TimestampsCache timestampsCache;
+
+    @Mock
+    private SoftLock lock;
+
+    @InjectMocks
+    private PhonebookEntrySecondLevelCacheListener listener;
+
+    private StatelessSession session;
+
+    public PhonebookEntrySecondLevelCacheListenerTest() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @BeforeEach
+    void setUp() {
+        session = mock(StatelessSession.class, withSettings().extraInterfaces(SharedSessionContractImplementor.class));
+        when(entityManagerFactory.unwrap(SessionFactoryImplementor.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getMappingMetamodel()).thenReturn(metamodel);
+        when(metamodel.getEntityDescriptor(PhonebookEntry.class)).thenReturn(persister);
+        when(sessionFactory.openStatelessSession()).thenReturn(session);
+        when(sessionFactory.getCache()).thenReturn(cache);
+        when(cache.getTimestampsCache()).thenReturn(timestampsCache);
+        when(persister.getCacheAccessStrategy()).thenReturn(entityAccess);
+        when(persister.getPropertySpaces()).thenReturn(SPACES);
+        when(entityAccess.generateCacheKey(any(), eq(persister), eq(sessionFactory), any())).thenAnswer(
+                invocation -> "key-" + invocation.getArgument(0));
+        when(entityAccess.lockItem(any(), any(), any())).thenReturn(lock);
+    }
+
+    @Test
+    void testSavedEntryIsFencedAndPagesInvalidated() {
+        listener.onEntryChanged(PhonebookEntryChangedEvent.saved(new PhonebookEntry(1L, "12345678", "Alice")));
+
+        InOrder order = inOrder(entityAccess, timestampsCache);
+        order.verify(entityAccess).lockItem((SharedSessionContractImplementor) session, "key-1", null);
+        order.verify(entityAccess).unlockItem((SharedSessionContractImplementor) session, "key-1", lock);
+        order.verify(timestampsCache).invalidate(SPACES, (SharedSessionContractImplementor) session);
+        verify(session).close();
+    }
+
+    @Test
+    void testDeletedEntryIsFencedAndPagesInvalidated() {
+        listener.onEntryChanged(PhonebookEntryChangedEvent.deleted(2L));
+
+        verify(entityAccess).lockItem((SharedSessionContractImplementor) session, "key-2", null);
+        verify(entityAccess).unlockItem((SharedSessionContractImplementor) session, "key-2", lock);
+        verify(timestampsCache).invalidate(SPACES, (SharedSessionContractImplementor) session);
+    }
+}
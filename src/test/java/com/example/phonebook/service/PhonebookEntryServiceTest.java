@@ -1,16 +1,25 @@
 package com.example.phonebook.service;
 
-import com.example.phonebook.elasticsearch.PhonebookEntryDocument;
-import com.example.phonebook.elasticsearch.PhonebookEntrySearchRepository;
+import com.example.phonebook.dto.BulkDeleteResult;
+import com.example.phonebook.dto.CursorPage;
+import com.example.phonebook.dto.MultiGetResult;
 import com.example.phonebook.entity.PhonebookEntry;
+import com.example.phonebook.entity.PhonebookOutboxEvent;
+import com.example.phonebook.repository.PhonebookEntryBatchRepository;
 import com.example.phonebook.repository.PhonebookEntryRepository;
+import com.example.phonebook.repository.PhonebookOutboxRepository;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Page;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.Arrays;
 import java.util.List;
@@ -25,7 +34,13 @@ class PhonebookEntryServiceTest {
     private PhonebookEntryRepository repository;
 
     @Mock
-    private PhonebookEntrySearchRepository searchRepository;
+    private PhonebookOutboxRepository outboxRepository;
+
+    @Mock
+    private PhonebookEntryBatchRepository batchRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
     @InjectMocks
     private PhonebookEntryService service;
@@ -38,17 +53,17 @@ class PhonebookEntryServiceTest {
     void testCreateEntry() {
         PhonebookEntry entry = new PhonebookEntry(null, "12345678", "Alice");
         PhonebookEntry saved = new PhonebookEntry(1L, "12345678", "Alice");
-        PhonebookEntryDocument document = new PhonebookEntryDocument("1", "12345678", "Alice");
 
         when(repository.save(entry)).thenReturn(saved);
-        when(searchRepository.save(any(PhonebookEntryDocument.class))).thenReturn(document);
 
         PhonebookEntry result = service.createEntry(entry);
 
         assertEquals("Alice", result.getName());
         assertEquals("12345678", result.getPhone());
         verify(repository).save(entry);
-        verify(searchRepository).save(any(PhonebookEntryDocument.class));
+        verify(outboxRepository).save(argThat(event -> event.getEntryId() == 1L
+                && event.getOperation() == PhonebookOutboxEvent.Operation.INDEX));
+        verify(eventPublisher).publishEvent(PhonebookEntryChangedEvent.saved(saved));
     }
 
     @Test
@@ -79,28 +94,160 @@ class PhonebookEntryServiceTest {
         assertEquals("Alice", found.get().getName());
     }
 
+    @Test
+    void testGetEntriesByIdsKeepsRequestOrder() {
+        when(batchRepository.findAllById(any())).thenReturn(Arrays.asList(
+                new PhonebookEntry(1L, "12345678", "Alice"),
+                new PhonebookEntry(3L, "11223344", "Charlie")));
+
+        List<MultiGetResult> results = service.getEntriesByIds(List.of(3L, 2L, 1L, 3L));
+        assertEquals(List.of(3L, 2L, 1L, 3L), results.stream().map(MultiGetResult::getId).toList());
+        assertEquals("Charlie", results.get(0).getEntry().getName());
+        assertFalse(results.get(1).isFound());
+        assertNull(results.get(1).getEntry());
+        assertTrue(results.get(3).isFound());
+        verify(batchRepository).findAllById(argThat(ids -> ids.size() == 3));
+    }
+
     @Test
     void testUpdateEntry() {
-        PhonebookEntry entry = new PhonebookEntry(1L, "12345678", "Alice");
-        PhonebookEntryDocument document = new PhonebookEntryDocument("1", "12345678", "Alice");
+        PhonebookEntry updated = new PhonebookEntry(1L, "12345678", "Alice", 1L);
+        when(batchRepository.update(1L, "12345678", "Alice", null)).thenReturn(Optional.of(updated));
 
-        when(repository.save(entry)).thenReturn(entry);
-        when(searchRepository.save(any(PhonebookEntryDocument.class))).thenReturn(document);
+        PhonebookEntry result = service.updateEntry(1L, new PhonebookEntry(null, "12345678", "Alice"));
+        assertEquals(1L, result.getVersion());
+        verify(repository, never()).save(any());
+        verify(eventPublisher).publishEvent(PhonebookEntryChangedEvent.saved(updated));
+    }
 
-        PhonebookEntry updated = service.updateEntry(1L, entry);
-        assertEquals(1L, updated.getId());
-        verify(repository).save(entry);
-        verify(searchRepository).save(any(PhonebookEntryDocument.class));
+    @Test
+    void testUpdateMissingEntry() {
+        when(batchRepository.update(1L, "12345678", "Alice", null)).thenReturn(Optional.empty());
+
+        assertThrows(EmptyResultDataAccessException.class,
+                () -> service.updateEntry(1L, new PhonebookEntry(null, "12345678", "Alice")));
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void testPatchEntryWithStaleVersion() {
+        when(batchRepository.update(1L, null, "Alice", 2L)).thenReturn(Optional.empty());
+        when(repository.existsById(1L)).thenReturn(true);
+
+        assertThrows(OptimisticLockingFailureException.class, () -> service.patchEntry(1L, null, "Alice", 2L));
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void testPatchMissingEntry() {
+        when(batchRepository.update(1L, null, "Alice", 2L)).thenReturn(Optional.empty());
+        when(repository.existsById(1L)).thenReturn(false);
+
+        assertTrue(service.patchEntry(1L, null, "Alice", 2L).isEmpty());
+    }
+
+    @Test
+    void testUpsertEntry() {
+        PhonebookEntry entry = new PhonebookEntry(5L, "12345678", "Alice");
+        when(batchRepository.upsertByPhone("12345678", "Alice", null))
+                .thenReturn(Optional.of(new PhonebookEntryBatchRepository.Upserted(entry, true)));
+
+        assertTrue(service.upsertEntry("12345678", "Alice", null).created());
+        verify(eventPublisher).publishEvent(PhonebookEntryChangedEvent.saved(entry));
+    }
+
+    @Test
+    void testUpsertEntryWithStaleVersion() {
+        when(batchRepository.upsertByPhone("12345678", "Alice", 4L)).thenReturn(Optional.empty());
+
+        assertThrows(OptimisticLockingFailureException.class, () -> service.upsertEntry("12345678", "Alice", 4L));
     }
 
     @Test
     void testDeleteEntry() {
-        doNothing().when(repository).deleteById(1L);
-        doNothing().when(searchRepository).deleteById("1");
+        when(batchRepository.deleteAll(List.of(1L))).thenReturn(List.of(1L));
+
+        assertTrue(service.deleteEntry(1L));
+        verify(repository, never()).deleteById(any());
+        verify(eventPublisher).publishEvent(PhonebookEntryChangedEvent.deleted(1L));
+    }
+
+    @Test
+    void testDeleteMissingEntry() {
+        when(batchRepository.deleteAll(List.of(1L))).thenReturn(List.of());
+
+        assertFalse(service.deleteEntry(1L));
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void testDeleteEntriesInBatches() {
+        ReflectionTestUtils.setField(service, "bulkDeleteBatchSize", 2);
+        ReflectionTestUtils.setField(service, "maxBulkDeleteIds", 10);
+        when(batchRepository.deleteAll(List.of(1L, 2L))).thenReturn(List.of(1L, 2L));
+        when(batchRepository.deleteAll(List.of(3L))).thenReturn(List.of());
+
+        BulkDeleteResult result = service.deleteEntries(List.of(1L, 2L, 3L));
+        assertEquals(2, result.getRowsDeleted());
+        verify(eventPublisher).publishEvent(PhonebookEntryChangedEvent.deleted(2L));
+        verify(eventPublisher, never()).publishEvent(PhonebookEntryChangedEvent.deleted(3L));
+    }
+
+    @Test
+    void testDeleteEntriesByPhonePrefixRepeatsUntilDone() {
+        ReflectionTestUtils.setField(service, "bulkDeleteBatchSize", 2);
+        when(batchRepository.deleteByPhonePrefix("5550", 2))
+                .thenReturn(List.of(1L, 2L))
+                .thenReturn(List.of(3L));
+
+        assertEquals(3, service.deleteEntriesByPhonePrefix("5550").getRowsDeleted());
+        verify(batchRepository, times(2)).deleteByPhonePrefix("5550", 2);
+    }
+
+    @Test
+    void testDeleteEntriesByPhonePrefixRejectsNonDigits() {
+        assertThrows(IllegalArgumentException.class, () -> service.deleteEntriesByPhonePrefix("55%"));
+        assertThrows(IllegalArgumentException.class, () -> service.deleteEntriesByPhonePrefix(""));
+        verifyNoInteractions(batchRepository);
+    }
+
+    @Test
+    void testGetEntriesAfterReturnsNextCursor() {
+        when(repository.findByIdGreaterThanOrderByIdAsc(eq(0L), any(Limit.class))).thenReturn(Arrays.asList(
+                new PhonebookEntry(1L, "12345678", "Alice"),
+                new PhonebookEntry(2L, "87654321", "Bob")));
+
+        CursorPage<PhonebookEntry> first = service.getEntriesAfter(null, 1, null);
+        assertEquals(1, first.getContent().size());
+        assertNotNull(first.getNextCursor());
+
+        when(repository.findByIdGreaterThanOrderByIdAsc(eq(1L), any(Limit.class))).thenReturn(Arrays.asList(
+                new PhonebookEntry(2L, "87654321", "Bob")));
 
-        service.deleteEntry(1L);
+        CursorPage<PhonebookEntry> second = service.getEntriesAfter(first.getNextCursor(), 1, null);
+        assertEquals("Bob", second.getContent().get(0).getName());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void testGetEntriesAfterByName() {
+        when(repository.findByNameAndIdAfter("", 0L, 2)).thenReturn(Arrays.asList(
+                new PhonebookEntry(7L, "12345678", "Alice"),
+                new PhonebookEntry(3L, "87654321", "Bob")));
+
+        CursorPage<PhonebookEntry> first = service.getEntriesAfter(null, 1, PhonebookEntryService.CursorSort.NAME);
 
-        verify(repository).deleteById(1L);
-        verify(searchRepository).deleteById("1");
+        when(repository.findByNameAndIdAfter("Alice", 7L, 2)).thenReturn(Arrays.asList(
+                new PhonebookEntry(3L, "87654321", "Bob")));
+        CursorPage<PhonebookEntry> second = service.getEntriesAfter(first.getNextCursor(), 1, null);
+        assertEquals("Bob", second.getContent().get(0).getName());
+    }
+
+    @Test
+    void testGetEntriesAfterRejectsInvalidCursor() {
+        assertThrows(IllegalArgumentException.class, () -> service.getEntriesAfter("not-a-cursor", 10, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.getEntriesAfter(new PhonebookEntryService.Cursor(PhonebookEntryService.CursorSort.ID, 5,
+                        null).encode(), 10, PhonebookEntryService.CursorSort.NAME));
     }
 }
@@ -0,0 +1,61 @@
+package com.example.phonebook.service;
+
+import com.example.phonebook.repository.PhonebookEntryBatchRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+class PhonebookExportServiceTest {
+
+    @Mock
+    private PhonebookEntryBatchRepository batchRepository;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @InjectMocks
+    private PhonebookExportService service;
+
+    public PhonebookExportServiceTest() {
+        MockitoAnnotations.openMocks(this);
+        doAnswer(invocation -> {
+            PhonebookEntryBatchRepository.EntryRowHandler handler = invocation.getArgument(0);
+            handler.row(1L, "12345678", "Alice");
+            handler.row(2L, "87654321", "O'Connor, \"Jr\"");
+            return null;
+        }).when(batchRepository).streamAll(any());
+    }
+
+    private String export(PhonebookExportService.Format format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        service.export(out, format);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testExportCsv() throws Exception {
+        assertEquals("""
+                id,phone,name
+                1,12345678,Alice
+                2,87654321,"O'Connor, ""Jr""\"
+                """, export(PhonebookExportService.Format.CSV));
+    }
+
+    @Test
+    void testExportNdjson() throws Exception {
+        assertEquals("""
+                {"id":1,"phone":"12345678","name":"Alice"}
+                {"id":2,"phone":"87654321","name":"O'Connor, \\"Jr\\""}
+                """, export(PhonebookExportService.Format.NDJSON));
+    }
+}
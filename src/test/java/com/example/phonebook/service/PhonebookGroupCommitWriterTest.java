@@ -0,0 +1,143 @@
+package com.example.phonebook.service;
+
+import com.example.phonebook.entity.PhonebookEntry;
+import com.example.phonebook.metrics.StageMetrics;
+import com.example.phonebook.repository.PhonebookEntryBatchRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PhonebookGroupCommitWriterTest {
+
+    @Mock
+    private PhonebookEntryBatchRepository batchRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    private StageMetrics stageMetrics;
+
+    @InjectMocks
+    private PhonebookGroupCommitWriter writer;
+
+    private final ExecutorService callers = Executors.newFixedThreadPool(2);
+
+    public PhonebookGroupCommitWriterTest() {
+        MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(writer, "enabled", true);
+        // Long window: the batch is flushed as soon as it is full
+        ReflectionTestUtils.setField(writer, "window", Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(writer, "maxBatchSize", 2);
+        ReflectionTestUtils.setField(writer, "statementTimeout", Duration.ofSeconds(10));
+        ReflectionTestUtils.setField(writer, "connectionTimeoutMillis", 30000L);
+        writer.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.stop();
+        callers.shutdownNow();
+    }
+
+    @Test
+    void testConcurrentCreatesShareOneInsert() throws Exception {
+        when(batchRepository.insertAll(any(), any(), any())).thenAnswer(invocation -> {
+            List<String> phones = invocation.getArgument(0);
+            List<String> names = invocation.getArgument(1);
+            return List.of(new PhonebookEntry(1L, phones.get(0), names.get(0)),
+                    new PhonebookEntry(2L, phones.get(1), names.get(1)));
+        });
+
+        Future<PhonebookEntry> alice = callers.submit(() -> writer.create("12345678", "Alice"));
+        Future<PhonebookEntry> bob = callers.submit(() -> writer.create("87654321", "Bob"));
+
+        assertEquals("Alice", alice.get(5, TimeUnit.SECONDS).getName());
+        assertEquals("Bob", bob.get(5, TimeUnit.SECONDS).getName());
+        verify(batchRepository, times(1)).insertAll(any(), any(), any());
+        verify(eventPublisher, times(2)).publishEvent(any(PhonebookEntryChangedEvent.class));
+        assertEquals(2.0, meterRegistry.get(PhonebookGroupCommitWriter.BATCH_SIZE_SUMMARY).summary().totalAmount());
+        verify(batchRepository).insertAll(any(), any(), eq(Duration.ofSeconds(10)));
+        verify(stageMetrics, times(2)).record(eq(StageMetrics.SERVICE), eq("createEntry"), eq(true), anyLong());
+    }
+
+    @Test
+    void testDuplicatePhoneInBatchFailsOnlyThatCaller() throws Exception {
+        when(batchRepository.insertAll(eq(List.of("12345678")), eq(List.of("Alice")), any()))
+                .thenReturn(List.of(new PhonebookEntry(1L, "12345678", "Alice")));
+
+        Future<PhonebookEntry> first = callers.submit(() -> writer.create("12345678", "Alice"));
+        Future<PhonebookEntry> second = callers.submit(() -> writer.create("12345678", "Alice"));
+
+        int created = 0;
+        int duplicates = 0;
+        for (Future<PhonebookEntry> caller : List.of(first, second)) {
+            try {
+                assertEquals(1L, caller.get(5, TimeUnit.SECONDS).getId());
+                created++;
+            } catch (ExecutionException e) {
+                assertInstanceOf(DuplicateKeyException.class, e.getCause());
+                duplicates++;
+            }
+        }
+        assertEquals(1, created);
+        assertEquals(1, duplicates);
+    }
+
+    @Test
+    void testFailedInsertFailsEveryCaller() {
+        when(batchRepository.insertAll(any(), any(), any())).thenThrow(new DataAccessResourceFailureException("down"));
+
+        Future<PhonebookEntry> alice = callers.submit(() -> writer.create("12345678", "Alice"));
+        Future<PhonebookEntry> bob = callers.submit(() -> writer.create("87654321", "Bob"));
+
+        for (Future<PhonebookEntry> caller : List.of(alice, bob)) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> caller.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(DataAccessResourceFailureException.class, e.getCause());
+        }
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void testCallerTimesOutAndIsLeftOutOfTheBatch() throws Exception {
+        ReflectionTestUtils.setField(writer, "waitTimeout", Duration.ofMillis(100));
+        when(batchRepository.insertAll(eq(List.of("87654321")), eq(List.of("Bob")), any()))
+                .thenReturn(List.of(new PhonebookEntry(2L, "87654321", "Bob")));
+
+        // Alone in a five second window, the first caller gives up first
+        assertThrows(QueryTimeoutException.class, () -> writer.create("12345678", "Alice"));
+        verify(stageMetrics).record(eq(StageMetrics.SERVICE), eq("createEntry"), eq(false), anyLong());
+
+        // The second create fills the batch, which no longer writes the first
+        Future<PhonebookEntry> bob = callers.submit(() -> writer.create("87654321", "Bob"));
+        assertEquals(2L, bob.get(5, TimeUnit.SECONDS).getId());
+        verify(batchRepository, times(1)).insertAll(any(), any(), any());
+    }
+}
@@ -28,6 +28,16 @@ class InputSanitizerTest {
         assertThrows(IllegalArgumentException.class, () -> sanitizer.sanitizePhone("1234567a"));
     }
 
+    @Test
+    void testCleanInputIsReturnedAsIs() {
+        String phone = "12345678";
+        String name = "Jean-Pierre O'Connor";
+        String text = "Hello World";
+        assertSame(phone, sanitizer.sanitizePhone(phone));
+        assertSame(name, sanitizer.sanitizeName(name));
+        assertSame(text, sanitizer.escapeHtml(text));
+    }
+
     @Test
     void testSanitizePhone_NullInput() {
         assertNull(sanitizer.sanitizePhone(null));
@@ -41,6 +51,15 @@ class InputSanitizerTest {
         assertEquals("Jean-Pierre", sanitizer.sanitizeName("jean-pierre"));
     }
 
+    @Test
+    void testSanitizeName_Normalization() {
+        assertEquals("John Doe", sanitizer.sanitizeName("  JOHN \t\n doe  "));
+        assertEquals("O'connor-Smith", sanitizer.sanitizeName("o'connor-smith"));
+        assertEquals("Mary--Jane", sanitizer.sanitizeName("mary--jane"));
+        assertEquals("-Anne", sanitizer.sanitizeName("-anne-"));
+        assertEquals("D'Angelo", sanitizer.sanitizeName("d'angelo''"));
+    }
+
     @Test
     void testSanitizeName_InvalidInput() {
         assertThrows(IllegalArgumentException.class, () -> sanitizer.sanitizeName("John123"));
@@ -172,6 +191,14 @@ class InputSanitizerTest {
         assertFalse(sanitizer.containsDangerousContent("12345678"));
     }
 
+    @Test
+    void testContainsDangerousContent_MixedCase() {
+        assertTrue(sanitizer.containsDangerousContent("<ScRiPt src=x>"));
+        assertTrue(sanitizer.containsDangerousContent("1 uNiOn 2"));
+        assertTrue(sanitizer.containsDangerousContent("Bob UPDATE"));
+        assertFalse(sanitizer.containsDangerousContent("drip .. /"));
+    }
+
     @Test
     void testContainsDangerousContent_NullInput() {
         assertFalse(sanitizer.containsDangerousContent(null));